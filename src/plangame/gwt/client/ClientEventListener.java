@@ -38,9 +38,14 @@ import com.google.gwt.core.client.Scheduler.RepeatingCommand;
 // FIXME proper ending/restore of listening on refresh
 @SuppressWarnings("serial")
 public class ClientEventListener implements Serializable {
-	/** Time in msec between event polling */
+	/** Time in msec before polling again when the server returned no events,
+	 * the server holds the listen request while there are no events so this
+	 * delay only applies when the server does not support held requests */
 	private final static int EVENT_POLL_DELAY = 250;
 	
+	/** Time in msec before listening again after a failed listen request */
+	private final static int EVENT_RETRY_DELAY = 2000;
+	
 	/** The client view we are listening for */
 	protected ClientView clientview;
 	
@@ -60,8 +65,9 @@ public class ClientEventListener implements Serializable {
 	}
 	
 	/**
-	 * Polls the server occasionally for events, notifies the client when one or
-	 * more event are received
+	 * Sends a listen request to the server, the server responds as soon as one
+	 * or more events are available for the client. When the response is
+	 * received, the events are processed and a new listen request is sent.
 	 */
 	protected void listen( ) {
 		clientview.getRPC( ).listen( clientview.getClient( ).getID( ), new RPCCallback<List<Event>>( ) {
@@ -78,6 +84,10 @@ public class ClientEventListener implements Serializable {
 				// check if there is an event for us to process
 				for( Event e : result )
 					event( e );
+				
+				// listen for the next events, immediately if we received events
+				// because more are likely to follow
+				listenNext( result.size( ) > 0 ? 0 : EVENT_POLL_DELAY );
 			}
 			
 			/**
@@ -85,10 +95,12 @@ public class ClientEventListener implements Serializable {
 			 */
 			@Override
 			public void failure( Throwable caught ) {
-				if( caught instanceof EventException )
+				if( caught instanceof EventException ) {
 					listening = false;
-				else
+				} else {
 					super.failure( caught );
+					listenNext( EVENT_RETRY_DELAY );
+				}
 			}
 
 			@Override protected String getFailureText( ) { return Lang.text.Client_ListenFail( ); }
@@ -120,27 +132,44 @@ public class ClientEventListener implements Serializable {
 	
 	
 	/**
-	 * Starts listening for events
+	 * Sends the next listen request after the specified delay, if we are still
+	 * listening by then
+	 * 
+	 * @param delay The delay in msec, 0 to listen immediately
 	 */
-	public void start( ) {
-		clientview.log( LogType.Event, "Started listening" );
-		listening = true;
+	protected void listenNext( int delay ) {
+		if( !listening ) return;
+		
+		if( delay <= 0 ) {
+			listen( );
+			return;
+		}
 		
 		Scheduler.get( ).scheduleFixedDelay( new RepeatingCommand( ) {
 			/**
-			 * Polls the server for events, is executed until listening is false
+			 * Sends the listen request once, unless we stopped listening
 			 * 
 			 * @see com.google.gwt.core.client.Scheduler.RepeatingCommand#execute()
 			 */
 			@Override
 			public boolean execute( ) {
 				// may be that we have already stopped listening
-				if( !listening ) return false;
-				
-				// listen for events
-				listen( );
-				return listening;
-			} }, EVENT_POLL_DELAY );
+				if( listening ) listen( );
+				return false;
+			} }, delay );
+	}
+	
+	/**
+	 * Starts listening for events
+	 */
+	public void start( ) {
+		clientview.log( LogType.Event, "Started listening" );
+		
+		// only one listen request should be active at a time
+		if( listening ) return;
+		listening = true;
+		
+		listen( );
 	}
 	
 	/**
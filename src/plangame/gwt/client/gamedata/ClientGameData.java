@@ -42,9 +42,14 @@ public class ClientGameData {
 	/** The current game info */
 	protected GameInfo gameinfo;
 	
-	/** The current joint plan */
+	/** The current joint plan, null while a copy shares the plan of its
+	 * source */
 	protected JointPlan jointplan;
 	
+	/** The joint plan that is shared with data copies, null if the plan is not
+	 * shared */
+	protected SharedPlan sharedplan;
+	
 	/** The game data computations class */
 	protected GameData gamedata;
 	
@@ -62,24 +67,72 @@ public class ClientGameData {
 		// sure all computations are done before other objects are notified
 		updates = new ArrayList<DataUpdateListener>( );		
 		updates.add( gamedata.cache );
+		
+		sharedplan = null;
+	}
+	
+	/**
+	 * Joint plan that is shared by the data copies of a client game data
+	 */
+	protected static class SharedPlan {
+		/** The shared joint plan */
+		protected JointPlan plan;
+		
+		/** The number of data copies that still read the shared plan */
+		protected int readers;
+		
+		/**
+		 * Creates a new shared plan
+		 * 
+		 * @param plan The joint plan to share
+		 */
+		protected SharedPlan( JointPlan plan ) {
+			this.plan = plan;
+			this.readers = 0;
+		}
 	}
 	
 	/**
 	 * Creates a data-only copy of the client game data that can be used for
 	 * future manipulation. The registered update listeners are not copied, hence
 	 * existing listeners should be added to the copy as well if they should be
-	 * updated on changes to the copy
+	 * updated on changes to the copy.
+	 * 
+	 * The copy shares the joint plan until either is changed. If this data is
+	 * changed first, it leaves one copy of its plan to the copies that still
+	 * read it, such that the joint plan object of this data never changes.
+	 * The shared plan only counts its readers, copies that are no longer used
+	 * should be released to avoid that copy.
 	 * 
 	 * @return A data-only copy of the client game data
 	 */
 	public ClientGameData dataCopy( ) {
+		return dataCopy( true );
+	}
+	
+	/**
+	 * Creates a data-only copy of the client game data, see dataCopy( ). Copies
+	 * that are going to change the joint plan anyway should not share the plan.
+	 * 
+	 * @param share True to share the joint plan until either data is changed,
+	 * false to copy the joint plan immediately
+	 * @return A data-only copy of the client game data
+	 */
+	public ClientGameData dataCopy( boolean share ) {
 		// create the copy
 		final ClientGameData copy = new ClientGameData( );
 		
-		// copy game info and joint plan
+		// copy game info and share or copy the joint plan
 		// FIXME the game info is now copied by reference
 		copy.gameinfo = gameinfo;
-		copy.jointplan = new JointPlan( jointplan );
+		if( getJointPlan( ) != null ) {
+			if( share ) {
+				if( sharedplan == null ) sharedplan = new SharedPlan( jointplan );
+				sharedplan.readers++;
+				copy.sharedplan = sharedplan;
+			} else
+				copy.jointplan = new JointPlan( getJointPlan( ) );
+		}
 
 		// copy the game data computations and cache
 		copy.gamedata.cache.copyFrom( gamedata.cache );
@@ -87,6 +140,36 @@ public class ClientGameData {
 		return copy;
 	}
 	
+	/**
+	 * Releases the joint plan of a data copy that is no longer used, so that
+	 * the data it was copied from no longer copies its plan for it. The copy
+	 * should not be used after this. Has no effect on data that does not read
+	 * a shared plan.
+	 */
+	public void release( ) {
+		if( sharedplan == null || sharedplan.plan == jointplan ) return;
+		
+		sharedplan.readers--;
+		sharedplan = null;
+	}
+	
+	/**
+	 * Makes sure the joint plan is not shared with other data before it is
+	 * modified. A copy takes its own copy of the shared plan, the data that
+	 * shared its own plan leaves a copy to the copies that still read it.
+	 */
+	private void ownJointPlan( ) {
+		if( sharedplan == null ) return;
+		
+		if( sharedplan.plan == jointplan ) {
+			if( sharedplan.readers > 0 ) sharedplan.plan = new JointPlan( jointplan );
+		} else {
+			jointplan = new JointPlan( sharedplan.plan );
+			sharedplan.readers--;
+		}
+		sharedplan = null;
+	}
+	
 	/**
 	 * Adds an update listener
 	 * 
@@ -119,10 +202,12 @@ public class ClientGameData {
 	 * @param jplan The new joint plan
 	 */
 	public void setJointPlan( JointPlan jplan ) {
-		if( jointplan == null )
+		if( getJointPlan( ) == null )
 			jointplan = new JointPlan( jplan );
-		else
+		else {
+			ownJointPlan( );
 			jointplan.update( jplan );		
+		}
 		
 		// notify all listeners
 		for( DataUpdateListener l : updates )
@@ -136,6 +221,7 @@ public class ClientGameData {
 	 * @param plan The plan to set in the joint plan
 	 */
 	public void setPlan( Plan plan ) {
+		ownJointPlan( );
 		getJointPlan( ).setPlan( plan );
 		
 		// notify all listeners
@@ -145,7 +231,7 @@ public class ClientGameData {
 	}
 
 	/** @return The current joint plan */
-	public JointPlan getJointPlan( ) { return jointplan; }
+	public JointPlan getJointPlan( ) { return (sharedplan != null ? sharedplan.plan : jointplan); }
 	
 	/**
 	 * Called whenever the current plan is changed, listeners are only notified
@@ -161,6 +247,7 @@ public class ClientGameData {
 //		System.out.println( "BEFORE:");
 //		System.out.println( jointplan.printSchedule( ) );
 
+		ownJointPlan( );
 		final PlanTask ptask = jointplan.applyChange( change, validate );
 //		
 //		System.out.println( "AFTER:");
@@ -191,6 +278,20 @@ public class ClientGameData {
 		
 	}
 	
+	/**
+	 * Notifies a single listener of the current game info and joint plan,
+	 * without changing anything. Other listeners, e.g. the cache of a data
+	 * copy, are left untouched.
+	 * 
+	 * @param listener The listener to notify
+	 */
+	public void notifyListener( DataUpdateListener listener ) {
+		if( listener instanceof GameInfoUpdateListener )
+			((GameInfoUpdateListener)listener).onGameInfoSet( getGameInfo( ) );
+		if( listener instanceof JointPlanUpdateListener )
+			((JointPlanUpdateListener)listener).onJointPlanSet( getJointPlan( ) );
+	}
+	
 	/**
 	 * Restores the game data after a reconnect
 	 * 
@@ -209,7 +310,9 @@ public class ClientGameData {
 	 */
 	public void updateResults( GameResults results ) {
 		// update game time
+		ownJointPlan( );
 		getJointPlan( ).setGameTime( results.getGameTime( ) );
+		gamedata.cache.onGameTimeSet( );
 		
 		// apply all updates
 		for( PlanTask pt : results.getDelayed( ) )
@@ -266,6 +369,6 @@ public class ClientGameData {
 	 * @return True if	game data is known and joint plan is set
 	 */
 	public boolean isReady( ) { 
-		return !(gameinfo == null || jointplan == null);
+		return !(gameinfo == null || getJointPlan( ) == null);
 	}
 }
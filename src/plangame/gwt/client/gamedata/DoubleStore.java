@@ -0,0 +1,132 @@
+/**
+ * @file DoubleStore.java
+ * @brief Short description of file
+ *
+ * This file is created at Almende B.V. It is open-source software and part of the Common
+ * Hybrid Agent Platform (CHAP). A toolbox with a lot of open-source tools, ranging from
+ * thread pools and TCP/IP components to control architectures and learning algorithms.
+ * This software is published under the GNU Lesser General Public license (LGPL).
+ *
+ * Copyright  2026 agent <agent@local>
+ *
+ * @author       agent
+ * @date         17 okt. 2026
+ * @project      NGI
+ * @company      Almende B.V.
+ */
+package plangame.gwt.client.gamedata;
+
+/**
+ * Cached double values by index, e.g. per week or per player. The values are
+ * stored in a primitive array with a bitset that marks the known values, so
+ * storing a value does not allocate.
+ *
+ * @author agent
+ */
+public class DoubleStore extends SharedStore {
+	/** The stored values */
+	protected double[] values;
+	
+	/** Bitset of the indices that have a known value */
+	protected int[] valid;
+	
+	/**
+	 * Creates a new empty store
+	 * 
+	 * @param size The initial number of values, the store grows if required
+	 */
+	public DoubleStore( int size ) {
+		super( );
+		
+		values = new double[ Math.max( size, 1 ) ];
+		valid = new int[ words( values.length ) ];
+	}
+	
+	/**
+	 * Creates a copy of the store, the values are shared until either store is
+	 * modified
+	 * 
+	 * @param store The store to copy
+	 */
+	public DoubleStore( DoubleStore store ) {
+		super( store );
+		
+		values = store.values;
+		valid = store.valid;
+	}
+	
+	/**
+	 * @see plangame.gwt.client.gamedata.SharedStore#copyData()
+	 */
+	@Override
+	protected void copyData( ) {
+		values = copyOf( values, values.length );
+		valid = copyOf( valid, valid.length );
+	}
+	
+	/**
+	 * Removes all values from the store
+	 */
+	public void clear( ) {
+		values = new double[ values.length ];
+		valid = new int[ valid.length ];
+		owned( );
+	}
+	
+	/**
+	 * @param index The index
+	 * @return True if the value at the index is known
+	 */
+	public boolean isValid( int index ) {
+		if( index < 0 || index >= values.length ) return false;
+		
+		return (valid[ index >>> 5 ] & (1 << (index & 31))) != 0;
+	}
+	
+	/**
+	 * @param index The index
+	 * @return The value at the index, only meaningful if it is valid
+	 */
+	public double get( int index ) {
+		return values[ index ];
+	}
+	
+	/**
+	 * Stores the value at the index
+	 * 
+	 * @param index The index
+	 * @param value The value
+	 */
+	public void set( int index, double value ) {
+		modify( );
+		
+		// grow to fit the index
+		if( index >= values.length ) {
+			values = copyOf( values, Math.max( index + 1, values.length * 2 ) );
+			valid = copyOf( valid, words( values.length ) );
+		}
+		
+		values[ index ] = value;
+		valid[ index >>> 5 ] |= 1 << (index & 31);
+	}
+	
+	/**
+	 * Marks the value at the index as unknown
+	 * 
+	 * @param index The index
+	 */
+	public void invalidate( int index ) {
+		if( !isValid( index ) ) return;
+		
+		modify( );
+		valid[ index >>> 5 ] &= ~(1 << (index & 31));
+	}
+	
+	/**
+	 * @param size The number of values
+	 * @return The number of bitset words required for the values
+	 */
+	private static int words( int size ) {
+		return (size + 31) >>> 5;
+	}
+}
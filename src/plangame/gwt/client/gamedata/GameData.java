@@ -55,6 +55,15 @@ public class GameData {
 		this.data = clientdata;
 		this.cache = new GameDataCache( );
 	}
+	
+	/**
+	 * Clears all memoized scores of the current joint plan, the next calls
+	 * compute them again. Only required to measure the computations, the cache
+	 * is kept up to date by the plan updates
+	 */
+	public void clearScores( ) {
+		cache.clearPlanScores( );
+	}
 		
 	/**
 	 * Computes the total profits of the player
@@ -66,6 +75,10 @@ public class GameData {
 	 */
 	public TotalScore getProfits( Player player ) {
 		data.checkReady( );
+		
+		// check the cache first
+		final TotalScore cached = cache.getPlayerProfits( player );
+		if( cached != null ) return cached;
 
 		// sum over the task profits
 		final TotalScore profits = new TotalScore( );
@@ -85,7 +98,9 @@ public class GameData {
 			if( !data.getJointPlan( ).isPlanned( t ) ) profits.add( -t.getPenalty( ), 0 );
 		
 		// return best and worst case extremes (instead of best and delta)
-		return new TotalScore( profits.getBestCase( ), profits.getBestCase( ) + profits.getWorstCase( ) ) ;
+		final TotalScore result = new TotalScore( profits.getBestCase( ), profits.getBestCase( ) + profits.getWorstCase( ) );
+		cache.setPlayerProfits( player, result );
+		return result;
 	}
 	
 	/**
@@ -101,6 +116,10 @@ public class GameData {
 		// get the planned task
 		final PlanTask pt = data.getJointPlan( ).getPlanned( task );
 		if( pt == null ) return new PendingScore( );
+		
+		// check the cache first
+		final PendingScore cached = cache.getTaskProfits( task );
+		if( cached != null ) return cached;
 				
 		// get revenue
 		final double revenue = pt.getRevenue( );
@@ -115,12 +134,15 @@ public class GameData {
 		final double best = revenue - costs.getRegular( ) - (payments.getIndividual( ).getRegular( ) + payments.getNetworkRegular( ).getWorstRealised( ) );
 		final double worst = revenue - costs.getTotal( ) - (payments.getIndividual( ).getTotal( ) + payments.getNetworkRegular( ).getWorstRealised( ) + payments.getNetworkDelayed( ).getWorstRealised( ));
 
-		return new PendingScore( best, worst - best, pt.getDelayStatus( ) );			
+		final PendingScore profits = new PendingScore( best, worst - best, pt.getDelayStatus( ) );
+		cache.setTaskProfits( task, profits );
+		return profits;
 	}
 	
 	/**
 	 * Computes the profit ranking score of the player, highest best case profit
-	 * is ranked number 1
+	 * is ranked number 1. The ranking is maintained in the cache, only the
+	 * profits of players that are affected by plan changes are recomputed.
 	 * 
 	 * @param player The player 
 	 * @return The profit rank of the player
@@ -128,15 +150,15 @@ public class GameData {
 	public int getProfitRank( Player player ) {
 		data.checkReady( );
 		
-		final double profit = getProfits( player ).getBestCase( );
-		
-		int rank = 1;
-		for( Player p : data.getPlayers( ) ) {
-			if( getProfits( p ).getBestCase( ) > profit )
-				rank++;
+		// recompute the players that are no longer ranked
+		final ScoreRanking ranking = cache.getProfitRanking( );
+		if( ranking.size( ) < data.getPlayers( ).size( ) ) {
+			for( Player p : data.getPlayers( ) )
+				if( !ranking.isRanked( p ) )
+					ranking.setScore( p, getProfits( p ).getBestCase( ) );
 		}
 		
-		return rank;
+		return ranking.getRank( player );
 	}
 	
 	/**
@@ -294,6 +316,10 @@ public class GameData {
 	public TotalScore getTTL( Player player, boolean relative ) {
 		data.checkReady( );
 		
+		// check the cache first
+		final TotalScore cached = cache.getPlayerTTL( player, relative );
+		if( cached != null ) return cached;
+		
 		// sum over all TTL scores
 		final TotalScore total = new TotalScore( );
 		for( PlanTask pt : data.getJointPlan( ).getPlanned( player ) ) {
@@ -314,12 +340,14 @@ public class GameData {
 			}
 		}
 		
+		cache.setPlayerTTL( player, relative, total );
 		return total;
 	}
 	
 	/**
 	 * Computes the TTL ranking score of the player, lowest best-case TTL is
-	 * ranked number 1
+	 * ranked number 1. The ranking is maintained in the cache, only the TTL of
+	 * players that are affected by plan changes is recomputed.
 	 * 
 	 * @param player The player 
 	 * @return The TTL rank of the player
@@ -327,15 +355,15 @@ public class GameData {
 	public int getTTLRank( Player player ) {
 		data.checkReady( );
 		
-		final double ttl = getTTL( player, false ).getBestCase( );
-		
-		int rank = 1;
-		for( Player p : data.getPlayers( ) ) {
-			if( getTTL( p, false ).getBestCase( ) < ttl )
-				rank++;
+		// recompute the players that are no longer ranked
+		final ScoreRanking ranking = cache.getTTLRanking( );
+		if( ranking.size( ) < data.getPlayers( ).size( ) ) {
+			for( Player p : data.getPlayers( ) )
+				if( !ranking.isRanked( p ) )
+					ranking.setScore( p, getTTL( p, false ).getBestCase( ) );
 		}
 		
-		return rank;
+		return ranking.getRank( player );
 	}	
 	
 	/**
@@ -353,11 +381,13 @@ public class GameData {
 		final PlanTask pt = data.getJointPlan( ).getPlanned( task );
 		if( pt == null ) return new TTLScore( );
 		
-		// get the TTLModel
-		final TTLModel ttlmodel = data.getGameInfo( ).getInfra( ).getTTLModel( );
-
-		// get TTL
-		final TTLScore ttl = data.getJointPlan( ).getTTL( pt, ttlmodel );
+		// get TTL, from the cache if possible
+		TTLScore ttl = cache.getTaskTTL( task );
+		if( ttl == null ) {
+			final TTLModel ttlmodel = data.getGameInfo( ).getInfra( ).getTTLModel( );
+			ttl = data.getJointPlan( ).getTTL( pt, ttlmodel );
+			cache.setTaskTTL( task, ttl );
+		}
 		return (relative ? rel( ttl, getTTLIdle( ) ) : ttl );
 	}	
 	
@@ -369,10 +399,9 @@ public class GameData {
 		data.checkReady( );
 		
 		// check the cache
-		Double idleTTLtotal = cache.getTTLIdleTotal( );
-		if( idleTTLtotal == null ) {
+		if( !cache.hasTTLIdleTotal( ) ) {
 			// invalid, re-compute
-			idleTTLtotal = new Double( 0 );
+			double idleTTLtotal = 0;
 			for( TimePoint week : data.getGamePeriod( ).toWeeks( ) )
 				idleTTLtotal += getTTLIdle( week );
 			
@@ -380,7 +409,7 @@ public class GameData {
 			cache.setTTLIdleTotal( idleTTLtotal );
 		}
 		
-		return idleTTLtotal;
+		return cache.getTTLIdleTotal( );
 	}
 	
 	/**
@@ -393,16 +422,12 @@ public class GameData {
 		data.checkReady( );
 		
 		// check the cache
-		Double idleTTL = cache.getTTLIdle( time );
-		if( idleTTL == null ) {
-			// re-compute
-			idleTTL = new Double( data.getGameInfo( ).getInfra( ).getTTLModel( ).getIdle( time ) );
-			
-			// store in cache
-			cache.setTTLIdle( time, idleTTL );
+		if( !cache.hasTTLIdle( time ) ) {
+			// re-compute and store in cache
+			cache.setTTLIdle( time, data.getGameInfo( ).getInfra( ).getTTLModel( ).getIdle( time ) );
 		}
 		
-		return idleTTL;
+		return cache.getTTLIdle( time );
 	}
 	
 	/**
@@ -414,6 +439,10 @@ public class GameData {
 	public TotalScore getTotalTTL( boolean relative ) {
 		data.checkReady( );
 		
+		// check the cache first
+		final TotalScore cached = cache.getTotalTTL( relative );
+		if( cached != null ) return cached;
+		
 		// sum player ttl scores
 		final TotalScore total = new TotalScore( );
 		for( Player p : data.getPlayers( ) ) {
@@ -421,6 +450,7 @@ public class GameData {
 			total.add( ttl.getBestCase( ), ttl.getWorstCase( ) );
 		}
 		
+		cache.setTotalTTL( relative, total );
 		return total;
 	}
 	
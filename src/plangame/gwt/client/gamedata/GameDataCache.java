@@ -22,11 +22,12 @@ import plangame.game.plans.DelayStatus;
 import plangame.game.plans.JointPlan;
 import plangame.game.plans.PlanChange;
 import plangame.game.plans.PlanTask;
+import plangame.game.player.Player;
+import plangame.game.score.PendingScore;
 import plangame.game.score.TTLScore;
 import plangame.gwt.client.ClientView;
 import plangame.gwt.shared.DebugGlobals;
 import plangame.gwt.shared.state.GameInfo;
-import plangame.model.object.ObjectMap;
 import plangame.model.tasks.Task;
 import plangame.model.tasks.TaskMethod;
 import plangame.model.time.TimePoint;
@@ -45,17 +46,50 @@ public class GameDataCache implements GameInfoUpdateListener, JointPlanUpdateLis
 	/** The game time in weeks */
 	private int weeks;
 	
+	/** The numbering of the tasks in the score stores, shared by all copies */
+	private ScoreIndex<Task> taskindex;
+	
+	/** The numbering of the players in the score stores, shared by all copies */
+	private ScoreIndex<Player> playerindex;
+	
 	/** Idle TTL per week */
-	private Double[] idleTTL;
+	private DoubleStore idleTTL;
 	
 	/** Total idle TTL (cached because it is used a lot with relative display) */
-	private Double idleTTLTotal;
+	private double idleTTLTotal;
+	
+	/** True if the total idle TTL is known */
+	private boolean idleTTLTotalValid;
 	
 	/** Payment for a method at each time */
-	private ObjectMap<Task, TTLScore> task_payments;
+	private ScoreMemo<Task, TTLScore> task_payments;
+	
+	/** The planned tasks per week, used to find the tasks affected by changes */
+	private PlanWeekIndex plantasks;
+	
+	/** TTL distribution of the joint plan per week, by week number */
+	private ScoreMemo<TimePoint, TTLDistribution> netdist;
+	
+	/** Ranking of the players on their best case profits */
+	private ScoreRanking profitrank;
+	
+	/** Ranking of the players on their best case TTL */
+	private ScoreRanking ttlrank;
 	
-	/** TTL distribution of the joint plan per week */
-	private TTLDistribution[] netdist;
+	/** TTL per planned task (not relative) */
+	private ScoreMemo<Task, TTLScore> task_ttl;
+	
+	/** Profits per planned task */
+	private ScoreMemo<Task, PendingScore> task_profits;
+	
+	/** Total profits per player */
+	private ScoreMemo<Player, TotalScore> player_profits;
+	
+	/** Total TTL per player, not relative and relative to idle */
+	private ScoreMemo<Player, TotalScore> player_ttl, player_ttlrel;
+	
+	/** Total TTL of the joint plan, not relative and relative to idle */
+	private TotalScore[] totalttl;
 	
 	/** Number of cache hits */
 	private long stats_hits;
@@ -79,6 +113,10 @@ public class GameDataCache implements GameInfoUpdateListener, JointPlanUpdateLis
 	 * @param maincache True if this is the client's main cache, not a copy
 	 */
 	private GameDataCache( boolean maincache ) {
+		// the numbering of tasks and players only grows
+		taskindex = new ScoreIndex<Task>( );
+		playerindex = new ScoreIndex<Player>( );
+		
 		// initialise stats
 		stats_hits = 0;
 		stats_misses = 0;
@@ -95,7 +133,9 @@ public class GameDataCache implements GameInfoUpdateListener, JointPlanUpdateLis
 	}
 	
 	/**
-	 * Copies all information from the specified cache
+	 * Copies all information from the specified cache. The stores are shared
+	 * with the cache and only copied when either cache modifies them, hence
+	 * copying is cheap.
 	 * 
 	 * @param cache The cache to copy values from
 	 */
@@ -103,23 +143,30 @@ public class GameDataCache implements GameInfoUpdateListener, JointPlanUpdateLis
 		// keep track of copy time
 		final long copystart = System.currentTimeMillis( ); 			
 		
-		// copy the number of weeks
+		// copy the number of weeks and the numbering of the stores
 		weeks = cache.weeks;
+		taskindex = cache.taskindex;
+		playerindex = cache.playerindex;
 		
-		// copy all elements
+		// share all elements
 		idleTTLTotal = cache.idleTTLTotal;
-		idleTTL = new Double[ weeks ];
-		netdist = new TTLDistribution[ weeks ];
-		for( int i = 0; i < weeks; i++ ) {
-			idleTTL[ i ] = new Double( cache.idleTTL[ i ] );
-			netdist[ i ] = (cache.netdist[ i ] != null ? new TTLDistribution( cache.netdist[ i ] ) : null );
-		}
+		idleTTLTotalValid = cache.idleTTLTotalValid;
+		idleTTL = new DoubleStore( cache.idleTTL );
+		netdist = new ScoreMemo<TimePoint, TTLDistribution>( cache.netdist );
 		
 		// and per-task data
-		task_payments = new ObjectMap<Task, TTLScore>( );
-		for( Task task : cache.task_payments.getKeys( ) ) {
-			task_payments.put( task, cache.task_payments.get( task ) );
-		}
+		plantasks = new PlanWeekIndex( cache.plantasks );
+		task_payments = new ScoreMemo<Task, TTLScore>( cache.task_payments );
+		
+		// and the player rankings and scores
+		profitrank = new ScoreRanking( cache.profitrank );
+		ttlrank = new ScoreRanking( cache.ttlrank );
+		task_ttl = new ScoreMemo<Task, TTLScore>( cache.task_ttl );
+		task_profits = new ScoreMemo<Task, PendingScore>( cache.task_profits );
+		player_profits = new ScoreMemo<Player, TotalScore>( cache.player_profits );
+		player_ttl = new ScoreMemo<Player, TotalScore>( cache.player_ttl );
+		player_ttlrel = new ScoreMemo<Player, TotalScore>( cache.player_ttlrel );
+		totalttl = new TotalScore[] { cache.totalttl[ 0 ], cache.totalttl[ 1 ] };
 		
 		// output copy time if profiling
 		if( DebugGlobals.cachePerformance( ) )
@@ -131,14 +178,18 @@ public class GameDataCache implements GameInfoUpdateListener, JointPlanUpdateLis
 	 */
 	@Override
 	public void onGameInfoSet( GameInfo gameinfo ) {
-		// get the period length
+		// get the period length, the planned tasks remain valid if it is equal
+		final int prevweeks = weeks;
 		weeks = gameinfo.getGamePeriod( ).getWeeks( );
+		if( plantasks == null || weeks != prevweeks )
+			plantasks = new PlanWeekIndex( taskindex, weeks );
 		
 		// clear the entire cache
-		idleTTLTotal = null;
-		idleTTL = new Double[ weeks ];
-		task_payments = new ObjectMap<Task, TTLScore>( );
-		netdist = new TTLDistribution[ weeks ];
+		idleTTLTotalValid = false;
+		idleTTL = new DoubleStore( weeks );
+		task_payments = new ScoreMemo<Task, TTLScore>( "Task payments", taskindex, taskindex.size( ) );
+		netdist = new ScoreMemo<TimePoint, TTLDistribution>( "Network TTL", null, weeks );
+		clearScores( );
 	}
 	
 	/**
@@ -148,10 +199,43 @@ public class GameDataCache implements GameInfoUpdateListener, JointPlanUpdateLis
 	public void onJointPlanSet( JointPlan jplan ) {
 		// invalidate all parts of the cache that are affected by the new joint
 		// plan
+		clearPlanScores( );
 		
-		// invalidate caches
-		netdist = new TTLDistribution[ weeks ];
-		task_payments = new ObjectMap<Task, TTLScore>( );
+		// and index the new plan
+		if( plantasks == null ) plantasks = new PlanWeekIndex( taskindex, weeks );
+		if( jplan != null ) plantasks.build( jplan );
+	}
+	
+	/**
+	 * Clears all memoized values that depend on the joint plan, the plan index
+	 * is kept
+	 */
+	protected void clearPlanScores( ) {
+		netdist = new ScoreMemo<TimePoint, TTLDistribution>( "Network TTL", null, weeks );
+		task_payments = new ScoreMemo<Task, TTLScore>( "Task payments", taskindex, taskindex.size( ) );
+		clearScores( );
+	}
+	
+	/**
+	 * Called when the game time of the joint plan changes, the realised part of
+	 * the scores may depend on it
+	 */
+	protected void onGameTimeSet( ) {
+		clearScores( );
+	}
+	
+	/**
+	 * Clears the player rankings and all memoized scores
+	 */
+	private void clearScores( ) {
+		profitrank = new ScoreRanking( playerindex, true );
+		ttlrank = new ScoreRanking( playerindex, false );
+		task_ttl = new ScoreMemo<Task, TTLScore>( "Task TTL", taskindex, taskindex.size( ) );
+		task_profits = new ScoreMemo<Task, PendingScore>( "Task profits", taskindex, taskindex.size( ) );
+		player_profits = new ScoreMemo<Player, TotalScore>( "Player profits", playerindex, playerindex.size( ) );
+		player_ttl = new ScoreMemo<Player, TotalScore>( "Player TTL", playerindex, playerindex.size( ) );
+		player_ttlrel = new ScoreMemo<Player, TotalScore>( "Player TTL (rel)", playerindex, playerindex.size( ) );
+		totalttl = new TotalScore[ 2 ];
 	}
 	
 	/**
@@ -176,10 +260,13 @@ public class GameDataCache implements GameInfoUpdateListener, JointPlanUpdateLis
 	 * @param time The time at which it was added
 	 */
 	private void invalidateAdd( TaskMethod method, TimePoint time ) {
-		task_payments.remove( method.getTask( ) );
+		// the new method is pending and may be delayed
+		final TimeSpan span = method.getSpan( time, DelayStatus.Pending, true );
+		plantasks.put( method.getTask( ), span );
+		invalidateScores( method.getTask( ) );
 		
 		// invalidate weeks that the method is planned in
-		invalidateSpan( method.getRegularSpan( time ) );
+		invalidateSpan( span );
 	}
 	
 	/**
@@ -190,11 +277,13 @@ public class GameDataCache implements GameInfoUpdateListener, JointPlanUpdateLis
 	 * @param newtime The newly chosen time
 	 */
 	private void invalidateChange( PlanTask prev, TaskMethod newmethod, TimePoint newtime ) {
-		task_payments.remove( newmethod.getTask( ) );
+		invalidateScores( newmethod.getTask( ) );
 
 		// invalidate both old and new spans
-		invalidateSpan( prev.getPeriod( true ) );		
-		invalidateSpan( newmethod.getSpan( newtime, prev.getDelayStatus( ), true ) );
+		final TimeSpan span = newmethod.getSpan( newtime, prev.getDelayStatus( ), true );
+		invalidateSpan( prev.getPeriod( true ) );
+		plantasks.put( newmethod.getTask( ), span );
+		invalidateSpan( span );
 	}
 	
 	/**
@@ -204,11 +293,13 @@ public class GameDataCache implements GameInfoUpdateListener, JointPlanUpdateLis
 	 * @param newtime The newly chosen time
 	 */
 	private void invalidateMove( PlanTask prev, TimePoint newtime ) {
-		task_payments.remove( prev.getTask( ) );
+		invalidateScores( prev.getTask( ) );
 
 		// invalidate both old and new spans
-		invalidateSpan( prev.getPeriod( true ) );		
-		invalidateSpan( prev.getMethod( ).getSpan( newtime, prev.getDelayStatus( ), true ) );
+		final TimeSpan span = prev.getMethod( ).getSpan( newtime, prev.getDelayStatus( ), true );
+		invalidateSpan( prev.getPeriod( true ) );
+		plantasks.put( prev.getTask( ), span );
+		invalidateSpan( span );
 	}
 	
 	/**
@@ -217,10 +308,11 @@ public class GameDataCache implements GameInfoUpdateListener, JointPlanUpdateLis
 	 * @param prev The previously planned method
 	 */
 	private void invalidateRemove( PlanTask prev ) {
-		task_payments.remove( prev.getTask( ) );
+		invalidateScores( prev.getTask( ) );
 		
 		// invalidate previous span
-		invalidateSpan( prev.getPeriod( true ) );				
+		invalidateSpan( prev.getPeriod( true ) );
+		plantasks.remove( prev.getTask( ) );
 	}
 	
 	/**
@@ -230,10 +322,11 @@ public class GameDataCache implements GameInfoUpdateListener, JointPlanUpdateLis
 	 * @param newdelay The new delay status
 	 */
 	private void invalidateDelay( PlanTask prev, DelayStatus newdelay ) {
-		task_payments.remove( prev.getTask( ) );
+		invalidateScores( prev.getTask( ) );
 
-		// invalidate delay part
-		invalidateSpan( prev.getPeriodDelayed( ) );			
+		// invalidate delay part, the task remains indexed in the delay weeks
+		plantasks.extend( prev.getTask( ), prev.getPeriodDelayed( ) );
+		invalidateSpan( prev.getPeriodDelayed( ) );
 	}
 	
 	/**
@@ -245,31 +338,59 @@ public class GameDataCache implements GameInfoUpdateListener, JointPlanUpdateLis
 		final List<TimePoint> weeks = span.toWeeks( );
 
 		for( TimePoint week : weeks ) {
-			try {
-				netdist[ week.getWeek( ) ] = null;
-			} catch( IndexOutOfBoundsException io ) {
-				// FIXME!!!
-			}
+			netdist.invalidate( week.getWeek( ) );
+			
+			// the network TTL of the tasks planned in the week has changed
+			for( Task task : plantasks.getTasks( week.getWeek( ) ) )
+				invalidateScores( task );
 		}
 	}
 	
-	/** @return The total idle TTL, null if not in cache */
-	protected Double getTTLIdleTotal( ) { hit( idleTTLTotal != null); return idleTTLTotal; }
+	/**
+	 * Invalidates the payments and scores of the task, its player and the
+	 * joint plan totals
+	 * 
+	 * @param task The task whose scores have changed
+	 */
+	private void invalidateScores( Task task ) {
+		final int tidx = taskindex.find( task );
+		task_payments.invalidate( tidx );
+		task_ttl.invalidate( tidx );
+		task_profits.invalidate( tidx );
+		
+		final Player p = task.getPlayer( );
+		profitrank.invalidate( p );
+		ttlrank.invalidate( p );
+		player_profits.invalidate( p );
+		player_ttl.invalidate( p );
+		player_ttlrel.invalidate( p );
+		totalttl[ 0 ] = null;
+		totalttl[ 1 ] = null;
+	}
+	
+	/** @return True if the total idle TTL is in cache */
+	protected boolean hasTTLIdleTotal( ) { hit( idleTTLTotalValid ); return idleTTLTotalValid; }
+	
+	/** @return The total idle TTL, only valid if in cache */
+	protected double getTTLIdleTotal( ) { return idleTTLTotal; }
 	
 	/** Sets the total idle TTL @param ttl The new idle TTL total */
-	protected void setTTLIdleTotal( double ttl ) { idleTTLTotal = new Double( ttl ); }
+	protected void setTTLIdleTotal( double ttl ) { idleTTLTotal = ttl; idleTTLTotalValid = true; }
 	
-	/** @return The idle TTL at time t, null if not in cache */
-	protected Double getTTLIdle( TimePoint time ) { hit( idleTTL[ time.getWeek( ) ] != null); return idleTTL[ time.getWeek( ) ]; }
+	/** @return True if the idle TTL at time t is in cache */
+	protected boolean hasTTLIdle( TimePoint time ) { final boolean valid = idleTTL.isValid( time.getWeek( ) ); hit( valid ); return valid; }
 	
-	/** Sets the total idle TTL @param ttl The new idle TTL total */
-	protected void setTTLIdle( TimePoint time, double ttl ) { idleTTL[ time.getWeek( ) ] = new Double( ttl ); }
+	/** @return The idle TTL at time t, only valid if in cache */
+	protected double getTTLIdle( TimePoint time ) { return idleTTL.get( time.getWeek( ) ); }
+	
+	/** Sets the idle TTL at time t @param time The time @param ttl The idle TTL */
+	protected void setTTLIdle( TimePoint time, double ttl ) { idleTTL.set( time.getWeek( ), ttl ); }
 	
 	/** @return The distribution of network TTL at the specified time */
-	protected TTLDistribution getAvgNetworkDist( TimePoint time ) { hit( netdist[ time.getWeek( ) ] != null); return netdist[ time.getWeek( ) ]; }
+	protected TTLDistribution getAvgNetworkDist( TimePoint time ) { return netdist.get( time.getWeek( ) ); }
 	
 	/** Sets the network TTL distribution @param time The time @param dist The distribution */
-	protected void setAvgNetworkDist( TimePoint time, TTLDistribution dist ) { netdist[ time.getWeek( ) ] = new TTLDistribution( dist ); }
+	protected void setAvgNetworkDist( TimePoint time, TTLDistribution dist ) { netdist.put( time.getWeek( ), new TTLDistribution( dist ) ); }
 
 	/**
 	 * Retrieve the payment for the specified planned task
@@ -278,9 +399,7 @@ public class GameDataCache implements GameInfoUpdateListener, JointPlanUpdateLis
 	 * @return The payments for the method at the given time
 	 */
 	public TTLScore getTaskPayment( PlanTask planned ) {
-		final TTLScore payments = task_payments.get( planned.getTask( ) );
-		hit( payments != null );
-		return payments;
+		return task_payments.get( planned.getTask( ) );
 	}
 	
 	/**
@@ -293,6 +412,42 @@ public class GameDataCache implements GameInfoUpdateListener, JointPlanUpdateLis
 		task_payments.put( planned.getTask( ), payment );
 	}
 	
+	/** @return The TTL of the task (not relative), null if not in cache */
+	protected TTLScore getTaskTTL( Task task ) { return task_ttl.get( task ); }
+	
+	/** Sets the TTL of the task @param task The task @param ttl The TTL (not relative) */
+	protected void setTaskTTL( Task task, TTLScore ttl ) { task_ttl.put( task, ttl ); }
+	
+	/** @return The profits of the task, null if not in cache */
+	protected PendingScore getTaskProfits( Task task ) { return task_profits.get( task ); }
+	
+	/** Sets the profits of the task @param task The task @param profits The profits */
+	protected void setTaskProfits( Task task, PendingScore profits ) { task_profits.put( task, profits ); }
+	
+	/** @return The total profits of the player, null if not in cache */
+	protected TotalScore getPlayerProfits( Player player ) { return player_profits.get( player ); }
+	
+	/** Sets the total profits of the player @param player The player @param profits The profits */
+	protected void setPlayerProfits( Player player, TotalScore profits ) { player_profits.put( player, profits ); }
+	
+	/** @return The total TTL of the player, null if not in cache */
+	protected TotalScore getPlayerTTL( Player player, boolean relative ) { return (relative ? player_ttlrel : player_ttl).get( player ); }
+	
+	/** Sets the total TTL of the player @param player The player @param relative True if relative to idle @param ttl The TTL */
+	protected void setPlayerTTL( Player player, boolean relative, TotalScore ttl ) { (relative ? player_ttlrel : player_ttl).put( player, ttl ); }
+	
+	/** @return The total TTL of the joint plan, null if not in cache */
+	protected TotalScore getTotalTTL( boolean relative ) { hit( totalttl[ relative ? 1 : 0 ] != null ); return totalttl[ relative ? 1 : 0 ]; }
+	
+	/** Sets the total TTL of the joint plan @param relative True if relative to idle @param ttl The TTL */
+	protected void setTotalTTL( boolean relative, TotalScore ttl ) { totalttl[ relative ? 1 : 0 ] = ttl; }
+	
+	/** @return The ranking of the players on best case profits */
+	protected ScoreRanking getProfitRanking( ) { return profitrank; }
+	
+	/** @return The ranking of the players on best case TTL */
+	protected ScoreRanking getTTLRanking( ) { return ttlrank; }
+	
 	/**
 	 * Updates the statistics based on the boolean value
 	 * 
@@ -311,5 +466,10 @@ public class GameDataCache implements GameInfoUpdateListener, JointPlanUpdateLis
 	private void debugStats( ) {
 		final double perc = (stats_hits + stats_misses > 0 ? ((double)stats_hits) / (double)(stats_hits + stats_misses) * 100 : 0);
 		ClientView.getInstance( ).debug( "Cache stats: " + stats_hits + " hits, " + stats_misses + " misses (" + perc + " %)" , false );
+		
+		// and the score memo statistics once the game is known
+		if( task_ttl == null ) return;
+		for( ScoreMemo<?, ?> memo : new ScoreMemo<?, ?>[] { netdist, task_payments, task_ttl, task_profits, player_profits, player_ttl, player_ttlrel } )
+			ClientView.getInstance( ).debug( "Cache stats, " + memo.getStats( ), false );
 	}
 }
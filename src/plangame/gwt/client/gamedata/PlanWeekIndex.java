@@ -0,0 +1,234 @@
+/**
+ * @file PlanWeekIndex.java
+ * @brief Short description of file
+ *
+ * This file is created at Almende B.V. It is open-source software and part of the Common
+ * Hybrid Agent Platform (CHAP). A toolbox with a lot of open-source tools, ranging from
+ * thread pools and TCP/IP components to control architectures and learning algorithms.
+ * This software is published under the GNU Lesser General Public license (LGPL).
+ *
+ * Copyright  2026 agent <agent@local>
+ *
+ * @author       agent
+ * @date         17 okt. 2026
+ * @project      NGI
+ * @company      Almende B.V.
+ */
+package plangame.gwt.client.gamedata;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import plangame.game.plans.JointPlan;
+import plangame.game.plans.PlanTask;
+import plangame.model.tasks.Task;
+import plangame.model.time.TimePoint;
+import plangame.model.time.TimeSpan;
+
+/**
+ * Index of the planned tasks per week of the game. The network TTL of a
+ * planned task, and therefore its payments and scores, depends on all tasks
+ * that are planned in the weeks of its period. The index gives these tasks
+ * for a changed span without going through the entire joint plan.
+ *
+ * The weeks of a task are its period including delay, the index is kept up to
+ * date by the cache from the joint plan changes. Copies of the index share the
+ * weeks until either is modified.
+ *
+ * @author agent
+ */
+public class PlanWeekIndex extends SharedStore {
+	/** The number of weeks in the game */
+	protected final int weeks;
+	
+	/** The numbering of the tasks */
+	protected final ScoreIndex<Task> index;
+	
+	/** The planned tasks per week */
+	protected List<List<Task>> tasks;
+	
+	/** The first and last indexed week per task number, -1 if not indexed */
+	protected int[] spans;
+	
+	/**
+	 * Creates a new empty index
+	 * 
+	 * @param index The numbering of the tasks
+	 * @param weeks The number of weeks in the game
+	 */
+	public PlanWeekIndex( ScoreIndex<Task> index, int weeks ) {
+		super( );
+		
+		this.index = index;
+		this.weeks = weeks;
+		
+		clear( );
+	}
+	
+	/**
+	 * Creates a copy of the index, the weeks are shared until either index is
+	 * modified
+	 * 
+	 * @param index The index to copy
+	 */
+	public PlanWeekIndex( PlanWeekIndex index ) {
+		super( index );
+		
+		this.index = index.index;
+		this.weeks = index.weeks;
+		
+		tasks = index.tasks;
+		spans = index.spans;
+	}
+	
+	/**
+	 * @see plangame.gwt.client.gamedata.SharedStore#copyData()
+	 */
+	@Override
+	protected void copyData( ) {
+		final List<List<Task>> t = new ArrayList<List<Task>>( weeks );
+		for( List<Task> wt : tasks )
+			t.add( new ArrayList<Task>( wt ) );
+		tasks = t;
+		spans = copyOf( spans, spans.length );
+	}
+	
+	/**
+	 * Removes all tasks from the index
+	 */
+	public void clear( ) {
+		tasks = new ArrayList<List<Task>>( weeks );
+		for( int i = 0; i < weeks; i++ )
+			tasks.add( new ArrayList<Task>( ) );
+		spans = new int[ 2 * Math.max( index.size( ), 1 ) ];
+		for( int i = 0; i < spans.length; i++ )
+			spans[ i ] = -1;
+		owned( );
+	}
+	
+	/**
+	 * Rebuilds the index from the joint plan
+	 * 
+	 * @param jplan The joint plan
+	 */
+	public void build( JointPlan jplan ) {
+		clear( );
+		
+		for( PlanTask pt : jplan.getPlanned( ) )
+			put( pt.getTask( ), pt.getPeriod( true ) );
+	}
+	
+	/**
+	 * Sets the span of the task in the index, replaces its previous span
+	 * 
+	 * @param task The task
+	 * @param span The span in which the task is planned, including delay
+	 */
+	public void put( Task task, TimeSpan span ) {
+		remove( task );
+		set( task, getWeeks( span ) );
+	}
+	
+	/**
+	 * Extends the span of the task in the index such that it also covers the
+	 * specified span
+	 * 
+	 * @param task The task
+	 * @param span The span to add
+	 */
+	public void extend( Task task, TimeSpan span ) {
+		final int[] prev = getSpan( index.find( task ) );
+		final int[] add = getWeeks( span );
+		if( add == null ) return;
+		if( prev == null ) {
+			set( task, add );
+			return;
+		}
+		
+		remove( task );
+		set( task, new int[] { Math.min( prev[0], add[0] ), Math.max( prev[1], add[1] ) } );
+	}
+	
+	/**
+	 * Adds the task to the weeks of the span
+	 * 
+	 * @param task The task, must not be in the index
+	 * @param span The first and last week or null if the task is not planned
+	 * within the game
+	 */
+	private void set( Task task, int[] span ) {
+		if( span == null ) return;
+		
+		modify( );
+		final int tidx = index.indexOf( task );
+		if( 2 * tidx >= spans.length ) {
+			final int len = spans.length;
+			spans = copyOf( spans, Math.max( 2 * tidx + 2, 2 * len ) );
+			for( int i = len; i < spans.length; i++ )
+				spans[ i ] = -1;
+		}
+		spans[ 2 * tidx ] = span[0];
+		spans[ 2 * tidx + 1 ] = span[1];
+		for( int w = span[0]; w <= span[1]; w++ )
+			tasks.get( w ).add( task );
+	}
+	
+	/**
+	 * @param tidx The task number
+	 * @return The first and last indexed week of the task or null if the task
+	 * is not in the index
+	 */
+	private int[] getSpan( int tidx ) {
+		if( tidx < 0 || 2 * tidx >= spans.length || spans[ 2 * tidx ] < 0 ) return null;
+		
+		return new int[] { spans[ 2 * tidx ], spans[ 2 * tidx + 1 ] };
+	}
+	
+	/**
+	 * Determines the weeks of the span that lie within the game
+	 * 
+	 * @param span The time span
+	 * @return The first and last week or null if the span lies outside the
+	 * game
+	 */
+	private int[] getWeeks( TimeSpan span ) {
+		int first = weeks;
+		int last = -1;
+		for( TimePoint week : span.toWeeks( ) ) {
+			final int w = week.getWeek( );
+			if( w < 0 || w >= weeks ) continue;
+			if( w < first ) first = w;
+			if( w > last ) last = w;
+		}
+		
+		return (last < first ? null : new int[] { first, last });
+	}
+	
+	/**
+	 * Removes the task from the index
+	 * 
+	 * @param task The task
+	 */
+	public void remove( Task task ) {
+		final int tidx = index.find( task );
+		final int[] span = getSpan( tidx );
+		if( span == null ) return;
+		
+		modify( );
+		spans[ 2 * tidx ] = -1;
+		spans[ 2 * tidx + 1 ] = -1;
+		for( int w = span[0]; w <= span[1]; w++ )
+			tasks.get( w ).remove( task );
+	}
+	
+	/**
+	 * @param week The week number
+	 * @return The tasks that are planned in the week, empty if the week is not
+	 * within the game
+	 */
+	public List<Task> getTasks( int week ) {
+		if( week < 0 || week >= weeks ) return new ArrayList<Task>( );
+		
+		return tasks.get( week );
+	}
+}
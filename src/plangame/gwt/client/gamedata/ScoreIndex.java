@@ -0,0 +1,72 @@
+/**
+ * @file ScoreIndex.java
+ * @brief Short description of file
+ *
+ * This file is created at Almende B.V. It is open-source software and part of the Common
+ * Hybrid Agent Platform (CHAP). A toolbox with a lot of open-source tools, ranging from
+ * thread pools and TCP/IP components to control architectures and learning algorithms.
+ * This software is published under the GNU Lesser General Public license (LGPL).
+ *
+ * Copyright  2026 agent <agent@local>
+ *
+ * @author       agent
+ * @date         17 okt. 2026
+ * @project      NGI
+ * @company      Almende B.V.
+ */
+package plangame.gwt.client.gamedata;
+
+import plangame.model.object.ObjectMap;
+
+/**
+ * Numbers the tasks or players of a game so that their scores can be stored
+ * in arrays. Keys are numbered when they are first stored and never removed,
+ * the index is therefore shared by all copies of the cache of a game.
+ *
+ * @author agent
+ * @param <K> The key type
+ */
+public class ScoreIndex<K> {
+	/** The number of every indexed key */
+	protected final ObjectMap<K, Integer> indices;
+	
+	/** The number of indexed keys */
+	protected int count;
+	
+	/**
+	 * Creates a new empty index
+	 */
+	public ScoreIndex( ) {
+		indices = new ObjectMap<K, Integer>( );
+		count = 0;
+	}
+	
+	/**
+	 * @param key The key
+	 * @return The number of the key, the key is numbered if it is new
+	 */
+	public int indexOf( K key ) {
+		final Integer idx = indices.get( key );
+		if( idx != null ) return idx;
+		
+		indices.put( key, count );
+		return count++;
+	}
+	
+	/**
+	 * @param key The key
+	 * @return The number of the key or -1 if it has not been numbered, in that
+	 * case no score of the key is stored
+	 */
+	public int find( K key ) {
+		final Integer idx = indices.get( key );
+		return (idx != null ? idx : -1);
+	}
+	
+	/**
+	 * @return The number of indexed keys
+	 */
+	public int size( ) {
+		return count;
+	}
+}
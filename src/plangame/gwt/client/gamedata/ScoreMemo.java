@@ -0,0 +1,168 @@
+/**
+ * @file ScoreMemo.java
+ * @brief Short description of file
+ *
+ * This file is created at Almende B.V. It is open-source software and part of the Common
+ * Hybrid Agent Platform (CHAP). A toolbox with a lot of open-source tools, ranging from
+ * thread pools and TCP/IP components to control architectures and learning algorithms.
+ * This software is published under the GNU Lesser General Public license (LGPL).
+ *
+ * Copyright  2026 agent <agent@local>
+ *
+ * @author       agent
+ * @date         17 okt. 2026
+ * @project      NGI
+ * @company      Almende B.V.
+ */
+package plangame.gwt.client.gamedata;
+
+/**
+ * Memoized scores by task, player or week. The cache drops the scores that are
+ * affected by a joint plan change, all other scores remain valid.
+ *
+ * The scores are stored in an array by the number of their key in the shared
+ * score index. Copies of the memo share the array until either is modified.
+ * The stored scores are shared with the callers and should not be modified.
+ *
+ * @author agent
+ * @param <K> The key type
+ * @param <V> The score type
+ */
+public class ScoreMemo<K, V> extends SharedStore {
+	/** The name of the memo in the cache statistics */
+	protected final String name;
+	
+	/** The numbering of the keys, null if the memo is only used by number */
+	protected final ScoreIndex<K> index;
+	
+	/** The memoized scores by key number */
+	protected Object[] values;
+	
+	/** Number of memo hits */
+	protected long hits;
+	
+	/** Number of memo misses */
+	protected long misses;
+	
+	/**
+	 * Creates a new empty memo
+	 * 
+	 * @param name The name of the memo in the cache statistics
+	 * @param index The numbering of the keys, null if the memo is only used by
+	 * number
+	 * @param size The initial number of scores, the memo grows if required
+	 */
+	public ScoreMemo( String name, ScoreIndex<K> index, int size ) {
+		super( );
+		
+		this.name = name;
+		this.index = index;
+		hits = 0;
+		misses = 0;
+		
+		values = new Object[ Math.max( size, 1 ) ];
+	}
+	
+	/**
+	 * Creates a copy of the memo, the scores are shared until either memo is
+	 * modified and the statistics are not copied
+	 * 
+	 * @param memo The memo to copy
+	 */
+	public ScoreMemo( ScoreMemo<K, V> memo ) {
+		super( memo );
+		
+		name = memo.name;
+		index = memo.index;
+		hits = 0;
+		misses = 0;
+		
+		values = memo.values;
+	}
+	
+	/**
+	 * @see plangame.gwt.client.gamedata.SharedStore#copyData()
+	 */
+	@Override
+	protected void copyData( ) {
+		values = copyOf( values, values.length );
+	}
+	
+	/**
+	 * @param key The key
+	 * @return The memoized score or null if it is not known
+	 */
+	public V get( K key ) {
+		return get( index.find( key ) );
+	}
+	
+	/**
+	 * @param number The number of the key
+	 * @return The memoized score or null if it is not known
+	 */
+	@SuppressWarnings("unchecked")
+	public V get( int number ) {
+		final V value = (number >= 0 && number < values.length ? (V)values[ number ] : null);
+		if( value != null )
+			hits++;
+		else
+			misses++;
+		
+		return value;
+	}
+	
+	/**
+	 * Stores the score
+	 * 
+	 * @param key The key
+	 * @param value The score
+	 */
+	public void put( K key, V value ) {
+		put( index.indexOf( key ), value );
+	}
+	
+	/**
+	 * Stores the score
+	 * 
+	 * @param number The number of the key
+	 * @param value The score
+	 */
+	public void put( int number, V value ) {
+		modify( );
+		
+		// grow to fit the number
+		if( number >= values.length )
+			values = copyOf( values, Math.max( number + 1, values.length * 2 ) );
+		
+		values[ number ] = value;
+	}
+	
+	/**
+	 * Removes the score of the key
+	 * 
+	 * @param key The key
+	 */
+	public void invalidate( K key ) {
+		invalidate( index.find( key ) );
+	}
+	
+	/**
+	 * Removes the score of the key
+	 * 
+	 * @param number The number of the key
+	 */
+	public void invalidate( int number ) {
+		if( number < 0 || number >= values.length || values[ number ] == null ) return;
+		
+		modify( );
+		values[ number ] = null;
+	}
+	
+	/**
+	 * @return The memo statistics
+	 */
+	public String getStats( ) {
+		final double perc = (hits + misses > 0 ? ((double)hits) / (double)(hits + misses) * 100 : 0);
+		return name + ": " + hits + " hits, " + misses + " misses (" + perc + " %)";
+	}
+}
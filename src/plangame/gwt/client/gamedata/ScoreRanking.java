@@ -0,0 +1,208 @@
+/**
+ * @file ScoreRanking.java
+ * @brief Short description of file
+ *
+ * This file is created at Almende B.V. It is open-source software and part of the Common
+ * Hybrid Agent Platform (CHAP). A toolbox with a lot of open-source tools, ranging from
+ * thread pools and TCP/IP components to control architectures and learning algorithms.
+ * This software is published under the GNU Lesser General Public license (LGPL).
+ *
+ * Copyright  2026 agent <agent@local>
+ *
+ * @author       agent
+ * @date         17 okt. 2026
+ * @project      NGI
+ * @company      Almende B.V.
+ */
+package plangame.gwt.client.gamedata;
+
+import plangame.game.player.Player;
+
+/**
+ * Ranking of the players on a single score. The scores of the players are
+ * kept in rank order so that the rank of a player is found by a binary search
+ * and updating the score of one player does not require the other scores.
+ * The cache invalidates the players that are affected by a plan change, only
+ * those have to be recomputed.
+ *
+ * Copies of the ranking share the scores until either is modified.
+ *
+ * @author agent
+ */
+public class ScoreRanking extends SharedStore {
+	/** True if a higher score is ranked higher */
+	protected final boolean highfirst;
+	
+	/** The numbering of the players */
+	protected final ScoreIndex<Player> players;
+	
+	/** The known score per player number */
+	protected DoubleStore scores;
+	
+	/** The rank keys of the known scores in rank order, see key */
+	protected double[] ranked;
+	
+	/** The number of known scores */
+	protected int count;
+	
+	/**
+	 * Creates a new empty ranking
+	 * 
+	 * @param players The numbering of the players
+	 * @param highfirst True if a higher score is ranked higher
+	 */
+	public ScoreRanking( ScoreIndex<Player> players, boolean highfirst ) {
+		super( );
+		
+		this.players = players;
+		this.highfirst = highfirst;
+		
+		scores = new DoubleStore( players.size( ) );
+		ranked = new double[ 8 ];
+		count = 0;
+	}
+	
+	/**
+	 * Creates a copy of the ranking, the scores are shared until either
+	 * ranking is modified
+	 * 
+	 * @param ranking The ranking to copy
+	 */
+	public ScoreRanking( ScoreRanking ranking ) {
+		super( ranking );
+		
+		this.players = ranking.players;
+		this.highfirst = ranking.highfirst;
+		
+		scores = new DoubleStore( ranking.scores );
+		ranked = ranking.ranked;
+		count = ranking.count;
+	}
+	
+	/**
+	 * @see plangame.gwt.client.gamedata.SharedStore#copyData()
+	 */
+	@Override
+	protected void copyData( ) {
+		ranked = copyOf( ranked, ranked.length );
+	}
+	
+	/**
+	 * Removes all scores from the ranking
+	 */
+	public void clear( ) {
+		scores.clear( );
+		ranked = new double[ 8 ];
+		count = 0;
+		owned( );
+	}
+	
+	/**
+	 * @return The number of players with a known score
+	 */
+	public int size( ) {
+		return count;
+	}
+	
+	/**
+	 * @param player The player
+	 * @return True if the score of the player is known
+	 */
+	public boolean isRanked( Player player ) {
+		return scores.isValid( players.find( player ) );
+	}
+	
+	/**
+	 * Sets the score of the player
+	 * 
+	 * @param player The player
+	 * @param score The score of the player
+	 */
+	public void setScore( Player player, double score ) {
+		final int pidx = players.indexOf( player );
+		invalidate( pidx );
+		
+		modify( );
+		scores.set( pidx, score );
+		
+		// insert the key at its position in rank order
+		final double key = key( score );
+		final int idx = find( key );
+		if( count == ranked.length )
+			ranked = copyOf( ranked, ranked.length * 2 );
+		System.arraycopy( ranked, idx, ranked, idx + 1, count - idx );
+		ranked[ idx ] = key;
+		count++;
+	}
+	
+	/**
+	 * Removes the score of the player from the ranking
+	 * 
+	 * @param player The player
+	 */
+	public void invalidate( Player player ) {
+		invalidate( players.find( player ) );
+	}
+	
+	/**
+	 * Removes the score of the player from the ranking
+	 * 
+	 * @param pidx The number of the player
+	 */
+	private void invalidate( int pidx ) {
+		if( !scores.isValid( pidx ) ) return;
+		
+		final double score = scores.get( pidx );
+		modify( );
+		scores.invalidate( pidx );
+		
+		// remove one of the keys equal to the score, all are interchangeable
+		final int idx = find( key( score ) );
+		System.arraycopy( ranked, idx + 1, ranked, idx, count - idx - 1 );
+		count--;
+	}
+	
+	/**
+	 * Determines the rank of the player, the player with the best score has
+	 * rank 1 and equal scores share the same rank.
+	 * 
+	 * @param player The player
+	 * @return The rank of the player amongst the players with a known score
+	 * or -1 if the score of the player is not known
+	 */
+	public int getRank( Player player ) {
+		final int pidx = players.find( player );
+		if( !scores.isValid( pidx ) ) return -1;
+		
+		return find( key( scores.get( pidx ) ) ) + 1;
+	}
+	
+	/**
+	 * Converts the score into its rank key, the keys are ordered ascending
+	 * 
+	 * @param score The score
+	 * @return The key
+	 */
+	private double key( double score ) {
+		return (highfirst ? -score : score);
+	}
+	
+	/**
+	 * Binary search for the key in the ranked keys
+	 * 
+	 * @param key The key to search
+	 * @return The index of the first key that is not smaller than the key
+	 */
+	private int find( double key ) {
+		int lo = 0;
+		int hi = count;
+		while( lo < hi ) {
+			final int mid = (lo + hi) >>> 1;
+			if( ranked[ mid ] < key )
+				lo = mid + 1;
+			else
+				hi = mid;
+		}
+		return lo;
+	}
+}
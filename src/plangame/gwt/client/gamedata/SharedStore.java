@@ -0,0 +1,124 @@
+/**
+ * @file SharedStore.java
+ * @brief Short description of file
+ *
+ * This file is created at Almende B.V. It is open-source software and part of the Common
+ * Hybrid Agent Platform (CHAP). A toolbox with a lot of open-source tools, ranging from
+ * thread pools and TCP/IP components to control architectures and learning algorithms.
+ * This software is published under the GNU Lesser General Public license (LGPL).
+ *
+ * Copyright  2026 agent <agent@local>
+ *
+ * @author       agent
+ * @date         17 okt. 2026
+ * @project      NGI
+ * @company      Almende B.V.
+ */
+package plangame.gwt.client.gamedata;
+
+/**
+ * Base class of the cache stores that are shared between copies of the game
+ * data. A copy only refers to the data of the store it copies, the data is
+ * copied by the first modification of either store. Copying the game data for
+ * a dialog is therefore cheap as long as the copy is only read.
+ *
+ * Subclasses call modify before every change of their data and detach their
+ * data in copyData.
+ *
+ * @author agent
+ */
+public abstract class SharedStore {
+	/** True if the data of the store may be referred to by other stores */
+	private boolean shared;
+	
+	/**
+	 * Creates a new store that owns its data
+	 */
+	protected SharedStore( ) {
+		shared = false;
+	}
+	
+	/**
+	 * Creates a store that shares its data with the specified store, the
+	 * subclass refers to the data of the store
+	 * 
+	 * @param store The store to share the data with
+	 */
+	protected SharedStore( SharedStore store ) {
+		store.shared = true;
+		shared = true;
+	}
+	
+	/**
+	 * Makes sure the store owns its data before it is modified, copies the
+	 * data if it is shared
+	 */
+	protected final void modify( ) {
+		if( !shared ) return;
+		
+		copyData( );
+		shared = false;
+	}
+	
+	/**
+	 * Marks the data as owned by the store, to be called when the subclass has
+	 * replaced all its data by new data
+	 */
+	protected final void owned( ) {
+		shared = false;
+	}
+	
+	/**
+	 * @return True if the data is shared with other stores
+	 */
+	public boolean isShared( ) {
+		return shared;
+	}
+	
+	/**
+	 * Replaces the shared data of the store by a private copy
+	 */
+	protected abstract void copyData( );
+	
+	/**
+	 * Copies the first elements of the array into a new array
+	 * 
+	 * @param array The array to copy
+	 * @param length The length of the new array, at least the length of the
+	 * array
+	 * @return The new array
+	 */
+	protected static double[] copyOf( double[] array, int length ) {
+		final double[] copy = new double[ length ];
+		System.arraycopy( array, 0, copy, 0, array.length );
+		return copy;
+	}
+	
+	/**
+	 * Copies the first elements of the array into a new array
+	 * 
+	 * @param array The array to copy
+	 * @param length The length of the new array, at least the length of the
+	 * array
+	 * @return The new array
+	 */
+	protected static int[] copyOf( int[] array, int length ) {
+		final int[] copy = new int[ length ];
+		System.arraycopy( array, 0, copy, 0, array.length );
+		return copy;
+	}
+	
+	/**
+	 * Copies the first elements of the array into a new array
+	 * 
+	 * @param array The array to copy
+	 * @param length The length of the new array, at least the length of the
+	 * array
+	 * @return The new array
+	 */
+	protected static Object[] copyOf( Object[] array, int length ) {
+		final Object[] copy = new Object[ length ];
+		System.arraycopy( array, 0, copy, 0, array.length );
+		return copy;
+	}
+}
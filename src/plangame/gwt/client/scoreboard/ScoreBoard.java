@@ -16,6 +16,7 @@
  */
 package plangame.gwt.client.scoreboard;
 
+import plangame.game.plans.PlanChange;
 import plangame.game.player.Player;
 import plangame.gwt.client.ClientViewUI;
 import plangame.gwt.client.gameview.GameView;
@@ -31,6 +32,7 @@ import plangame.gwt.shared.events.AssignPortfolioEvent;
 import plangame.gwt.shared.events.Event;
 import plangame.gwt.shared.events.ExecutedEvent;
 import plangame.gwt.shared.events.JoinEvent;
+import plangame.gwt.shared.events.PlanChangeBatchEvent;
 import plangame.gwt.shared.events.PlanChangeEvent;
 import plangame.gwt.shared.gameresponse.RestoreResponse;
 import plangame.gwt.shared.state.GameServerInfo;
@@ -142,6 +144,13 @@ public class ScoreBoard extends GameView {
 			return true;
 		}
 		
+		// a batch of joint plan changes, apply them in order
+		if( event instanceof PlanChangeBatchEvent ) {
+			for( PlanChange change : ((PlanChangeBatchEvent) event).getChanges( ) )
+				getGameData( ).changeJointPlan( change, false );
+			return true;
+		}
+		
 		// all plans have been submitted, update the scores
 		if( event instanceof AcceptEvent ) {
 			// refresh the score table
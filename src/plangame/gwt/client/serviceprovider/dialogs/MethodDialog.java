@@ -195,15 +195,13 @@ public class MethodDialog extends ObjectDialog<PlanChange> {
 		// set mode
 		this.mode = mode;
 		this.player = player;
-		this.gamedata = gamedata.dataCopy( );
+		// the dialog changes the plan of its copy, so it gets its own plan
+		this.gamedata = gamedata.dataCopy( false );
 		this.shownetwork = gamedata.getJointPlan( ).anyOtherPlanned( player );
 		
-		// register map & plot controls for updates from this client game data
-		getGameData( ).addUpdateListener( wdMap );
-		wdMap.setGameData( getGameData( ) );
+		// the map and plot controls are registered once the plan for comparison
+		// is set up
 		wdPlot.setDisplayRelative( relative );
-		getGameData( ).addUpdateListener( wdPlot );
-		wdPlot.setGameData( getGameData( ) );				
 		
 		// add event listener to the task list
 		lstTasks.addValueChangeHandler( new ValueChangeHandler<Task>( ) {
@@ -255,16 +253,19 @@ public class MethodDialog extends ObjectDialog<PlanChange> {
 		this( Lang.text.MethodDialog_AddTask( ), DialogMode.Add, player, gamedata, relative, handler );
 		
 		// get all unplanned tasks
-		final JointPlan jplan = new JointPlan( getGameData( ).getJointPlan( ) );
+		final JointPlan jplan = getGameData( ).getJointPlan( );
 		final List<Task> tasks = jplan.getUnplannedTasks( player );
 		
 		// mark all already planned methods in the plot
-		wdPlot.setMarked( jplan.getPlanned( player ) );
+		final List<PlanTask> marked = new ArrayList<PlanTask>( jplan.getPlanned( player ) );
+		wdPlot.setMarked( marked );
 		
-		// remove all other methods from the player from the plan to have a fair comparison
-		for( PlanTask pt : jplan.getPlanned( player ) )
-			jplan.applyChange( PlanChange.remove( pt ), false );
-		getGameData( ).setJointPlan( jplan );
+		// remove all other methods from the player from the plan to have a fair
+		// comparison, as plan changes such that the copied cache is only updated
+		// for the affected tasks and weeks
+		for( PlanTask pt : marked )
+			getGameData( ).changeJointPlan( PlanChange.remove( pt ), false );
+		initControls( );
 		
 		// fill task list
 		lstTasks.clear( );
@@ -287,14 +288,13 @@ public class MethodDialog extends ObjectDialog<PlanChange> {
 		
 		// remove all other methods for fair comparison (but mark them in the plot)
 		final List<PlanTask> marked = new ArrayList<PlanTask>( );
-		final JointPlan jplan = new JointPlan( getGameData( ).getJointPlan( ) );
-		for( PlanTask pt : jplan.getPlanned( player ) )
-			if( !pt.equalsMethod( ptask ) ) {
-				jplan.applyChange( PlanChange.remove( pt ), false );
+		for( PlanTask pt : getGameData( ).getJointPlan( ).getPlanned( player ) )
+			if( !pt.equalsMethod( ptask ) )
 				marked.add( pt );
-			}
 		wdPlot.setMarked( marked );
-		getGameData( ).setJointPlan( jplan );
+		for( PlanTask pt : marked )
+			getGameData( ).changeJointPlan( PlanChange.remove( pt ), false );
+		initControls( );
 		
 		// store current plan task
 		this.currplanned = ptask;
@@ -308,6 +308,20 @@ public class MethodDialog extends ObjectDialog<PlanChange> {
 		this.showedit = showedit;
 	}
 	
+	/**
+	 * Registers the map and plot controls for updates from this client game
+	 * data and shows the plan used for comparison. Called after the other
+	 * methods of the player are removed, so that the controls are not redrawn
+	 * for each of them
+	 */
+	private void initControls( ) {
+		getGameData( ).addUpdateListener( wdMap );
+		wdMap.setGameData( getGameData( ) );
+		getGameData( ).addUpdateListener( wdPlot );
+		wdPlot.setGameData( getGameData( ) );
+		getGameData( ).notifyListener( wdPlot );
+	}
+	
 	/**
 	 * @see plangame.gwt.client.widgets.dialogs.Dialog#initProvided()
 	 */
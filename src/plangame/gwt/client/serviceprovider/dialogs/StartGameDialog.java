@@ -74,7 +74,7 @@ public class StartGameDialog extends Dialog {
 		
 		this.gamedata.addUpdateListener( wdMap );
 		wdMap.setGameData( this.gamedata );
-		this.gamedata.notifyListeners( );
+		this.gamedata.notifyListener( wdMap );
 	}
 	
 	/**
@@ -118,4 +118,15 @@ public class StartGameDialog extends Dialog {
 	protected void close( ClickEvent e ) {
 		hide( );
 	}
+	
+	/**
+	 * @see plangame.gwt.client.widgets.dialogs.Dialog#hide()
+	 */
+	@Override
+	public void hide( ) {
+		super.hide( );
+		
+		// the copy of the game data is no longer read
+		gamedata.release( );
+	}
 }
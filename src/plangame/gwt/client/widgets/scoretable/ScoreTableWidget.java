@@ -33,6 +33,9 @@ import plangame.gwt.client.widgets.listeners.TTLWidget;
 import plangame.model.object.ObjectMap;
 import plangame.model.tasks.Portfolio;
 
+import com.google.gwt.core.client.Scheduler;
+import com.google.gwt.core.client.Scheduler.ScheduledCommand;
+
 /**
  * Widget that can be used to display scores
  *
@@ -51,6 +54,9 @@ public class ScoreTableWidget extends BasicWidget implements JointPlanUpdateList
 	/** Update data on every change or only on key moments */
 	protected boolean updateLive;
 	
+	/** True if a live refresh is scheduled but not yet performed */
+	protected boolean refreshPending;
+	
 	/** Sort table based on score rank */
 	protected boolean sortOnRank;
 	
@@ -311,8 +317,16 @@ public class ScoreTableWidget extends BasicWidget implements JointPlanUpdateList
 	 */
 	@Override
 	public void onJointPlanChange( PlanChange change, boolean validated ) {
-		// only update data 
-		if( isUpdateLive( ) )
-			getData( ).refresh( );
+		// only update data, a burst of changes results in a single refresh
+		if( !isUpdateLive( ) || refreshPending ) return;
+		
+		refreshPending = true;
+		Scheduler.get( ).scheduleDeferred( new ScheduledCommand( ) {
+			@Override
+			public void execute( ) {
+				refreshPending = false;
+				getData( ).refresh( );
+			}
+		} );
 	}
 }
@@ -0,0 +1,128 @@
+/**
+ * @file EventBroadcastBenchmark.java
+ * @brief Short description of file
+ *
+ * This file is created at Almende B.V. It is open-source software and part of the Common
+ * Hybrid Agent Platform (CHAP). A toolbox with a lot of open-source tools, ranging from
+ * thread pools and TCP/IP components to control architectures and learning algorithms.
+ * This software is published under the GNU Lesser General Public license (LGPL).
+ *
+ * Copyright  2026 agent <agent@local>
+ *
+ * @author       agent
+ * @date         17 okt. 2026
+ * @project      NGI
+ * @company      Almende B.V.
+ */
+package plangame.gwt.server;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import plangame.gwt.server.config.ServerConfig;
+import plangame.gwt.server.events.EventManager;
+import plangame.gwt.server.log.Logger;
+import plangame.gwt.shared.LogType;
+import plangame.gwt.shared.clients.Client;
+import plangame.gwt.shared.clients.Client.ClientType;
+import plangame.gwt.shared.events.DisconnectEvent;
+import plangame.gwt.shared.events.DisconnectEvent.DisconnectReason;
+import plangame.model.object.BasicID;
+
+/**
+ * Benchmark of the cost of broadcasting an event to all clients, with event
+ * logging enabled and disabled. Each broadcast fires the event for every
+ * client and then retrieves the pending events of every client, as the
+ * listen requests would.
+ *
+ * @author agent
+ */
+public class EventBroadcastBenchmark {
+	/** Number of clients to broadcast to */
+	private final static int CLIENTS = 30;
+	
+	/** Number of broadcasts per measurement */
+	private final static int BROADCASTS = 20000;
+	
+	/** Number of measurements before the reported one, to warm up the JIT */
+	private final static int WARMUP_RUNS = 3;
+	
+	/**
+	 * Runs the benchmark with logging off and on
+	 * 
+	 * @param args Optionally the directory to write the benchmark log to
+	 */
+	public static void main( String[] args ) {
+		final String logdir = (args.length > 0 ? args[ 0 ] : System.getProperty( "java.io.tmpdir" ));
+		
+		try {
+			System.out.println( "logging\tbroadcast (us)\tper client (ns)" );
+			report( "off", run( null ) );
+			
+			final File logfile = File.createTempFile( "broadcast", ".log", new File( logdir ) );
+			logfile.deleteOnExit( );
+			report( "on", run( logfile.getAbsolutePath( ) ) );
+		} catch( IOException ioe ) {
+			System.err.println( "Failed to create log file: " + ioe.getMessage( ) );
+		} catch( Exception e ) {
+			System.err.println( "Error while running benchmark:" );
+			e.printStackTrace( );
+		}
+	}
+	
+	/**
+	 * Prints the result of a run
+	 * 
+	 * @param logging The logging description
+	 * @param nanos The average time per broadcast in nanoseconds
+	 */
+	private static void report( String logging, double nanos ) {
+		System.out.println( logging + "\t" + String.format( "%.2f", nanos / 1000 ) + "\t" + String.format( "%.1f", nanos / CLIENTS ) );
+	}
+	
+	/**
+	 * Runs the benchmark
+	 * 
+	 * @param logfile The file to log all messages to, null to disable logging
+	 * @return The average time per broadcast in nanoseconds
+	 * @throws Exception if the benchmark failed to set up
+	 */
+	private static double run( String logfile ) throws Exception {
+		// set up a server without servlet context
+		Server.eventmanager = new EventManager( );
+		Server.logger = (logfile != null ? new Logger( logfile ) : null);
+		final Server server = new Server( BasicID.makeValidID( "Benchmark" ), "Benchmark", new ServerConfig( ) );
+		
+		// connect the clients
+		final List<Client> clients = new ArrayList<Client>( CLIENTS );
+		for( int i = 0; i < CLIENTS; i++ ) {
+			final Client c = server.clientmanager.newClient( ClientType.ServiceProvider );
+			Server.eventmanager.addClient( c );
+			clients.add( c );
+		}
+		
+		double result = 0;
+		for( int r = 0; r <= WARMUP_RUNS; r++ ) {
+			final long start = System.nanoTime( );
+			for( int b = 0; b < BROADCASTS; b++ ) {
+				for( Client c : clients )
+					Server.eventmanager.fireEvent( server.getID( ), c, new DisconnectEvent( c.getID( ), DisconnectReason.Restart ) );
+				for( Client c : clients )
+					Server.eventmanager.listen( c );
+			}
+			result = (System.nanoTime( ) - start) / (double)BROADCASTS;
+		}
+		
+		// shut down
+		Server.eventmanager.stop( );
+		server.clientmanager.stop( );
+		if( Server.logger != null ) {
+			Server.logger.log( "Benchmark", "Benchmark finished", LogType.Info );
+			Server.logger.close( );
+		}
+		
+		return result;
+	}
+}
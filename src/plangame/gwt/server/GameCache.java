@@ -0,0 +1,298 @@
+/**
+ * @file GameCache.java
+ * @brief Short description of file
+ *
+ * This file is created at Almende B.V. It is open-source software and part of the Common
+ * Hybrid Agent Platform (CHAP). A toolbox with a lot of open-source tools, ranging from
+ * thread pools and TCP/IP components to control architectures and learning algorithms.
+ * This software is published under the GNU Lesser General Public license (LGPL).
+ *
+ * Copyright  2026 agent <agent@local>
+ *
+ * @author       agent
+ * @date         17 okt. 2026
+ * @project      NGI
+ * @company      Almende B.V.
+ */
+package plangame.gwt.server;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.NotSerializableException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import plangame.game.Game;
+import plangame.model.object.BasicID;
+import plangame.util.gameparser.GameParser;
+
+/**
+ * Cache of parsed game definitions. A game file is parsed once and stored in
+ * serialised form, every read returns a fresh copy of the game that can be
+ * modified freely. Entries are keyed by the game file path, the modification
+ * time and size of every file in the game folder, so a game is parsed again
+ * if any of its files (tasks, infrastructure, TTL or portfolio files) has
+ * changed. The game ID is assigned while parsing, the copies are given the
+ * requested ID when they are deserialised. Creating game servers for the
+ * same game and replaying its traces therefore do not parse the game files.
+ *
+ * If the game cannot be serialised, the cache falls back to parsing the game
+ * on every read.
+ *
+ * @author agent
+ */
+public class GameCache {
+	/** Maximal number of cached game definitions */
+	public final static int MAX_ENTRIES = 16;
+	
+	/** The shared cache instance */
+	private final static GameCache instance = new GameCache( MAX_ENTRIES );
+	
+	/** The cache entries in order of last use */
+	protected final Map<String, Entry> entries;
+	
+	/** Number of reads served from the cache */
+	protected long hits;
+	
+	/** Number of reads that required parsing */
+	protected long misses;
+	
+	/**
+	 * Creates a new game cache
+	 * 
+	 * @param maxentries The maximal number of cached game definitions
+	 */
+	@SuppressWarnings("serial")
+	public GameCache( final int maxentries ) {
+		entries = new LinkedHashMap<String, Entry>( 16, 0.75f, true ) {
+			@Override
+			protected boolean removeEldestEntry( Map.Entry<String, Entry> eldest ) {
+				return size( ) > maxentries;
+			}
+		};
+	}
+	
+	/**
+	 * @return The shared game cache
+	 */
+	public static GameCache getInstance( ) {
+		return instance;
+	}
+	
+	/**
+	 * Reads the game using the parser, the game is only parsed if it is not
+	 * cached for the game file
+	 * 
+	 * @param parser The game parser
+	 * @param ID The game ID
+	 * @return A new copy of the game
+	 * @throws Exception if the game could not be parsed
+	 */
+	public Game read( GameParser parser, BasicID ID ) throws Exception {
+		final String key = getKey( parser.getInputFile( ) );
+		
+		// no key if the file cannot be found, let the parser deal with it
+		if( key == null ) {
+			synchronized( this ) { misses++; }
+			return parser.read( ID );
+		}
+		
+		Entry entry;
+		synchronized( this ) {
+			entry = entries.get( key );
+			if( entry == null ) {
+				entry = new Entry( );
+				entries.put( key, entry );
+			}
+		}
+		
+		return entry.read( parser, ID );
+	}
+	
+	/**
+	 * Removes all cached game definitions
+	 */
+	public synchronized void clear( ) {
+		entries.clear( );
+	}
+	
+	/**
+	 * @return Statistics of the cache usage
+	 */
+	public synchronized String getStats( ) {
+		return "Game cache: " + entries.size( ) + " entries, " + hits + " hits, " + misses + " misses";
+	}
+	
+	/**
+	 * Builds the cache key of the game file. The parser reads the other files
+	 * of the game from the folder of the game file, the key therefore contains
+	 * the modification time and size of all files in that folder.
+	 * 
+	 * @param gamefile The game file path
+	 * @return The key or null if the file does not exist
+	 */
+	protected String getKey( String gamefile ) {
+		File f = new File( gamefile );
+		if( !f.isFile( ) ) return null;
+		
+		try {
+			f = f.getCanonicalFile( );
+		} catch( IOException ioe ) {
+			f = f.getAbsoluteFile( );
+		}
+		
+		final StringBuilder key = new StringBuilder( f.getPath( ) );
+		final File dir = f.getParentFile( );
+		if( dir != null )
+			appendFiles( key, dir, "" );
+		else
+			key.append( "|" ).append( f.lastModified( ) ).append( ":" ).append( f.length( ) );
+		
+		return key.toString( );
+	}
+	
+	/**
+	 * Appends the name, modification time and size of all files in the folder
+	 * and its sub folders to the key
+	 * 
+	 * @param key The key
+	 * @param dir The folder
+	 * @param prefix The path of the folder relative to the game folder
+	 */
+	private static void appendFiles( StringBuilder key, File dir, String prefix ) {
+		final File[] files = dir.listFiles( );
+		if( files == null ) return;
+		
+		Arrays.sort( files );
+		for( File f : files ) {
+			if( f.isDirectory( ) )
+				appendFiles( key, f, prefix + f.getName( ) + "/" );
+			else
+				key.append( "|" ).append( prefix ).append( f.getName( ) ).append( ":" ).append( f.lastModified( ) ).append( ":" ).append( f.length( ) );
+		}
+	}
+	
+	/**
+	 * Cached game definition
+	 */
+	protected class Entry {
+		/** The serialised game, null if not parsed yet */
+		private byte[] game;
+		
+		/** The ID the cached game was parsed with */
+		private BasicID gameID;
+		
+		/** True if the game cannot be serialised */
+		private boolean uncacheable;
+		
+		/**
+		 * Creates a new empty entry
+		 */
+		protected Entry( ) {
+			game = null;
+			gameID = null;
+			uncacheable = false;
+		}
+		
+		/**
+		 * Returns a copy of the cached game, parses the game first if required.
+		 * Concurrent reads of the same entry wait for the first one to parse it.
+		 * 
+		 * @param parser The game parser
+		 * @param ID The game ID
+		 * @return A new copy of the game
+		 * @throws Exception if the game could not be parsed
+		 */
+		protected synchronized Game read( GameParser parser, BasicID ID ) throws Exception {
+			if( game != null ) {
+				synchronized( GameCache.this ) { hits++; }
+				return copy( ID );
+			}
+			
+			synchronized( GameCache.this ) { misses++; }
+			final Game g = parser.read( ID );
+			if( !uncacheable ) {
+				try {
+					game = serialise( g );
+					gameID = ID;
+				} catch( NotSerializableException nse ) {
+					uncacheable = true;
+				}
+			}
+			
+			return g;
+		}
+		
+		/**
+		 * Deserialises a new copy of the cached game with the specified ID
+		 * 
+		 * @param ID The game ID of the copy
+		 * @return A new copy of the cached game
+		 * @throws Exception if the game could not be deserialised
+		 */
+		private Game copy( BasicID ID ) throws Exception {
+			final ObjectInputStream in = new IDInputStream( new ByteArrayInputStream( game ), gameID, ID );
+			try {
+				return (Game) in.readObject( );
+			} finally {
+				in.close( );
+			}
+		}
+		
+		/**
+		 * Serialises the game
+		 * 
+		 * @param g The game
+		 * @return The serialised game
+		 * @throws IOException if the game cannot be serialised
+		 */
+		private byte[] serialise( Game g ) throws IOException {
+			final ByteArrayOutputStream bytes = new ByteArrayOutputStream( );
+			final ObjectOutputStream out = new ObjectOutputStream( bytes );
+			out.writeObject( g );
+			out.close( );
+			return bytes.toByteArray( );
+		}
+	}
+	
+	/**
+	 * Object input stream that replaces the game ID of the serialised game by
+	 * the ID of the copy
+	 */
+	private static class IDInputStream extends ObjectInputStream {
+		/** The ID the game was parsed with */
+		private final BasicID from;
+		
+		/** The ID of the copy */
+		private final BasicID to;
+		
+		/**
+		 * Creates a new input stream
+		 * 
+		 * @param in The serialised game
+		 * @param from The ID the game was parsed with
+		 * @param to The ID of the copy
+		 * @throws IOException if the stream header cannot be read
+		 */
+		protected IDInputStream( InputStream in, BasicID from, BasicID to ) throws IOException {
+			super( in );
+			this.from = from;
+			this.to = to;
+			enableResolveObject( !from.equals( to ) );
+		}
+		
+		/**
+		 * @see java.io.ObjectInputStream#resolveObject(java.lang.Object)
+		 */
+		@Override
+		protected Object resolveObject( Object obj ) throws IOException {
+			return (obj instanceof BasicID && from.equals( obj ) ? to : obj);
+		}
+	}
+}
@@ -17,9 +17,24 @@
 package plangame.gwt.server;
 
 import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 
 import plangame.game.Game;
 import plangame.game.plans.JointPlan;
@@ -91,7 +106,7 @@ import plangame.util.gameparser.GameParser;
  * @author Joris Scharpff
  */
 @SuppressWarnings ("serial" )
-public class GameServer extends BasicObject {
+public class GameServer extends BasicObject implements GameServerCommands {
 	/** The parent server */
 	protected Server server;
 	
@@ -105,7 +120,7 @@ public class GameServer extends BasicObject {
 	protected String gamefile;
 
 	/** The current game state */
-	protected GameState state;
+	protected volatile GameState state;
 
 	/** The connected game manager */
 	protected GMClient manager;
@@ -128,6 +143,23 @@ public class GameServer extends BasicObject {
 	/** The current execution info */
 	protected ExecutionInfo execinfo;
 	
+	/** The executor of the game server. All commands that change the state of
+	 * the game server are run on its single thread, one at a time, as well as
+	 * the execution rounds of a continuous execution */
+	protected final ScheduledExecutorService executor;
+	
+	/** The thread of the executor */
+	protected volatile Thread loopthread;
+	
+	/** Maximal time to wait for the running command on shut down (msec) */
+	protected final static long SHUTDOWN_TIMEOUT = 10000;
+	
+	/** The next scheduled execution round, null if none is scheduled */
+	protected ScheduledFuture<?> nextround;
+	
+	/** The commands of the game server that are processed by its thread */
+	protected final transient GameServerCommands commands;
+	
 	
 	/**
 	 * Creates a new game server with the specified name
@@ -145,6 +177,28 @@ public class GameServer extends BasicObject {
 		this.server = server;
 		this.config = config;
 		
+		// create the executor that processes the game server commands and the
+		// rounds of continuous execution, so that no request thread is held during
+		// execution and the game state is only changed by one thread
+		final String threadname = "Game-Exec-" + ID;
+		executor = Executors.newSingleThreadScheduledExecutor( new ThreadFactory( ) {
+			@Override
+			public Thread newThread( Runnable r ) {
+				final Thread t = new Thread( r, threadname );
+				t.setDaemon( true );
+				loopthread = t;
+				return t;
+			}
+		} );
+		
+		// route the commands of other threads through the executor
+		commands = (GameServerCommands) Proxy.newProxyInstance( GameServerCommands.class.getClassLoader( ), new Class<?>[] { GameServerCommands.class }, new InvocationHandler( ) {
+			@Override
+			public Object invoke( Object proxy, Method method, Object[] args ) throws Throwable {
+				return dispatch( method, args );
+			}
+		} );
+		
 		// set state to initialising
 		setGameState( GameState.Initialising );
 		
@@ -184,8 +238,8 @@ public class GameServer extends BasicObject {
 	public void loadGame( GameParser reader ) throws GameServerException {
 		// load the game
 		try {
-			// try to read the game
-			this.game = reader.read( getID( ) );
+			// try to read the game, parsed definitions are shared through the cache
+			this.game = GameCache.getInstance( ).read( reader, getID( ) );
 			this.gamefile = reader.getInputFile( );
 			log( LogType.Info, "Game file '" + gamefile + "' loaded" );
 			
@@ -209,6 +263,7 @@ public class GameServer extends BasicObject {
 	 * @return The number of notified clients
 	 * @throws GameServerException if no game is running
 	 */
+	@Override
 	public int endGame( ) throws GameServerException {
 		if( game == null ) throw new GameServerException( getID( ), Lang.get( "NoGameToEnd" ) );
 		
@@ -226,11 +281,116 @@ public class GameServer extends BasicObject {
 		return notified;
 	}
 	
+	/**
+	 * Shuts down the game server, cancels any scheduled execution round and
+	 * waits for the running command to finish. The game server should not be
+	 * used after this.
+	 */
+	public void shutdown( ) {
+		synchronized( executor ) {
+			if( nextround != null ) nextround.cancel( false );
+			nextround = null;
+		}
+		executor.shutdownNow( );
+		
+		// wait until the running command has written its trace messages, unless
+		// the game server is shut down by its own thread
+		if( Thread.currentThread( ) != loopthread ) {
+			try {
+				if( !executor.awaitTermination( SHUTDOWN_TIMEOUT, TimeUnit.MILLISECONDS ) )
+					log( LogType.Warning, "Game server thread did not terminate within " + SHUTDOWN_TIMEOUT + " msec" );
+			} catch( InterruptedException ie ) {
+				Thread.currentThread( ).interrupt( );
+			}
+		}
+		
+		// write the remaining trace messages
+		if( tracer != null ) tracer.close( );
+	}
+	
+	/**
+	 * @return The commands of the game server, every call of a command is
+	 * processed on the game server thread
+	 */
+	public GameServerCommands commands( ) {
+		return commands;
+	}
+	
+	/**
+	 * @return True if the current thread is the game server thread
+	 */
+	protected boolean onLoop( ) {
+		return Thread.currentThread( ) == loopthread;
+	}
+	
+	/**
+	 * Processes the call of a command on the game server thread and waits for
+	 * its result. Commands are processed one at a time in the order in which
+	 * they are called, a command that is called from the game server thread
+	 * itself is executed immediately. If the game server has been shut down,
+	 * the command is executed by the calling thread.
+	 * 
+	 * @param method The command method
+	 * @param args The command arguments
+	 * @return The command result
+	 * @throws Throwable the exception thrown by the command
+	 */
+	protected Object dispatch( final Method method, final Object[] args ) throws Throwable {
+		if( onLoop( ) ) return execute( method, args );
+		
+		final Future<Object> result;
+		try {
+			result = executor.submit( new Callable<Object>( ) {
+				@Override
+				public Object call( ) throws Exception {
+					return execute( method, args );
+				}
+			} );
+		} catch( RejectedExecutionException ree ) {
+			return execute( method, args );
+		}
+		
+		// wait for the command to complete, the command is not interrupted
+		boolean interrupted = false;
+		try {
+			while( true ) {
+				try {
+					return result.get( );
+				} catch( InterruptedException ie ) {
+					interrupted = true;
+				}
+			}
+		} catch( ExecutionException ee ) {
+			throw ee.getCause( );
+		} finally {
+			if( interrupted ) Thread.currentThread( ).interrupt( );
+		}
+	}
+	
+	/**
+	 * Executes the command method on the game server
+	 * 
+	 * @param method The command method
+	 * @param args The command arguments
+	 * @return The command result
+	 * @throws Exception the exception thrown by the command
+	 */
+	private Object execute( Method method, Object[] args ) throws Exception {
+		try {
+			return method.invoke( this, args );
+		} catch( InvocationTargetException ite ) {
+			final Throwable cause = ite.getCause( );
+			if( cause instanceof Error ) throw (Error) cause;
+			throw (Exception) cause;
+		}
+	}
+	
 	/**
 	 * Sets the game manager client for the current game
 	 * 
 	 * @param manager The new game manager
 	 */
+	@Override
 	public void setManager( GMClient manager ) {
 		this.manager = manager;
 	}
@@ -238,6 +398,7 @@ public class GameServer extends BasicObject {
 	/**
 	 * @return The game manager client
 	 */
+	@Override
 	public GMClient getManager( ) {
 		return manager;
 	}
@@ -247,6 +408,7 @@ public class GameServer extends BasicObject {
 	 * 
 	 * @param scoreboard The new score board client
 	 */
+	@Override
 	public void setScoreBoard( SBClient scoreboard ) {
 		this.scoreboard = scoreboard;
 	}
@@ -254,15 +416,17 @@ public class GameServer extends BasicObject {
 	/**
 	 * @return The score board client
 	 */
+	@Override
 	public SBClient getScoreBoard( ) {
 		return scoreboard;
 	}
 	
 	/**
-	 * @return The list of connected Service Provider clients
+	 * @return A copy of the list of connected Service Provider clients
 	 */
+	@Override
 	public List<SPClient> getClients( ) {
-		return clients.getKeys( );
+		return new ArrayList<SPClient>( clients.getKeys( ) );
 	}
 	
 	/**
@@ -270,6 +434,7 @@ public class GameServer extends BasicObject {
 	 * 
 	 * @return The server information
 	 */
+	@Override
 	public GameServerInfo getServerInfo( ) {
 		return new GameServerInfo( getID( ), game.toString( ), game.getDescription( ), getGameFile( ), getPlayerCount( ), getConfiguration( ) );
 	}
@@ -279,6 +444,7 @@ public class GameServer extends BasicObject {
 	 * 
 	 * @return The server state
 	 */
+	@Override
 	public GameServerState getServerState( ) {
 		return new GameServerState( getServerInfo( ), state, clients );
 	}
@@ -288,6 +454,7 @@ public class GameServer extends BasicObject {
 	 * 
 	 * @return The game info
 	 */
+	@Override
 	public GameInfo getGameInfo( ) {
 		return new GameInfo( game.getID( ), game.getPlayers( ), getPortfolios( ), game.getPeriod( ), game.getInfra( ), game.getMechanism( ) );
 	}
@@ -298,6 +465,7 @@ public class GameServer extends BasicObject {
 	 * @param clientID The client ID
 	 * @return The clients or null if no match has been found
 	 */
+	@Override
 	public SPClient getClientByID( BasicID clientID ) {
 		return BasicObject.fromList( clients.getKeys( ), clientID );
 	}
@@ -309,6 +477,7 @@ public class GameServer extends BasicObject {
 	 * @return The connection response
 	 * @throws GameServerException if the client type is unknown
 	 */
+	@Override
 	public ConnectResponse reconnect( GameClient client ) throws GameServerException {
 		// check what client is reconnecting
 		final boolean connected;
@@ -351,6 +520,7 @@ public class GameServer extends BasicObject {
 	 * @throws GameServerException if the join failed
 	 */
 	@SuppressWarnings("null")
+	@Override
 	public JoinGameResponse join( GameClient client, JoinGameRequest request ) throws GameServerException {
 		if( client == null )
 			logThrow( Lang.get( "JoinNullClient" ) );
@@ -456,6 +626,7 @@ public class GameServer extends BasicObject {
 	 * @throws GameServerException if the client already has a player in the game
 	 */
 	@SuppressWarnings("null")
+	@Override
 	public void addPlayer( SPClient client, Player player ) throws GameServerException {
 		// check if the player is null
 		if( player == null )
@@ -485,6 +656,7 @@ public class GameServer extends BasicObject {
 	 * assigned a different portfolio
 	 */
 	@SuppressWarnings("null")
+	@Override
 	public void assignPortfolio( SPClient client, BasicID pfID ) throws GameServerException {
 		// get the portfolio by its ID
 		final Portfolio portfolio = game.getPortfolioByID( pfID );
@@ -521,6 +693,7 @@ public class GameServer extends BasicObject {
 	 * @return True if disconnect was successful
 	 * @throws GameServerException if the client is not part of this game
 	 */
+	@Override
 	public boolean disconnect( GameClient client, DisconnectReason reason ) throws GameServerException {		
 		// remove the player from the game
 		if( client instanceof SPClient ) {
@@ -564,6 +737,7 @@ public class GameServer extends BasicObject {
 	 * @param client The game client that is restoring
 	 * @return The RestoreResponse object containing all required information
 	 */
+	@Override
 	public RestoreResponse restoreClient( GameClient client ) {
 		// if this is an SP, include possible intermediate plan changes
 		final JointPlan jplan = new JointPlan( getJointPlan( ) );
@@ -596,6 +770,7 @@ public class GameServer extends BasicObject {
 	/**
 	 * @return The current joint plan
 	 */
+	@Override
 	public JointPlan getJointPlan( ) {
 		return game.getJointPlan( );
 	}
@@ -606,6 +781,7 @@ public class GameServer extends BasicObject {
 	 * @throws GameServerException if the game could not be started (no players
 	 * or players without portfolio)
 	 */
+	@Override
 	public void startGame( ) throws GameServerException {
 		// check if there is at least one player
 		if( game.getPlayers( ).size( ) == 0 )
@@ -626,6 +802,7 @@ public class GameServer extends BasicObject {
 	 * @throws InvalidGameStateException if starting a new plan round is not
 	 * allowed in the current state
 	 */
+	@Override
 	public void initPlanRound( ) throws InvalidGameStateException {
 		// check if this action is allowed in the current state
 		checkState( GameState.Idle );
@@ -642,6 +819,7 @@ public class GameServer extends BasicObject {
 	 * @param plan The plan
 	 * @return The joint plan resulting from all the submitted joint plan
 	 */
+	@Override
 	public void submitPlan( SPClient client, Plan plan ) {
 		// player might be lagging behind a little, ignore submit if so
 		if( !inState( GameState.Planning ) || !inState( client, ClientState.InPlanning ) ) {
@@ -667,6 +845,7 @@ public class GameServer extends BasicObject {
 	 * @param client The client
 	 * @param accept True if the client accepts the current joint plan
 	 */
+	@Override
 	public void acceptPlan( SPClient client, boolean accept ) {
 		// player might be lagging behind a little, ignore submit if so
 		if( !inState( GameState.Accept ) || !inState( client, ClientState.Accepting ) ) {
@@ -694,6 +873,26 @@ public class GameServer extends BasicObject {
 	 * @throws PlannerException if the planner failed
 	 */
 	public Plan getSuggestion( SPClient client, JointPlan jplan, Task task, PlanPreference pref ) throws PlannerException {
+		// the planning instance is set up from the game on the game server
+		// thread, only the planner runs on the calling thread
+		final Instance inst = commands( ).createSuggestionInstance( client, jplan, task, pref );
+		
+		// run the planner and return the result
+		final Planner planner;
+		if( task != null )
+			planner = new TaskPlanner( );
+		else
+			planner = new GreedyDPPlanner( );
+		
+		// find suggestion for the player
+		return planner.plan( inst ).getPlan( client.getPlayer( ) );
+	}
+	
+	/**
+	 * @see plangame.gwt.server.GameServerCommands#createSuggestionInstance(plangame.gwt.shared.clients.SPClient, plangame.game.plans.JointPlan, plangame.model.tasks.Task, plangame.game.player.PlanPreference)
+	 */
+	@Override
+	public Instance createSuggestionInstance( SPClient client, JointPlan jplan, Task task, PlanPreference pref ) {
 		final Instance inst = new Instance( game, client.getPlayer( ) );
 		inst.setJointPlan( jplan );
 		inst.setPlanPreference( client.getPlayer( ), pref );
@@ -707,15 +906,7 @@ public class GameServer extends BasicObject {
 		// trace the suggestion
 		tracer.requestedSuggestion( game.getTime( ), client.getPlayer( ), task, pref );
 		
-		// run the planner and return the result
-		final Planner planner;
-		if( task != null )
-			planner = new TaskPlanner( );
-		else
-			planner = new GreedyDPPlanner( );
-		
-		// find suggestion for the player
-		return planner.plan( inst ).getPlan( client.getPlayer( ) );
+		return inst;
 	}
 	
 	/**
@@ -726,6 +917,7 @@ public class GameServer extends BasicObject {
 	 * @throws InvalidGameStateException if the state is not planning
 	 * @throws InvalidClientStateException if the client is not in the planning state
 	 */
+	@Override
 	public void planChanged( SPClient client, PlanChange change ) throws InvalidGameStateException, InvalidClientStateException {
 		// make sure we are in the correct state
 		checkState( GameState.Planning );
@@ -750,6 +942,7 @@ public class GameServer extends BasicObject {
 	 * execute event
 	 * @throws InvalidPlanException if the current joint plan is not valid
 	 */
+	@Override
 	public void initExecution( ExecutionInfo execinfo ) throws InvalidGameStateException, InvalidPlanException {
 		checkState( GameState.Idle );
 		
@@ -766,10 +959,14 @@ public class GameServer extends BasicObject {
 	}
 	
 	/**
-	 * Stops the current running execution of the game
+	 * Stops the current running execution of the game. If the next round is
+	 * scheduled but not yet started, it is cancelled and the execution ends
+	 * immediately. Otherwise the execution ends after the current round. The
+	 * execution can be resumed by initialising it again.
 	 * 
 	 * @throws InvalidGameStateException if the state is not executing
 	 */
+	@Override
 	public void stopExecution( ) throws InvalidGameStateException {
 		checkState( GameState.Executing );
 		
@@ -779,6 +976,14 @@ public class GameServer extends BasicObject {
 		
 		// set execution mode to one round to stop execution after
 		execinfo.setMode( ExecutionMode.OneRound );
+		
+		// cancel the next round if it has not started yet
+		final boolean cancelled;
+		synchronized( executor ) {
+			cancelled = (nextround != null && nextround.cancel( false ));
+			if( cancelled ) nextround = null;
+		}
+		if( cancelled ) endExecution( );
 	}
 
 	/**
@@ -791,6 +996,7 @@ public class GameServer extends BasicObject {
 	 * @throws InvalidPlanException if the now resulting joint plan is invalid
 	 * @throws InvalidGameStateException if the state is not executing
 	 */
+	@Override
 	public void handlePending( PlanStepResult results, boolean stop ) throws GameServerException, InvalidGameStateException, InvalidPlanException {
 		checkState( GameState.Executing );
 		
@@ -1012,6 +1218,7 @@ public class GameServer extends BasicObject {
 	 * @param state The new game state
 	 * @return The previous game state
 	 */
+	@Override
 	public GameState forceGameState( GameState state ) {
 		final GameState oldstate = getGameState( );
 		setGameState( state );
@@ -1034,6 +1241,7 @@ public class GameServer extends BasicObject {
 	 * however after the state is set to make sure we can always enforce a new
 	 * state
 	 */
+	@Override
 	public ClientState forceClientState( SPClient client, ClientState state ) throws GameServerException {
 		// get old status
 		final ClientState oldstate = getClientState( client );
@@ -1115,12 +1323,11 @@ public class GameServer extends BasicObject {
 	}
 	
 	/**
-	 * Returns all the portfolios defined by the game
-	 * 
-	 * @return The list of portfolios
+	 * @see plangame.gwt.server.GameServerCommands#getPortfolios()
 	 */
+	@Override
 	public List<Portfolio> getPortfolios( ) {
-		return game.getPortfolios( );
+		return new ArrayList<Portfolio>( game.getPortfolios( ) );
 	}
 	
 	/**
@@ -1387,6 +1594,7 @@ public class GameServer extends BasicObject {
 		
 		// trace the end of the step
 		tracer.roundEnded( game.getTime( ), execinfo.getPendingResults( ) );
+		tracer.checkpoint( game.getTime( ), game.getJointPlan( ) );
 		
 		// create results object
 		final GameResults res = new GameResults( getID( ), game.getTime( ), game.getJointPlan( ), execinfo.getPendingResults( ).getCompleted( ), execinfo.getPendingResults( ).getDelayed( ) );		
@@ -1399,18 +1607,45 @@ public class GameServer extends BasicObject {
 	}
 	
 	/**
-	 * Continues execution of the plan
-	 * 
-	 * @throws InvalidGameStateException if the game state is invalid
-	 * @throws InvalidPlanException if the joint plan cannot be executed in its current state 
+	 * Continues execution of the plan, schedules the next round to be executed
+	 * after the execution sleep time. The round runs on the executor thread of
+	 * the game server, this method returns immediately.
 	 */
-	private void continueExec( ) throws InvalidGameStateException, InvalidPlanException {		
-		// delay before executing the next round
+	private void continueExec( ) {
+		synchronized( executor ) {
+			if( executor.isShutdown( ) ) return;
+			
+			nextround = executor.schedule( new Runnable( ) {
+				@Override
+				public void run( ) {
+					synchronized( executor ) {
+						nextround = null;
+					}
+					executeRound( );
+				}
+			}, execinfo.getSleep( ), TimeUnit.MILLISECONDS );
+		}
+	}
+	
+	/**
+	 * Executes a scheduled round of a continuous execution, errors are logged
+	 * because there is no client request to report them to
+	 */
+	private void executeRound( ) {
 		try {
-			Thread.sleep( execinfo.getSleep( ) );
-		} catch( InterruptedException ie ) { }
-		
-		execute( );
+			execute( );
+		} catch( InvalidGameStateException igse ) {
+			// the state has changed since the round was scheduled
+			log( LogType.Warning, "Scheduled execution round skipped: " + igse.getMessage( ) );
+		} catch( InvalidPlanException ipe ) {
+			// cannot execute current plan (anymore), switch back to idle state
+			log( LogType.Error, "Execution stopped, the joint plan is invalid: " + ipe.getMessage( ) );
+			endExecution( );
+		} catch( RuntimeException re ) {
+			final StringWriter trace = new StringWriter( );
+			re.printStackTrace( new PrintWriter( trace ) );
+			log( LogType.Error, "Execution round failed: " + re.getMessage( ) + "\n" + trace );
+		}
 	}
 	
 	/**
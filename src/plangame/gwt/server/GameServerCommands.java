@@ -0,0 +1,282 @@
+/**
+ * @file GameServerCommands.java
+ * @brief Short description of file
+ *
+ * This file is created at Almende B.V. It is open-source software and part of the Common
+ * Hybrid Agent Platform (CHAP). A toolbox with a lot of open-source tools, ranging from
+ * thread pools and TCP/IP components to control architectures and learning algorithms.
+ * This software is published under the GNU Lesser General Public license (LGPL).
+ *
+ * Copyright  2026 agent <agent@local>
+ *
+ * @author       agent
+ * @date         17 okt. 2026
+ * @project      NGI
+ * @company      Almende B.V.
+ */
+package plangame.gwt.server;
+
+import java.util.List;
+
+import plangame.game.plans.JointPlan;
+import plangame.game.plans.Plan;
+import plangame.game.plans.PlanChange;
+import plangame.game.plans.PlanStepResult;
+import plangame.game.player.PlanPreference;
+import plangame.game.player.Player;
+import plangame.gwt.shared.ExecutionInfo;
+import plangame.gwt.shared.clients.GMClient;
+import plangame.gwt.shared.clients.GameClient;
+import plangame.gwt.shared.clients.SBClient;
+import plangame.gwt.shared.clients.SPClient;
+import plangame.gwt.shared.enums.ClientState;
+import plangame.gwt.shared.enums.GameState;
+import plangame.gwt.shared.events.DisconnectEvent.DisconnectReason;
+import plangame.gwt.shared.exceptions.GameServerException;
+import plangame.gwt.shared.exceptions.InvalidClientStateException;
+import plangame.gwt.shared.exceptions.InvalidGameStateException;
+import plangame.gwt.shared.exceptions.InvalidPlanException;
+import plangame.gwt.shared.gameresponse.JoinGameResponse;
+import plangame.gwt.shared.gameresponse.RestoreResponse;
+import plangame.gwt.shared.requests.JoinGameRequest;
+import plangame.gwt.shared.serverresponse.ConnectResponse;
+import plangame.gwt.shared.state.GameInfo;
+import plangame.gwt.shared.state.GameServerInfo;
+import plangame.gwt.shared.state.GameServerState;
+import plangame.model.object.BasicID;
+import plangame.model.tasks.Portfolio;
+import plangame.model.tasks.Task;
+import plangame.planner.Instance;
+
+/**
+ * The operations of a game server that read or change its game state. The
+ * game server implements them for its own thread, other threads use the
+ * commands of the game server (GameServer.commands) which process every call
+ * on the game server thread, one at a time.
+ *
+ * @author agent
+ */
+public interface GameServerCommands {
+	/**
+	 * Ends the current game in progress
+	 * 
+	 * @return The number of notified clients
+	 * @throws GameServerException if no game is running
+	 */
+	public int endGame( ) throws GameServerException;
+	
+	/**
+	 * Sets the game manager client for the current game
+	 * 
+	 * @param manager The new game manager
+	 */
+	public void setManager( GMClient manager );
+	
+	/**
+	 * @return The game manager client
+	 */
+	public GMClient getManager( );
+	
+	/**
+	 * Sets the score board client for the current game
+	 * 
+	 * @param scoreboard The new score board client
+	 */
+	public void setScoreBoard( SBClient scoreboard );
+	
+	/**
+	 * @return The score board client
+	 */
+	public SBClient getScoreBoard( );
+	
+	/**
+	 * @return A copy of the list of connected Service Provider clients
+	 */
+	public List<SPClient> getClients( );
+	
+	/**
+	 * @return The information of the game server
+	 */
+	public GameServerInfo getServerInfo( );
+	
+	/**
+	 * @return The current state of the game server
+	 */
+	public GameServerState getServerState( );
+	
+	/**
+	 * @return The static game information
+	 */
+	public GameInfo getGameInfo( );
+	
+	/**
+	 * @param clientID The client ID
+	 * @return The client with the ID or null if no match has been found
+	 */
+	public SPClient getClientByID( BasicID clientID );
+	
+	/**
+	 * Reconnects a client to the game server
+	 * 
+	 * @param client The client that is reconnecting
+	 * @return The connection response
+	 * @throws GameServerException if the client type is unknown
+	 */
+	public ConnectResponse reconnect( GameClient client ) throws GameServerException;
+	
+	/**
+	 * Adds a clients to the game if possible
+	 * 
+	 * @param client The client that wants to join
+	 * @param request The join game request info
+	 * @return The corresponding client object of the game
+	 * @throws GameServerException if the join failed
+	 */
+	public JoinGameResponse join( GameClient client, JoinGameRequest request ) throws GameServerException;
+	
+	/**
+	 * Sets the player and portfolio for the client
+	 * 
+	 * @param client The client
+	 * @param player Its player information
+	 * @throws GameServerException if the client already has a player in the game
+	 */
+	public void addPlayer( SPClient client, Player player ) throws GameServerException;
+	
+	/**
+	 * Assigns the portfolio to the specified client
+	 * 
+	 * @param client The client
+	 * @param pfID The ID of the portfolio to assign
+	 * @throws GameServerException if the portfolio could not be assigned
+	 */
+	public void assignPortfolio( SPClient client, BasicID pfID ) throws GameServerException;
+	
+	/**
+	 * Disconnects the client from the game
+	 * 
+	 * @param client The client to disconnect
+	 * @param reason The reason for disconnecting, null if client disconnected
+	 * @return True if disconnect was successful
+	 * @throws GameServerException if the client is not part of this game
+	 */
+	public boolean disconnect( GameClient client, DisconnectReason reason ) throws GameServerException;
+	
+	/**
+	 * Client requests all relevant server and game info to restore its view
+	 * 
+	 * @param client The game client that is restoring
+	 * @return The RestoreResponse object containing all required information
+	 */
+	public RestoreResponse restoreClient( GameClient client );
+	
+	/**
+	 * @return The current joint plan
+	 */
+	public JointPlan getJointPlan( );
+	
+	/**
+	 * @return A copy of the list of portfolios defined by the game
+	 */
+	public List<Portfolio> getPortfolios( );
+	
+	/**
+	 * Sets up the planning instance to compute a suggestion for the task or
+	 * the entire plan of the client, traces the request
+	 * 
+	 * @param client The client to find a suggestion for
+	 * @param jplan The current joint plan
+	 * @param task The task to find suggestion for, null for entire plan
+	 * @param pref The planning preference for the player
+	 * @return The planning instance
+	 */
+	public Instance createSuggestionInstance( SPClient client, JointPlan jplan, Task task, PlanPreference pref );
+	
+	/**
+	 * Starts the game, notifies all connected clients
+	 * 
+	 * @throws GameServerException if the game could not be started
+	 */
+	public void startGame( ) throws GameServerException;
+	
+	/**
+	 * Initiates a new plan round
+	 * 
+	 * @throws InvalidGameStateException if starting a new plan round is not
+	 * allowed in the current state
+	 */
+	public void initPlanRound( ) throws InvalidGameStateException;
+	
+	/**
+	 * Receives a plan from a client
+	 * 
+	 * @param client The client submitting the plan
+	 * @param plan The plan
+	 */
+	public void submitPlan( SPClient client, Plan plan );
+	
+	/**
+	 * Receives a player accept / decline response
+	 * 
+	 * @param client The client
+	 * @param accept True if the client accepts the current joint plan
+	 */
+	public void acceptPlan( SPClient client, boolean accept );
+	
+	/**
+	 * The client notifies the server of a change in his plan
+	 * 
+	 * @param client The client notifying
+	 * @param change The plan change
+	 * @throws InvalidGameStateException if the state is not planning
+	 * @throws InvalidClientStateException if the client is not in the planning state
+	 */
+	public void planChanged( SPClient client, PlanChange change ) throws InvalidGameStateException, InvalidClientStateException;
+	
+	/**
+	 * Initialises the execution of the game
+	 * 
+	 * @param execinfo The execution info
+	 * @throws InvalidGameStateException if the server was not expecting an
+	 * execute event
+	 * @throws InvalidPlanException if the current joint plan is not valid
+	 */
+	public void initExecution( ExecutionInfo execinfo ) throws InvalidGameStateException, InvalidPlanException;
+	
+	/**
+	 * Stops the current running execution of the game
+	 * 
+	 * @throws InvalidGameStateException if the state is not executing
+	 */
+	public void stopExecution( ) throws InvalidGameStateException;
+	
+	/**
+	 * GM sends the updated PlanStepResults in which pending methods have been
+	 * handled.
+	 * 
+	 * @param results The PlanStepResults
+	 * @param stop True to stop after the processing
+	 * @throws GameServerException if there are still methods pending delay
+	 * @throws InvalidGameStateException if the state is not executing
+	 * @throws InvalidPlanException if the now resulting joint plan is invalid
+	 */
+	public void handlePending( PlanStepResult results, boolean stop ) throws GameServerException, InvalidGameStateException, InvalidPlanException;
+	
+	/**
+	 * Forces the game server into the specified state
+	 * 
+	 * @param state The new state
+	 * @return The previous state
+	 */
+	public GameState forceGameState( GameState state );
+	
+	/**
+	 * Forces the client into the specified state
+	 * 
+	 * @param client The client
+	 * @param state The new state
+	 * @return The previous client state
+	 * @throws GameServerException if the client had no previous state
+	 */
+	public ClientState forceClientState( SPClient client, ClientState state ) throws GameServerException;
+}
@@ -0,0 +1,698 @@
+/**
+ * @file LoadGenerator.java
+ * @brief Short description of file
+ *
+ * This file is created at Almende B.V. It is open-source software and part of the Common
+ * Hybrid Agent Platform (CHAP). A toolbox with a lot of open-source tools, ranging from
+ * thread pools and TCP/IP components to control architectures and learning algorithms.
+ * This software is published under the GNU Lesser General Public license (LGPL).
+ *
+ * Copyright  2026 agent <agent@local>
+ *
+ * @author       agent
+ * @date         17 okt. 2026
+ * @project      NGI
+ * @company      Almende B.V.
+ */
+package plangame.gwt.server;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.WeakHashMap;
+
+import plangame.game.plans.JointPlan;
+import plangame.game.plans.PlanChange;
+import plangame.game.plans.PlanTask;
+import plangame.gwt.server.config.ServerConfig;
+import plangame.gwt.server.events.EventManager;
+import plangame.gwt.server.rpc.ClientImpl;
+import plangame.gwt.server.rpc.GMRPCImpl;
+import plangame.gwt.server.rpc.SBRPCImpl;
+import plangame.gwt.server.rpc.SPRPCImpl;
+import plangame.gwt.shared.DebugGlobals;
+import plangame.gwt.shared.GameServerConfig;
+import plangame.gwt.shared.clients.Client.ClientType;
+import plangame.gwt.shared.clients.SPClient;
+import plangame.gwt.shared.events.AcceptEvent;
+import plangame.gwt.shared.events.AcceptedEvent;
+import plangame.gwt.shared.events.AssignPortfolioEvent;
+import plangame.gwt.shared.events.DisconnectEvent;
+import plangame.gwt.shared.events.Event;
+import plangame.gwt.shared.events.GameServerEvent;
+import plangame.gwt.shared.events.JoinEvent;
+import plangame.gwt.shared.events.PlanChangeBatchEvent;
+import plangame.gwt.shared.events.PlanEvent;
+import plangame.gwt.shared.events.StartGameEvent;
+import plangame.gwt.shared.requests.ConnectRequest;
+import plangame.gwt.shared.requests.JoinGameRequest;
+import plangame.model.object.BasicID;
+import plangame.model.tasks.Portfolio;
+import plangame.model.tasks.Task;
+import plangame.model.time.TimePoint;
+import plangame.model.time.TimeSpan;
+
+/**
+ * In-process load generator for the server. A number of game rooms is
+ * created, each with a game manager, a score board and a number of service
+ * providers that run on their own threads and only use the RPC
+ * implementations, as the web clients would. The game manager assigns the
+ * portfolios, starts the game and starts the plan rounds. The service
+ * providers poll for events and answer them with plan changes, a plan submit
+ * and an accept. The score board only receives the batches of plan changes. Latencies are
+ * recorded per RPC, except for the listen requests that the server holds until
+ * events are available. The event lag is the time between the RPC that fired
+ * an event and the return of the listen request that delivered it.
+ *
+ * Events are not serialised in-process, so the service providers copy the
+ * joint plans they receive before changing them.
+ *
+ * Usage: LoadGenerator gamefile [-rooms n] [-players n] [-rounds n]
+ * [-changes n] [-think ms] [-ramp ms] [-trace]
+ *
+ * @author agent
+ */
+public class LoadGenerator {
+	/** The game file to load in every room */
+	protected final String gamefile;
+	
+	/** The number of game rooms */
+	protected int rooms = 50;
+	
+	/** The number of service providers per room */
+	protected int players = 6;
+	
+	/** The number of plan rounds per room */
+	protected int rounds = 10;
+	
+	/** The number of plan changes per player per round */
+	protected int changes = 5;
+	
+	/** The think time of a player before every action (msec) */
+	protected long think = 0;
+	
+	/** The delay between the start of two rooms (msec) */
+	protected long ramp = 0;
+	
+	/** True to trace the games */
+	protected boolean trace = false;
+	
+	/** The server under load */
+	protected Server server;
+	
+	/** The client RPC implementation */
+	protected final ClientImpl clientrpc = new ClientImpl( );
+	
+	/** The game manager RPC implementation */
+	protected final GMRPCImpl gmrpc = new GMRPCImpl( );
+	
+	/** The service provider RPC implementation */
+	protected final SPRPCImpl sprpc = new SPRPCImpl( );
+	
+	/** The score board RPC implementation */
+	protected final SBRPCImpl sbrpc = new SBRPCImpl( );
+	
+	/** The latencies per RPC */
+	protected final Map<String, Recorder> latencies = new TreeMap<String, Recorder>( );
+	
+	/** The event lag per event type */
+	protected final Map<String, Recorder> lags = new TreeMap<String, Recorder>( );
+	
+	/** The number of completed plan rounds over all rooms */
+	protected int completed;
+	
+	/**
+	 * Creates a new load generator
+	 * 
+	 * @param gamefile The game file to load in every room
+	 */
+	public LoadGenerator( String gamefile ) {
+		this.gamefile = gamefile;
+	}
+	
+	/**
+	 * Runs the load generator from the command line
+	 * 
+	 * @param args The command line arguments
+	 */
+	public static void main( String[] args ) {
+		if( args.length < 1 )
+			throw new RuntimeException( "Usage: LoadGenerator gamefile [-rooms n] [-players n] [-rounds n] [-changes n] [-think ms] [-ramp ms] [-trace]" );
+		
+		final LoadGenerator lg = new LoadGenerator( args[ 0 ] );
+		for( int i = 1; i < args.length; i++ ) {
+			if( args[ i ].equals( "-trace" ) )
+				lg.trace = true;
+			else if( i + 1 >= args.length )
+				throw new RuntimeException( "Missing value for option " + args[ i ] );
+			else if( args[ i ].equals( "-rooms" ) )
+				lg.rooms = Integer.parseInt( args[ ++i ] );
+			else if( args[ i ].equals( "-players" ) )
+				lg.players = Integer.parseInt( args[ ++i ] );
+			else if( args[ i ].equals( "-rounds" ) )
+				lg.rounds = Integer.parseInt( args[ ++i ] );
+			else if( args[ i ].equals( "-changes" ) )
+				lg.changes = Integer.parseInt( args[ ++i ] );
+			else if( args[ i ].equals( "-think" ) )
+				lg.think = Long.parseLong( args[ ++i ] );
+			else if( args[ i ].equals( "-ramp" ) )
+				lg.ramp = Long.parseLong( args[ ++i ] );
+			else
+				throw new RuntimeException( "Unknown option " + args[ i ] );
+		}
+		
+		try {
+			lg.run( );
+		} catch( Exception e ) {
+			System.err.println( "Error while generating load:" );
+			e.printStackTrace( );
+		}
+	}
+	
+	/**
+	 * Sets up the server, runs all rooms and reports the results
+	 * 
+	 * @throws Exception if the server or a game room cannot be created
+	 */
+	public void run( ) throws Exception {
+		// set up a server without servlet context
+		Server.eventmanager = new EventManager( );
+		Server.logger = null;
+		server = new Server( BasicID.makeValidID( "LoadGenerator" ), "LoadGenerator", new ServerConfig( ) );
+		
+		// create the rooms
+		final List<Room> roomlist = new ArrayList<Room>( rooms );
+		for( int r = 0; r < rooms; r++ ) {
+			final GameServerConfig config = new GameServerConfig( );
+			config.setMaxNumPlayers( players );
+			config.setTrace( trace );
+			
+			final BasicID gameID = BasicID.makeValidID( "Load" + r );
+			server.createGameServer( gameID, "Load " + r, gamefile, config );
+			roomlist.add( new Room( r, gameID ) );
+		}
+		
+		// and run them
+		final long start = System.nanoTime( );
+		final List<Thread> threads = new ArrayList<Thread>( rooms );
+		for( Room room : roomlist ) {
+			final Thread t = new Thread( room, "Game-Load-" + room.index + "-GM" );
+			t.setDaemon( true );
+			t.start( );
+			threads.add( t );
+			if( ramp > 0 ) Thread.sleep( ramp );
+		}
+		for( Thread t : threads )
+			t.join( );
+		final double secs = (System.nanoTime( ) - start) / 1e9;
+		
+		// shut down
+		Server.eventmanager.stop( );
+		server.clientmanager.stop( );
+		
+		report( secs );
+	}
+	
+	/**
+	 * Prints the RPC latencies and event lags
+	 * 
+	 * @param secs The duration of the run in seconds
+	 */
+	protected void report( double secs ) {
+		System.out.println( rooms + " rooms x " + players + " players, " + completed + " of " + (rooms * rounds) + " plan rounds completed in " + String.format( Locale.US, "%.2f", secs ) + " s" );
+		System.out.println( );
+		System.out.println( "rpc\tcalls\terrors\tcalls/sec\tp50 (ms)\tp99 (ms)\tmax (ms)" );
+		synchronized( latencies ) {
+			for( String name : latencies.keySet( ) ) {
+				final Recorder r = latencies.get( name );
+				System.out.println( name + "\t" + r.getCount( ) + "\t" + r.getErrors( ) + "\t" + String.format( Locale.US, "%.1f\t%.3f\t%.3f\t%.3f", r.getCount( ) / secs, r.getPercentile( 0.5 ), r.getPercentile( 0.99 ), r.getPercentile( 1.0 ) ) );
+			}
+		}
+		
+		System.out.println( );
+		System.out.println( "event\tdelivered\tp50 lag (ms)\tp99 lag (ms)\tmax lag (ms)" );
+		synchronized( lags ) {
+			for( String name : lags.keySet( ) ) {
+				final Recorder r = lags.get( name );
+				System.out.println( name + "\t" + r.getCount( ) + "\t" + String.format( Locale.US, "%.3f\t%.3f\t%.3f", r.getPercentile( 0.5 ), r.getPercentile( 0.99 ), r.getPercentile( 1.0 ) ) );
+			}
+		}
+	}
+	
+	/**
+	 * Performs a timed RPC call
+	 * 
+	 * @param name The RPC name
+	 * @param call The call
+	 * @return The result of the call
+	 * @throws Exception if the call failed
+	 */
+	protected <T> T rpc( String name, Call<T> call ) throws Exception {
+		final Recorder r = get( latencies, name );
+		final long start = System.nanoTime( );
+		try {
+			return call.call( );
+		} catch( Exception e ) {
+			r.error( );
+			throw e;
+		} finally {
+			r.add( System.nanoTime( ) - start );
+		}
+	}
+	
+	/**
+	 * Gets the recorder with the name, creates it if required
+	 * 
+	 * @param map The recorders
+	 * @param name The recorder name
+	 * @return The recorder
+	 */
+	private static Recorder get( Map<String, Recorder> map, String name ) {
+		synchronized( map ) {
+			Recorder r = map.get( name );
+			if( r == null ) {
+				r = new Recorder( );
+				map.put( name, r );
+			}
+			return r;
+		}
+	}
+	
+	/**
+	 * Sleeps for the think time
+	 */
+	protected void think( ) {
+		if( think <= 0 ) return;
+		
+		try {
+			Thread.sleep( think );
+		} catch( InterruptedException ie ) {
+			Thread.currentThread( ).interrupt( );
+		}
+	}
+	
+	/**
+	 * A timed RPC call
+	 * 
+	 * @param <T> The result type
+	 */
+	protected static abstract class Call<T> {
+		/**
+		 * @return The result of the call
+		 * @throws Exception if the call failed
+		 */
+		public abstract T call( ) throws Exception;
+	}
+	
+	/**
+	 * A game room, runs the game manager of the room
+	 */
+	protected class Room implements Runnable {
+		/** The room number */
+		protected final int index;
+		
+		/** The ID of the game server */
+		protected final BasicID gameID;
+		
+		/** The time at which the last RPC that fires an event was issued, per
+		 * event type, until the fired event is delivered */
+		protected final Map<Class<? extends Event>, Long> fired;
+		
+		/** The time at which the RPC that fired the event was issued, per
+		 * delivered event. Events do not override equals, so the events are
+		 * weak keys by identity and are dropped once the server has delivered
+		 * them to all receivers and the clients are done with them. */
+		protected final Map<Event, Long> delivered;
+		
+		/** True once the room is shutting down */
+		protected volatile boolean ended;
+		
+		/**
+		 * Creates a new room
+		 * 
+		 * @param index The room number
+		 * @param gameID The ID of the game server
+		 */
+		protected Room( int index, BasicID gameID ) {
+			this.index = index;
+			this.gameID = gameID;
+			fired = new HashMap<Class<? extends Event>, Long>( );
+			delivered = new WeakHashMap<Event, Long>( );
+			ended = false;
+		}
+		
+		/**
+		 * Marks the issue of an RPC that will fire the event
+		 * 
+		 * @param event The event type
+		 */
+		protected void fire( Class<? extends Event> event ) {
+			synchronized( fired ) {
+				fired.put( event, System.nanoTime( ) );
+			}
+		}
+		
+		/**
+		 * Polls the events of the client and records the lag of the events
+		 * fired by tracked RPCs. The server holds the listen request until
+		 * events are available, so it is not recorded as RPC latency.
+		 * 
+		 * An event is sent to all its receivers as the same instance, its first
+		 * delivery binds it to the last RPC that was issued to fire it, so
+		 * later RPCs of the event type do not change its lag
+		 * 
+		 * @param clientID The client ID
+		 * @return The events or null if the client no longer receives events
+		 */
+		protected List<Event> listen( BasicID clientID ) {
+			final List<Event> events;
+			try {
+				events = clientrpc.listen( clientID );
+			} catch( Exception e ) {
+				if( !ended ) System.err.println( "Listen failed for '" + clientID + "': " + e.getMessage( ) );
+				return null;
+			}
+			if( events == null ) return null;
+			
+			final long now = System.nanoTime( );
+			for( Event e : events ) {
+				Long t;
+				synchronized( fired ) {
+					t = delivered.get( e );
+					if( t == null ) {
+						t = fired.remove( e.getClass( ) );
+						if( t != null ) delivered.put( e, t );
+					}
+				}
+				if( t != null ) get( lags, e.getClass( ).getSimpleName( ) ).add( now - t );
+			}
+			return events;
+		}
+		
+		/**
+		 * Runs the game manager
+		 * 
+		 * @see java.lang.Runnable#run()
+		 */
+		@Override
+		public void run( ) {
+			final List<Thread> threads = new ArrayList<Thread>( players );
+			try {
+				// connect and join the game
+				final BasicID gmID = rpc( "connect", new Call<BasicID>( ) {
+					@Override public BasicID call( ) throws Exception { return clientrpc.connect( new ConnectRequest( ClientType.GameManager ) ).getClient( ).getID( ); }
+				} );
+				rpc( "joinGame", new Call<Void>( ) {
+					@Override public Void call( ) throws Exception { gmrpc.joinGame( new JoinGameRequest( gmID, gameID, "GM" ) ); return null; }
+				} );
+				
+				// start the players and wait until all have joined
+				for( int i = 0; i < players; i++ ) {
+					final Thread t = new Thread( new ServiceProvider( this, i ), "Game-Load-" + index + "-SP" + i );
+					t.setDaemon( true );
+					t.start( );
+					threads.add( t );
+				}
+				final Thread sb = new Thread( new ScoreBoard( this ), "Game-Load-" + index + "-SB" );
+				sb.setDaemon( true );
+				sb.start( );
+				threads.add( sb );
+				final List<BasicID> spIDs = new ArrayList<BasicID>( players );
+				while( spIDs.size( ) < players ) {
+					final List<Event> events = listen( gmID );
+					if( events == null ) return;
+					for( Event e : events )
+						if( e instanceof JoinEvent ) spIDs.add( ((JoinEvent) e).getClient( ).getID( ) );
+				}
+				
+				// assign the portfolios if the server does not
+				if( !DebugGlobals.autoAssign( ) ) {
+					final List<Portfolio> pfs = rpc( "getPortfolios", new Call<List<Portfolio>>( ) {
+						@Override public List<Portfolio> call( ) throws Exception { return gmrpc.getPortfolios( gmID ); }
+					} );
+					for( int i = 0; i < spIDs.size( ); i++ ) {
+						final BasicID spID = spIDs.get( i );
+						final BasicID pfID = pfs.get( i ).getID( );
+						rpc( "assignPortfolio", new Call<Void>( ) {
+							@Override public Void call( ) throws Exception { gmrpc.assignPortfolio( spID, pfID ); return null; }
+						} );
+					}
+				}
+				
+				// start the game and play the plan rounds
+				fire( StartGameEvent.class );
+				rpc( "startGame", new Call<Void>( ) {
+					@Override public Void call( ) throws Exception { gmrpc.startGame( gmID ); return null; }
+				} );
+				for( int r = 0; r < rounds; r++ ) {
+					think( );
+					fire( PlanEvent.class );
+					rpc( "startPlanRound", new Call<Void>( ) {
+						@Override public Void call( ) throws Exception { gmrpc.startPlanRound( gmID ); return null; }
+					} );
+					
+					// wait until the joint plan is accepted
+					boolean accepted = false;
+					while( !accepted ) {
+						final List<Event> events = listen( gmID );
+						if( events == null ) return;
+						for( Event e : events )
+							accepted |= (e instanceof AcceptedEvent && ((AcceptedEvent) e).isAccepted( ));
+					}
+					synchronized( LoadGenerator.this ) { completed++; }
+				}
+			} catch( Exception e ) {
+				System.err.println( "Room " + index + " failed: " + e.getMessage( ) );
+			} finally {
+				// end the game, this disconnects all clients
+				ended = true;
+				try {
+					server.endServer( server.getGameServer( gameID ) );
+				} catch( Exception e ) {
+					System.err.println( "Failed to end room " + index + ": " + e.getMessage( ) );
+				}
+				for( Thread t : threads ) {
+					try {
+						t.join( );
+					} catch( InterruptedException ie ) {
+						Thread.currentThread( ).interrupt( );
+					}
+				}
+			}
+		}
+	}
+	
+	/**
+	 * A synthetic service provider that answers the game events
+	 */
+	protected class ServiceProvider implements Runnable {
+		/** The room of the player */
+		protected final Room room;
+		
+		/** The player number */
+		protected final int index;
+		
+		/** The random generator for plan changes, seeded per player */
+		protected final Random rand;
+		
+		/** The client ID */
+		protected BasicID clientID;
+		
+		/** The client with its player and portfolio */
+		protected SPClient client;
+		
+		/** The local copy of the joint plan */
+		protected JointPlan jplan;
+		
+		/** The game period */
+		protected TimeSpan period;
+		
+		/**
+		 * Creates a new service provider
+		 * 
+		 * @param room The room
+		 * @param index The player number
+		 */
+		protected ServiceProvider( Room room, int index ) {
+			this.room = room;
+			this.index = index;
+			this.rand = new Random( room.index * 1000 + index );
+		}
+		
+		/**
+		 * @see java.lang.Runnable#run()
+		 */
+		@Override
+		public void run( ) {
+			try {
+				// connect and join the game
+				clientID = rpc( "connect", new Call<BasicID>( ) {
+					@Override public BasicID call( ) throws Exception { return clientrpc.connect( new ConnectRequest( ClientType.ServiceProvider ) ).getClient( ).getID( ); }
+				} );
+				rpc( "joinGame", new Call<Void>( ) {
+					@Override public Void call( ) throws Exception { sprpc.joinGame( new JoinGameRequest( clientID, room.gameID, "Player " + index ) ); return null; }
+				} );
+				
+				// and answer the events until disconnected
+				while( true ) {
+					final List<Event> events = room.listen( clientID );
+					if( events == null ) return;
+					
+					for( Event e : events ) {
+						if( e instanceof AssignPortfolioEvent ) {
+							client = ((AssignPortfolioEvent) e).getClient( );
+						} else if( e instanceof StartGameEvent ) {
+							jplan = new JointPlan( ((StartGameEvent) e).getJointPlan( ) );
+							period = ((StartGameEvent) e).getGameInfo( ).getGamePeriod( );
+						} else if( e instanceof PlanEvent ) {
+							if( ((PlanEvent) e).submitPlan( ) ) plan( );
+						} else if( e instanceof AcceptEvent ) {
+							jplan = new JointPlan( ((AcceptEvent) e).getJointPlan( ) );
+							think( );
+							room.fire( AcceptedEvent.class );
+							rpc( "acceptPlan", new Call<Void>( ) {
+								@Override public Void call( ) throws Exception { sprpc.acceptPlan( clientID, true ); return null; }
+							} );
+						} else if( e instanceof DisconnectEvent || e instanceof GameServerEvent ) {
+							return;
+						}
+					}
+				}
+			} catch( Exception e ) {
+				if( !room.ended ) System.err.println( "Player " + index + " of room " + room.index + " failed: " + e.getMessage( ) );
+			}
+		}
+		
+		/**
+		 * Sends the plan changes of a round and submits the plan
+		 * 
+		 * @throws Exception if a change or the submit failed
+		 */
+		protected void plan( ) throws Exception {
+			final List<Task> tasks = client.getPlayer( ).getPortfolio( ).getTasks( );
+			for( int c = 0; c < changes && tasks.size( ) > 0; c++ ) {
+				think( );
+				
+				// remove a planned task or plan an unplanned one
+				final Task task = tasks.get( rand.nextInt( tasks.size( ) ) );
+				final PlanTask pt = jplan.getPlanned( task );
+				final PlanChange change;
+				if( pt != null )
+					change = PlanChange.remove( pt );
+				else
+					change = PlanChange.add( task.getMethods( ).get( rand.nextInt( task.getMethods( ).size( ) ) ), new TimePoint( period.getStart( ).getWeek( ) + rand.nextInt( Math.max( period.getWeeks( ), 1 ) ) ) );
+				jplan.applyChange( change, false );
+				
+				room.fire( PlanChangeBatchEvent.class );
+				rpc( "planChange", new Call<Void>( ) {
+					@Override public Void call( ) throws Exception { sprpc.planChange( clientID, change ); return null; }
+				} );
+			}
+			
+			think( );
+			room.fire( AcceptEvent.class );
+			rpc( "submitPlan", new Call<Void>( ) {
+				@Override public Void call( ) throws Exception { sprpc.submitPlan( clientID, jplan.getPlan( client.getPlayer( ) ) ); return null; }
+			} );
+		}
+	}
+	
+	/**
+	 * A synthetic score board that receives the plan change batches of the
+	 * room, so that their lag is recorded
+	 */
+	protected class ScoreBoard implements Runnable {
+		/** The room of the score board */
+		protected final Room room;
+		
+		/**
+		 * Creates a new score board
+		 * 
+		 * @param room The room
+		 */
+		protected ScoreBoard( Room room ) {
+			this.room = room;
+		}
+		
+		/**
+		 * @see java.lang.Runnable#run()
+		 */
+		@Override
+		public void run( ) {
+			try {
+				// connect and join the game
+				final BasicID sbID = rpc( "connect", new Call<BasicID>( ) {
+					@Override public BasicID call( ) throws Exception { return clientrpc.connect( new ConnectRequest( ClientType.ScoreBoard ) ).getClient( ).getID( ); }
+				} );
+				rpc( "joinGame", new Call<Void>( ) {
+					@Override public Void call( ) throws Exception { sbrpc.joinGame( new JoinGameRequest( sbID, room.gameID, "Score board" ) ); return null; }
+				} );
+				
+				// and receive the events until disconnected
+				while( true ) {
+					final List<Event> events = room.listen( sbID );
+					if( events == null ) return;
+					
+					for( Event e : events )
+						if( e instanceof DisconnectEvent || e instanceof GameServerEvent ) return;
+				}
+			} catch( Exception e ) {
+				if( !room.ended ) System.err.println( "Score board of room " + room.index + " failed: " + e.getMessage( ) );
+			}
+		}
+	}
+	
+	/**
+	 * Records durations and computes their percentiles
+	 */
+	protected static class Recorder {
+		/** The recorded durations in nanoseconds */
+		private long[] samples = new long[ 1024 ];
+		
+		/** The number of recorded durations */
+		private int count = 0;
+		
+		/** The number of failed calls */
+		private int errors = 0;
+		
+		/**
+		 * Records a duration
+		 * 
+		 * @param nanos The duration in nanoseconds
+		 */
+		public synchronized void add( long nanos ) {
+			if( count == samples.length ) samples = Arrays.copyOf( samples, count * 2 );
+			samples[ count++ ] = nanos;
+		}
+		
+		/**
+		 * Records a failed call
+		 */
+		public synchronized void error( ) {
+			errors++;
+		}
+		
+		/** @return The number of recorded durations */
+		public synchronized int getCount( ) { return count; }
+		
+		/** @return The number of failed calls */
+		public synchronized int getErrors( ) { return errors; }
+		
+		/**
+		 * @param p The percentile as fraction
+		 * @return The duration at the percentile in milliseconds
+		 */
+		public synchronized double getPercentile( double p ) {
+			if( count == 0 ) return 0;
+			
+			final long[] sorted = Arrays.copyOf( samples, count );
+			Arrays.sort( sorted );
+			return sorted[ Math.max( (int) Math.ceil( p * count ) - 1, 0 ) ] / 1e6;
+		}
+	}
+}
@@ -23,6 +23,8 @@ import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import javax.servlet.ServletContext;
 import javax.servlet.ServletContextEvent;
@@ -31,14 +33,17 @@ import javax.servlet.ServletContextListener;
 import plangame.gwt.server.clients.ClientManager;
 import plangame.gwt.server.config.ServerConfig;
 import plangame.gwt.server.events.EventManager;
+import plangame.gwt.server.events.EventReceipt;
 import plangame.gwt.server.events.EventTimeOutException;
 import plangame.gwt.server.gametrace.GameTracer;
+import plangame.gwt.server.gametrace.GameTracer.TracerVersion;
 import plangame.gwt.server.log.Logger;
 import plangame.gwt.server.resource.locale.Lang;
 import plangame.gwt.shared.DebugGlobals;
 import plangame.gwt.shared.GameServerConfig;
 import plangame.gwt.shared.LogType;
 import plangame.gwt.shared.clients.Client;
+import plangame.gwt.shared.clients.GMClient;
 import plangame.gwt.shared.clients.GameClient;
 import plangame.gwt.shared.clients.SPClient;
 import plangame.gwt.shared.events.DisconnectEvent;
@@ -72,7 +77,7 @@ public class Server extends BasicObject implements ServletContextListener {
 	protected static Server instance;
 	
 	/** The active game servers */
-	protected List<GameServer> gameservers;
+	protected ConcurrentMap<BasicID, GameServer> gameservers;
 
 	/** Client manager */
 	protected ClientManager clientmanager;
@@ -137,6 +142,18 @@ public class Server extends BasicObject implements ServletContextListener {
 		try {
 			// FIXME load server options from XML
 			final ServerConfig config = new ServerConfig( );
+			
+			// the binary trace format is selected with the traceversion context
+			// parameter (V1 or V2)
+			final String traceversion = context.getInitParameter( "traceversion" );
+			if( traceversion != null ) {
+				try {
+					config.setTraceVersion( TracerVersion.valueOf( traceversion ) );
+				} catch( IllegalArgumentException iae ) {
+					System.err.println( "Unknown trace version '" + traceversion + "', using " + config.getTraceVersion( ) );
+				}
+			}
+			
 			s = new Server( serverID, Lang.get( "ServerName" ), config );
 			Lang.setLocale( "en" );
 
@@ -169,6 +186,9 @@ public class Server extends BasicObject implements ServletContextListener {
 		
 		eventmanager.stop( );
 		
+		// write the remaining log messages
+		if( logger != null ) logger.close( );
+		
 		/** Wait a little for the event manager to stop */
 		long killtime = config.getEventThreadTime( );
 		while( Thread.activeCount( ) > 1 && killtime > 0) 
@@ -209,7 +229,7 @@ public class Server extends BasicObject implements ServletContextListener {
 		eventmanager.setServer( this );
 		
 		// create game servers and clients list
-		gameservers = new ArrayList<GameServer>( );
+		gameservers = new ConcurrentHashMap<BasicID, GameServer>( );
 		clientmanager = new ClientManager( this );
 		
 		// log start of server
@@ -225,6 +245,10 @@ public class Server extends BasicObject implements ServletContextListener {
 		for( Client c : clientmanager.getClients( ) )
 			eventmanager.fireEvent( getID( ), c, new DisconnectEvent( c.getID( ), DisconnectReason.Shutdown ) );
 		
+		// stop all game servers
+		for( GameServer gs : gameservers.values( ) )
+			gs.shutdown( );
+		
 		// notify client manager of server shutdown
 		clientmanager.stop( );
 	}
@@ -291,7 +315,7 @@ public class Server extends BasicObject implements ServletContextListener {
 			final GameClient gclient = (GameClient)client;
 			if( gclient.getGameID( ) != null ) {
 				try {
-					getGameServer( gclient.getGameID( ) ).disconnect( gclient, reason );
+					getGameServer( gclient.getGameID( ) ).commands( ).disconnect( gclient, reason );
 				} catch( Exception e ) {
 					// this is not very bad, just log a warning
 					log( LogType.Warning, "Disconnect: the client with ID '" + client.getID( ) + "' is not connected to game server '" + gclient.getGameID( ) + "'" );
@@ -317,16 +341,10 @@ public class Server extends BasicObject implements ServletContextListener {
 	 * @return The number of disconnected clients
 	 */
 	public int kickAll( DisconnectReason reason ) {
-		int disc = 0;
-		
-		log( LogType.Verbose, "Disconnecting " + clientmanager.getClients( ).size( ) + " client(s)" );		
-		
-		for( int i = clientmanager.getClients( ).size( ) - 1; i >= 0; i-- ) {
-			final Client client = clientmanager.getClients( ).get( i );
-			disc += (kick( client, reason ) ? 1 : 0);
-		}
+		final List<Client> clients = clientmanager.getClients( );
+		log( LogType.Verbose, "Disconnecting " + clients.size( ) + " client(s)" );		
 		
-		return disc;
+		return kickAll( clients, reason );
 	}
 	
 	/**
@@ -337,15 +355,44 @@ public class Server extends BasicObject implements ServletContextListener {
 	 * @return The number of disconnected clients
 	 */
 	protected int kickAll( GameServer gameserver, DisconnectReason reason ) {
-		int kicked = 0;
-		
-		for( int i = gameserver.getClients( ).size( ) - 1; i >= 0; i-- ) {
-			final Client c = gameserver.getClients( ).get( i );
-			kicked += (kick( c, reason ) ? 1 : 0);
-		}
+		final List<Client> clients = new ArrayList<Client>( gameserver.commands( ).getClients( ) );
 		
 		// kick GM
-		if( gameserver.getManager( ) != null ) kicked += (kick( gameserver.getManager( ), reason ) ? 1 : 0);
+		final GMClient manager = gameserver.commands( ).getManager( );
+		if( manager != null ) clients.add( manager );
+		
+		return kickAll( clients, reason );
+	}
+	
+	/**
+	 * Kicks all the clients in the list. The clients are all notified at once,
+	 * the server then waits for the clients to receive the notification within
+	 * one client event timeout before disconnecting them.
+	 * 
+	 * @param clients The clients to kick
+	 * @param reason The reason for the disconnect
+	 * @return The number of disconnected clients
+	 */
+	protected int kickAll( List<Client> clients, DisconnectReason reason ) {
+		// notify all clients that they are being disconnected
+		final List<EventReceipt> receipts = new ArrayList<EventReceipt>( clients.size( ) );
+		for( Client c : clients )
+			receipts.add( getEM( ).fireEventAsync( getID( ), c, new DisconnectEvent( c.getID( ), reason ) ) );
+		
+		// wait for the notifications to be received, all within the same time
+		final long deadline = System.currentTimeMillis( ) + config.getClientEventTimeout( );
+		int kicked = 0;
+		for( int i = 0; i < clients.size( ); i++ ) {
+			final Client c = clients.get( i );
+			final EventReceipt receipt = receipts.get( i );
+			if( receipt != null && !receipt.await( deadline - System.currentTimeMillis( ) ) ) {
+				// no critical failure, log a warning
+				log( LogType.Warning, Lang.get( "EventTimeOut", c.getID( ).toString( ) ) );
+			}
+			
+			// disconnect the client
+			kicked += (disconnect( c, reason ) ? 1 : 0);
+		}
 		
 		return kicked;
 	}
@@ -424,8 +471,8 @@ public class Server extends BasicObject implements ServletContextListener {
 	public List<GameServerInfo> getGameServers( ) {
 		final List<GameServerInfo> serverlist = new ArrayList<GameServerInfo>( );
 		
-		for( GameServer s : gameservers )
-			serverlist.add( s.getServerInfo( ) );
+		for( GameServer s : gameservers.values( ) )
+			serverlist.add( s.commands( ).getServerInfo( ) );
 		
 		log( LogType.Verbose, "Requested game server list" );
 		
@@ -440,7 +487,7 @@ public class Server extends BasicObject implements ServletContextListener {
 	 * @throws NoSuchGameServerException if there is no active server with the given gameID
 	 */
 	public GameServer getGameServer( BasicID gameID ) throws NoSuchGameServerException {
-		final GameServer gameserver = BasicObject.fromList( gameservers, gameID );
+		final GameServer gameserver = gameservers.get( gameID );
 		if( gameserver == null ) {
 			final String emsg = Lang.get( "NoGameServer", gameID.toString( ) );
 			log( LogType.Error, emsg );
@@ -461,7 +508,7 @@ public class Server extends BasicObject implements ServletContextListener {
 	 */
 	public JoinGameResponse joinServer( GameServer game, GameClient client, JoinGameRequest request ) throws GameServerException {		
 		// try and join the game
-		return game.join( client, request );
+		return game.commands( ).join( client, request );
 	}
 
 	/**
@@ -476,7 +523,7 @@ public class Server extends BasicObject implements ServletContextListener {
 	 */
 	public GameServerInfo createGameServer( BasicID gameID, String gameName, String gamefile, GameServerConfig gameconfig ) throws GameServerException {
 		// check if there is already a server with this ID
-		if( BasicObject.fromList( gameservers, gameID ) != null ) {
+		if( gameservers.containsKey( gameID ) ) {
 			final String emsg = Lang.get( "CreateGameExists", gameID.toString( ) );
 			log( LogType.Error, emsg );
 			throw new GameServerException( gameID );
@@ -485,12 +532,17 @@ public class Server extends BasicObject implements ServletContextListener {
 		// create the game server
 		final GameServer gameserver = new GameServer( this, gameID, gameName, new GameXMLParser( gamefile ), gameconfig );
 		
-		// add the game server to the list of games
-		gameservers.add( gameserver );
+		// add the game server to the list of games, unless another server with
+		// the same ID was created meanwhile
+		if( gameservers.putIfAbsent( gameID, gameserver ) != null ) {
+			gameserver.shutdown( );
+			log( LogType.Error, Lang.get( "CreateGameExists", gameID.toString( ) ) );
+			throw new GameServerException( gameID );
+		}
 		
 		log( LogType.Info, "Game server with ID '" + gameID + "' has been created" );
 		
-		return gameserver.getServerInfo( );
+		return gameserver.commands( ).getServerInfo( );
 	}
 	
 	/**
@@ -505,7 +557,8 @@ public class Server extends BasicObject implements ServletContextListener {
 		
 		// and restart the server
 		// first remove the old server from the list
-		gameservers.remove( gameserver );
+		gameservers.remove( gameserver.getID( ) );
+		gameserver.shutdown( );
 		
 		if( DebugGlobals.isDebug( ) )
 			System.out.println( "=======[ Restart (GameServer ID: " + gameserver.getID( ) + " ]=======" );
@@ -524,7 +577,8 @@ public class Server extends BasicObject implements ServletContextListener {
 		final int disc = kickAll( gameserver, DisconnectReason.Shutdown );
 		
 		// remove the server from the lost
-		gameservers.remove( gameserver );
+		gameservers.remove( gameserver.getID( ) );
+		gameserver.shutdown( );
 		
 		return disc;
 	}
@@ -569,13 +623,14 @@ public class Server extends BasicObject implements ServletContextListener {
 	 * @return The GameServerState object representing the server state
 	 */
 	public GameServerState getServerState( GameServer gameserver ) {
-		return gameserver.getServerState( );
+		return gameserver.commands( ).getServerState( );
 	}
 	
 	/**
-	 * Client polls for events using this function, the top event is returned in
-	 * case of multiple queued events. If no events exist for the client, the
-	 * function returns an empty list.
+	 * Client polls for events using this function, all queued events are
+	 * returned at once. If no events exist for the client, the request is held
+	 * until an event arrives or the event poll timeout has passed, in which case
+	 * the function returns an empty list.
 	 * 
 	 * @param client The client listening for events
 	 * @return The list of pending event or null if the server is no longer
@@ -621,6 +676,17 @@ public class Server extends BasicObject implements ServletContextListener {
 		return log( "G " + gameID, message, type );
 	}
 	
+	/**
+	 * Checks if messages of the specified type are logged, can be used to
+	 * prevent building log messages that are not written
+	 * 
+	 * @param type The log message type
+	 * @return True if messages of this type are logged
+	 */
+	public boolean isLogged( LogType type ) {
+		return logger != null && logger.isLogged( type );
+	}
+	
 	/**
 	 * Logs a message
 	 * 
@@ -654,6 +720,13 @@ public class Server extends BasicObject implements ServletContextListener {
 		return clientmanager.getClients( );
 	}
 	
+	/**
+	 * @return The server configuration
+	 */
+	public ServerConfig getConfiguration( ) {
+		return config;
+	}
+	
 	/**
 	 * @return The event manager for the server
 	 */
@@ -665,9 +738,12 @@ public class Server extends BasicObject implements ServletContextListener {
 	 * Translate the path to the correct path on the server
 	 * 
 	 * @param relpath The relative path
-	 * @return The absolute path on the server
+	 * @return The absolute path on the server, relative to the working
+	 * directory if the server runs without servlet context
 	 */
 	public static String getPath( String relpath ) {
+		if( context == null ) return new File( relpath ).getAbsolutePath( );
+		
 		return context.getRealPath( relpath );
 	}
 	
@@ -0,0 +1,122 @@
+/**
+ * @file ClientLookupBenchmark.java
+ * @brief Short description of file
+ *
+ * This file is created at Almende B.V. It is open-source software and part of the Common
+ * Hybrid Agent Platform (CHAP). A toolbox with a lot of open-source tools, ranging from
+ * thread pools and TCP/IP components to control architectures and learning algorithms.
+ * This software is published under the GNU Lesser General Public license (LGPL).
+ *
+ * Copyright  2026 agent <agent@local>
+ *
+ * @author       agent
+ * @date         17 okt. 2026
+ * @project      NGI
+ * @company      Almende B.V.
+ */
+package plangame.gwt.server.clients;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import plangame.gwt.shared.clients.Client;
+import plangame.gwt.shared.clients.Client.ClientType;
+import plangame.model.object.BasicID;
+import plangame.model.object.BasicObject;
+
+/**
+ * Microbenchmark of the client lookup that is performed on every RPC. Compares
+ * the ID index of the client manager with the linear list scan that was used
+ * before, for several numbers of connected clients.
+ *
+ * @author agent
+ */
+public class ClientLookupBenchmark {
+	/** The numbers of connected clients to benchmark */
+	private final static int[] CLIENT_COUNTS = { 1000, 10000, 100000 };
+	
+	/** Number of indexed lookups per measurement */
+	private final static int INDEX_LOOKUPS = 1000000;
+	
+	/** Number of linear scan lookups per measurement */
+	private final static int SCAN_LOOKUPS = 2000;
+	
+	/** Number of measurements before the reported one, to warm up the JIT */
+	private final static int WARMUP_RUNS = 3;
+	
+	/** Sink for lookup results so that the lookups are not optimised away */
+	private static int sink;
+	
+	/**
+	 * Runs the benchmark and prints the lookup cost per client count
+	 * 
+	 * @param args Not used
+	 */
+	public static void main( String[] args ) {
+		System.out.println( "clients\tindex (ns/lookup)\tscan (ns/lookup)" );
+		
+		for( int n : CLIENT_COUNTS ) {
+			// connect the clients
+			final ClientManager cm = new ClientManager( null );
+			final List<BasicID> IDs = new ArrayList<BasicID>( n );
+			try {
+				for( int i = 0; i < n; i++ )
+					IDs.add( cm.newClient( ClientType.ServiceProvider ).getID( ) );
+			} catch( Exception e ) {
+				System.err.println( "Failed to create clients: " + e.getMessage( ) );
+				cm.stop( );
+				return;
+			}
+			
+			// look up random clients
+			final BasicID[] lookups = new BasicID[ INDEX_LOOKUPS ];
+			final Random rand = new Random( n );
+			for( int i = 0; i < lookups.length; i++ )
+				lookups[ i ] = IDs.get( rand.nextInt( n ) );
+			
+			double index = 0, scan = 0;
+			for( int r = 0; r <= WARMUP_RUNS; r++ ) {
+				index = timeIndex( cm, lookups );
+				scan = timeScan( cm.getClients( ), lookups );
+			}
+			
+			System.out.println( n + "\t" + String.format( "%.1f", index ) + "\t" + String.format( "%.1f", scan ) );
+			cm.stop( );
+		}
+		
+		if( sink == 42 ) System.out.println( );
+	}
+	
+	/**
+	 * Measures the lookup cost using the client index
+	 * 
+	 * @param cm The client manager
+	 * @param lookups The IDs to look up
+	 * @return The average time per lookup in nanoseconds
+	 */
+	private static double timeIndex( ClientManager cm, BasicID[] lookups ) {
+		final long start = System.nanoTime( );
+		for( int i = 0; i < INDEX_LOOKUPS; i++ ) {
+			final Client c = cm.getClient( lookups[ i ] );
+			sink += (c != null ? 1 : 0);
+		}
+		return (System.nanoTime( ) - start) / (double)INDEX_LOOKUPS;
+	}
+	
+	/**
+	 * Measures the lookup cost using a linear scan of the client list
+	 * 
+	 * @param clients The list of clients
+	 * @param lookups The IDs to look up
+	 * @return The average time per lookup in nanoseconds
+	 */
+	private static double timeScan( List<Client> clients, BasicID[] lookups ) {
+		final long start = System.nanoTime( );
+		for( int i = 0; i < SCAN_LOOKUPS; i++ ) {
+			final Client c = BasicObject.fromList( clients, lookups[ i ] );
+			sink += (c != null ? 1 : 0);
+		}
+		return (System.nanoTime( ) - start) / (double)SCAN_LOOKUPS;
+	}
+}
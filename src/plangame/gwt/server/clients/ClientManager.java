@@ -16,9 +16,13 @@
  */
 package plangame.gwt.server.clients;
 
+import java.security.SecureRandom;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.DelayQueue;
 
 import plangame.gwt.server.Server;
 import plangame.gwt.server.resource.locale.Lang;
@@ -33,8 +37,6 @@ import plangame.gwt.shared.exceptions.ClientNotConnectedException;
 import plangame.gwt.shared.exceptions.SessionExpiredException;
 import plangame.model.exceptions.InvalidObjectException;
 import plangame.model.object.BasicID;
-import plangame.model.object.BasicObject;
-import plangame.model.object.ObjectMap;
 
 /**
  * Server side manager for keeping track of connected clients
@@ -51,14 +53,25 @@ public class ClientManager {
 	/** The server we are managing clients for */
 	protected Server server;
 	
-	/** List of connected clients */
-	protected List<Client> clients;
+	/** Connected clients, indexed by their ID */
+	protected ConcurrentMap<BasicID, Client> clients;
 	
-	/** Client removal flag, if it is in this list it is scheduled for remove */
-	protected ObjectMap<Client, Long> removetime;
+	/** The generator of the random number part of client IDs, random IDs
+	 * cannot be guessed to take over the session of another client */
+	protected Random random;
+	
+	/** Client removal flags, if a client is in this map it is scheduled for
+	 * removal */
+	protected ConcurrentMap<BasicID, RemovalFlag> removeflags;
+	
+	/** The removal flags ordered on their removal time */
+	protected DelayQueue<RemovalFlag> removequeue;
 	
 	/** True as long as the client manager is running */
-	protected boolean running;
+	protected volatile boolean running;
+	
+	/** The thread that removes the flagged clients */
+	protected Thread managethread;
 		
 	/**
 	 * Creates a new ClientManager
@@ -73,54 +86,52 @@ public class ClientManager {
 	public ClientManager( Server server ) {
 		this.server = server;
 
-		// creates a new client list and remove flag map
-		clients = new ArrayList<Client>( );
-		removetime = new ObjectMap<Client, Long>( );
+		// creates a new client index and remove flag map
+		clients = new ConcurrentHashMap<BasicID, Client>( );
+		removeflags = new ConcurrentHashMap<BasicID, RemovalFlag>( );
+		removequeue = new DelayQueue<RemovalFlag>( );
+		
+		// generator for the client IDs
+		random = new SecureRandom( );
 		
 		// set the client manager as running
 		running = true;
 		
-		// create thread for client removal
-		new Thread( new Runnable( ) {
+		// create thread for client removal, it sleeps until the first flag
+		// expires
+		managethread = new Thread( new Runnable( ) {
 			
 			@Override
 			public void run( ) {
 				while( running ) {
-					manage( );
-					
 					try {
-						Thread.sleep( 500 );
+						manage( removequeue.take( ) );
 					} catch( InterruptedException ie ) { }
 				}
 			}
-		}, "Game-ClientManager" ).start( );
+		}, "Game-ClientManager" );
+		managethread.setDaemon( true );
+		managethread.start( );
 	}
 	
 	/**
-	 * Checks the client list for possible removals, this is done periodically
+	 * Removes the client of an expired removal flag, unless the flag has been
+	 * cleared in the meantime
+	 * 
+	 * @param flag The expired removal flag
 	 */
-	// TODO use queue for O(1) check instead of O(n)
-	protected void manage( ) {
-		// this function locks removetime, because it might be that some client
-		// is closing in the middle of this check
-		synchronized( removetime ) {
-			// check all clients in the remove map if we should remove them now
-			for( Client client : removetime.getKeys( ) ) {
-				// check if the client should be removed 
-				final long remtime = removetime.get( client );
-				if( remtime > System.currentTimeMillis( ) ) continue;
-				
-				// remove its flag from the map
-				removetime.remove( client );
-					
-				try {
-					remove( client );
-					server.log( LogType.Verbose, "Removed client '" + client + "' from server" );
-				} catch( ClientNotConnectedException se ) {
-					// client is already removed most likely, still send warning
-					server.log( LogType.Warning, "Failed to disconnect flagged client '" + client + "'" );
-				}
-			}
+	protected void manage( RemovalFlag flag ) {
+		final Client client = flag.getClient( );
+		
+		// only remove the flag if it is still the current flag of the client
+		if( flag.isCancelled( ) || !removeflags.remove( client.getID( ), flag ) ) return;
+		
+		try {
+			remove( client );
+			server.log( LogType.Verbose, "Removed client '" + client + "' from server" );
+		} catch( ClientNotConnectedException se ) {
+			// client is already removed most likely, still send warning
+			server.log( LogType.Warning, "Failed to disconnect flagged client '" + client + "'" );
 		}
 	}
 	
@@ -133,17 +144,26 @@ public class ClientManager {
 	 * @throws InvalidObjectException if the client type is unknown
 	 */
 	public Client newClient( ClientType type ) throws InvalidObjectException {
-		// get a new unique ID for the client (lower than GM ID)
-		boolean unique = false;
-		BasicID clientID = null;
-		while( !unique ) {
-			clientID = new BasicID( type.getIDPrefix( ) + (new Random( )).nextInt( MAX_CLIENT_ID ) );
+		// get a new random ID for the client, retry if it is already in use
+		while( true ) {
+			final BasicID clientID = new BasicID( type.getIDPrefix( ) + random.nextInt( MAX_CLIENT_ID ) );
+			final Client client = createClient( type, clientID );
 			
-			// check if the ID is unique
-			unique = isUniqueID( clientID ); 
+			// add client to the client index if the ID is unique
+			if( clients.putIfAbsent( clientID, client ) == null )
+				return client;
 		}
-		
-		// create the client
+	}
+	
+	/**
+	 * Creates a new client object of the specified type
+	 * 
+	 * @param type The type of client
+	 * @param clientID The ID of the client
+	 * @return The new client object
+	 * @throws InvalidObjectException if the client type is unknown
+	 */
+	protected Client createClient( ClientType type, BasicID clientID ) throws InvalidObjectException {
 		Client client = null;
 		switch( type ) {
 			case ServerManager:
@@ -167,8 +187,6 @@ public class ClientManager {
 				throw new InvalidObjectException( emsg );
 		}
 		
-		// add client to the client list		
-		clients.add( client );
 		return client;
 	}
 	
@@ -215,8 +233,12 @@ public class ClientManager {
 	 * @throws ClientNotConnectedException if the client was not connected
 	 */
 	public void remove( Client client ) throws ClientNotConnectedException {
-		if( !clients.remove( client ) )
+		if( clients.remove( client.getID( ) ) == null )
 			throw new ClientNotConnectedException( Lang.get( "ClientNotConnected", client.getID( ).toString( ) ) );
+		
+		// clear a pending removal flag
+		final RemovalFlag flag = removeflags.remove( client.getID( ) );
+		if( flag != null ) flag.cancel( );
 	}
 	
 	/**
@@ -230,10 +252,11 @@ public class ClientManager {
 	public void flagRemoval( Client client ) throws ClientNotConnectedException {
 		checkClient( client );
 		
-		// set its flag and use a timed callback to check if we should really
-		// remove the client, unless it is already flagged for removal
-		if( !removetime.containsKey( client ) )
-			removetime.put( client, System.currentTimeMillis( ) + CLIENT_DISCONNECT_TIME * 1000 );
+		// set its flag and queue it so that the client is removed when the flag
+		// expires, unless it is already flagged for removal
+		final RemovalFlag flag = new RemovalFlag( client, System.currentTimeMillis( ) + CLIENT_DISCONNECT_TIME * 1000 );
+		if( removeflags.putIfAbsent( client.getID( ), flag ) == null )
+			removequeue.add( flag );
 	}
 	
 	/**
@@ -247,18 +270,29 @@ public class ClientManager {
 		checkClient( client );
 		
 		// remove the client from the remove list, this may fail but only when the
-		// client wasn't scheduled for removal anyway
-		if( removetime.remove( client ) != null )
+		// client wasn't scheduled for removal anyway. The flag stays in the queue
+		// but is ignored when it expires.
+		final RemovalFlag flag = removeflags.remove( client.getID( ) );
+		if( flag != null ) {
+			flag.cancel( );
 			server.log( LogType.Verbose, "Cleared removal flag for client '" + client + "'" );
-		else
+		} else {
 			server.log( LogType.Verbose, "Client '" + client + "' was not flagged for removal" );
+		}
 	}
 	
 	/**
-	 * @return The list of connected clients
+	 * @return A list of the currently connected clients
 	 */
 	public List<Client> getClients( ) {
-		return clients;
+		return new ArrayList<Client>( clients.values( ) );
+	}
+	
+	/**
+	 * @return The number of connected clients
+	 */
+	public int getClientCount( ) {
+		return clients.size( );
 	}
 	
 	/**
@@ -268,7 +302,7 @@ public class ClientManager {
 	 * @return The client or null if there is no client with this ID
 	 */
 	public Client getClient( BasicID clientID ) {
-		return BasicObject.fromList( clients, clientID );
+		return clients.get( clientID );
 	}
 	
 	/**
@@ -278,7 +312,7 @@ public class ClientManager {
 	 * @return True if none of the clients has this ID
 	 */
 	public boolean isUniqueID( BasicID ID ) {
-		return (BasicObject.fromList( clients, ID ) == null);
+		return !clients.containsKey( ID );
 	}
 	
 	/**
@@ -292,7 +326,7 @@ public class ClientManager {
 		if( client == null )
 			throw new ClientNotConnectedException( Lang.get( "ClientNull" ) );
 		
-		if( BasicObject.fromList( clients, client.getID( ) ) == null )
+		if( !clients.containsKey( client.getID( ) ) )
 			throw new ClientNotConnectedException( Lang.get( "ClientNotConnected", client.getID( ).toString( ) ) );
 	}
 	
@@ -301,5 +335,6 @@ public class ClientManager {
 	 */
 	public void stop( ) {
 		running = false;
+		managethread.interrupt( );
 	}
 }
@@ -0,0 +1,90 @@
+/**
+ * @file RemovalFlag.java
+ * @brief Short description of file
+ *
+ * This file is created at Almende B.V. It is open-source software and part of the Common
+ * Hybrid Agent Platform (CHAP). A toolbox with a lot of open-source tools, ranging from
+ * thread pools and TCP/IP components to control architectures and learning algorithms.
+ * This software is published under the GNU Lesser General Public license (LGPL).
+ *
+ * Copyright  2026 agent <agent@local>
+ *
+ * @author       agent
+ * @date         17 okt. 2026
+ * @project      NGI
+ * @company      Almende B.V.
+ */
+package plangame.gwt.server.clients;
+
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+
+import plangame.gwt.shared.clients.Client;
+
+/**
+ * Removal flag of a client that is scheduled for removal. The flags are
+ * ordered on their removal time so that they can be kept in a delay queue,
+ * a flag that is cleared is cancelled instead of removed from the queue.
+ *
+ * @author agent
+ */
+public class RemovalFlag implements Delayed {
+	/** The client to remove */
+	protected final Client client;
+	
+	/** The time at which the client is removed (in milliseconds) */
+	protected final long removetime;
+	
+	/** True if the flag has been cleared */
+	protected volatile boolean cancelled;
+	
+	/**
+	 * Creates a new removal flag
+	 * 
+	 * @param client The client to remove
+	 * @param removetime The time of removal in milliseconds
+	 */
+	public RemovalFlag( Client client, long removetime ) {
+		this.client = client;
+		this.removetime = removetime;
+		cancelled = false;
+	}
+	
+	/** @return The client */
+	public Client getClient( ) { return client; }
+	
+	/** @return The removal time in milliseconds */
+	public long getRemoveTime( ) { return removetime; }
+	
+	/**
+	 * Cancels the flag, the client will not be removed
+	 */
+	public void cancel( ) {
+		cancelled = true;
+	}
+	
+	/** @return True if the flag has been cancelled */
+	public boolean isCancelled( ) { return cancelled; }
+	
+	/**
+	 * @see java.util.concurrent.Delayed#getDelay(java.util.concurrent.TimeUnit)
+	 */
+	@Override
+	public long getDelay( TimeUnit unit ) {
+		return unit.convert( removetime - System.currentTimeMillis( ), TimeUnit.MILLISECONDS );
+	}
+	
+	/**
+	 * @see java.lang.Comparable#compareTo(java.lang.Object)
+	 */
+	@Override
+	public int compareTo( Delayed o ) {
+		if( o instanceof RemovalFlag ) {
+			final long other = ((RemovalFlag) o).removetime;
+			return (removetime < other ? -1 : (removetime > other ? 1 : 0));
+		}
+		
+		final long d = getDelay( TimeUnit.MILLISECONDS ) - o.getDelay( TimeUnit.MILLISECONDS );
+		return (d < 0 ? -1 : (d > 0 ? 1 : 0));
+	}
+}
@@ -16,6 +16,9 @@
  */
 package plangame.gwt.server.config;
 
+import plangame.gwt.server.gametrace.GameTracer.TracerVersion;
+import plangame.gwt.server.gametrace.TraceWriter.Durability;
+
 /**
  * Class that contains all server configurable options, includes defaults
  *
@@ -35,6 +38,34 @@ public class ServerConfig {
 	 */
 	protected long eventthreadtime;
 	
+	/** Maximal time a listen request is held at the server while there are no
+	 * events for the client (in milliseconds), 0 to return immediately
+	 */
+	protected long eventpolltimeout;
+	
+	/** Time that plan changes are collected before they are sent to the score
+	 * board as one batch (in milliseconds), 0 to send every change separately
+	 */
+	protected long planchangeflush;
+	
+	/** Format version of the game trace files */
+	protected TracerVersion traceversion;
+	
+	/** Durability policy of the game trace files */
+	protected Durability tracedurability;
+	
+	/** Maximal time between trace file flushes when using group commits (in
+	 * milliseconds) */
+	protected long tracecommit;
+	
+	/** Maximal number of trace messages waiting to be written, tracing blocks
+	 * when this is exceeded */
+	protected int tracequeue;
+	
+	/** Number of rounds between two joint plan checkpoints in the trace, 0 to
+	 * disable checkpoints */
+	protected int tracecheckpoint;
+	
 	/**
 	 * Creates a new serverconfig, sets defaults
 	 */
@@ -42,6 +73,13 @@ public class ServerConfig {
 		usesessions = true;
 		clienteventwait = 30000;
 		eventthreadtime = 1000;
+		eventpolltimeout = 25000;
+		planchangeflush = 200;
+		traceversion = TracerVersion.V1;
+		tracedurability = Durability.GroupCommit;
+		tracecommit = 250;
+		tracequeue = 4096;
+		tracecheckpoint = 1;
 	}
 	
 	/**
@@ -62,4 +100,59 @@ public class ServerConfig {
 	 * will be terminated.
 	 */
 	public long getEventThreadTime( ) { return eventthreadtime; }
+	
+	/**
+	 * @return The maximal time in milliseconds that a client listen request is
+	 * held at the server when no events are pending for the client. Events that
+	 * are fired during this time are returned immediately. If 0, the listen
+	 * request returns immediately and the client falls back to polling.
+	 */
+	public long getEventPollTimeout( ) { return eventpolltimeout; }
+	
+	/**
+	 * @return The flush window in milliseconds for plan change events. Plan
+	 * changes that are fired within this window are merged per task and
+	 * delivered to the client as a single batch. If 0, every plan change is
+	 * delivered as a separate event.
+	 */
+	public long getPlanChangeFlushWindow( ) { return planchangeflush; }
+	
+	/**
+	 * @return The format version in which game traces are written, text (V1)
+	 * unless the binary format (V2) is selected
+	 */
+	public TracerVersion getTraceVersion( ) { return traceversion; }
+	
+	/**
+	 * Sets the format version in which game traces are written
+	 * 
+	 * @param traceversion The trace format version
+	 */
+	public void setTraceVersion( TracerVersion traceversion ) {
+		this.traceversion = traceversion;
+	}
+	
+	/**
+	 * @return The durability policy of the game trace files
+	 */
+	public Durability getTraceDurability( ) { return tracedurability; }
+	
+	/**
+	 * @return The maximal time in milliseconds between two flushes of a trace
+	 * file when the group commit durability policy is used
+	 */
+	public long getTraceCommitInterval( ) { return tracecommit; }
+	
+	/**
+	 * @return The maximal number of trace messages that may wait to be written,
+	 * the game server blocks on tracing when the writer falls behind this much
+	 */
+	public int getTraceQueueSize( ) { return tracequeue; }
+	
+	/**
+	 * @return The number of rounds between two checkpoints of the joint plan in
+	 * the game trace, a trace reader can jump to a checkpoint without replaying
+	 * the trace before it. If 0, no checkpoints are traced.
+	 */
+	public int getTraceCheckpointInterval( ) { return tracecheckpoint; }
 }
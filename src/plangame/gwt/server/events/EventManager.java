@@ -16,19 +16,22 @@
  */
 package plangame.gwt.server.events;
 
-import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import plangame.gwt.server.GameServer;
+import plangame.gwt.server.GameServerCommands;
 import plangame.gwt.server.Server;
 import plangame.gwt.server.resource.locale.Lang;
 import plangame.gwt.shared.LogType;
 import plangame.gwt.shared.clients.Client;
+import plangame.gwt.shared.clients.GMClient;
+import plangame.gwt.shared.clients.SBClient;
 import plangame.gwt.shared.events.Event;
 import plangame.gwt.shared.exceptions.ClientNotConnectedException;
 import plangame.gwt.shared.exceptions.EventException;
 import plangame.model.object.BasicID;
-import plangame.model.object.ObjectMap;
 
 /**
  * Class handling all client/server event related infrastructure 
@@ -39,11 +42,11 @@ public class EventManager {
 	/** The server using this event manager */
 	protected Server server;
 	
-	/** Map of clients listening for events */
-	protected ObjectMap<Client, List<Event>> eventmap;
+	/** Map of clients listening for events, the key is the client ID */
+	protected ConcurrentMap<BasicID, EventQueue> eventmap;
 		
 	/** The event manager keeps on running until this flag is false */
-	private boolean serverup;
+	private volatile boolean serverup;
 
 	/** Sleep time between polling of events (msec) */
 	protected final static int EVENT_SLEEP = 500;
@@ -57,7 +60,7 @@ public class EventManager {
 		serverup = true;
 		
 		// create event map and response map list
-		eventmap = new ObjectMap<Client, List<Event>>( );
+		eventmap = new ConcurrentHashMap<BasicID, EventQueue>( );
 		
 		
 		/* Removed: no longer necessary, everything is done through asynchronous
@@ -101,6 +104,10 @@ public class EventManager {
 	public void stop( ) {
 		// stop all handlers
 		serverup = false;
+		
+		// release all clients that are waiting for events
+		for( EventQueue q : eventmap.values( ) )
+			q.close( );
 	}
 	
 	/**
@@ -109,9 +116,9 @@ public class EventManager {
 	 * @param client The client to add
 	 */
 	public void addClient( Client client ) {
-		assert (eventmap.containsKey( client )) : "Client is already registered for events";
+		assert (eventmap.containsKey( client.getID( ) )) : "Client is already registered for events";
 		server.log( LogType.Event, "Added client '" + client + "' to event map" );
-		eventmap.put( client, new ArrayList<Event>( ) );
+		eventmap.put( client.getID( ), createQueue( ) );
 	}
 	
 	/**
@@ -121,7 +128,10 @@ public class EventManager {
 	 */
 	public void resetClient( Client client ) {
 		server.log( LogType.Event, "Reset event map for client '" + client + "'" );
-		eventmap.put( client, new ArrayList<Event>( ) );
+		
+		// release a listen request that is still held for the previous view
+		final EventQueue old = eventmap.put( client.getID( ), createQueue( ) );
+		if( old != null ) old.close( );
 	}
 	
 	/**
@@ -131,19 +141,31 @@ public class EventManager {
 	 * @throws ClientNotConnectedException if the client was not in the event map
 	 */
 	public void removeClient( Client client ) throws ClientNotConnectedException {
-		if( !eventmap.containsKey( client ) )
+		final EventQueue queue = eventmap.remove( client.getID( ) );
+		if( queue == null )
 			throw new ClientNotConnectedException( Lang.get( "ClientNotConnected", client.getID( ).toString( ) ) );
 		server.log( LogType.Event, "Removed client '" + client + "' from the event map" );
-		eventmap.remove( client );
+		queue.close( );
 	}
 
 	/**
-	 * Returns the pending event list for the client
+	 * Creates a new event queue for a client, uses the plan change flush window
+	 * of the server configuration
+	 * 
+	 * @return The new event queue
+	 */
+	protected EventQueue createQueue( ) {
+		return new EventQueue( server.getConfiguration( ).getPlanChangeFlushWindow( ) );
+	}
+	
+	/**
+	 * Returns the pending event queue for the client
 	 * 
 	 * @param client The client
+	 * @return The event queue or null if the client is not registered
 	 */
-	protected List<Event> getEventList( Client client ) {
-		return eventmap.get( client );
+	protected EventQueue getEventQueue( Client client ) {
+		return eventmap.get( client.getID( ) );
 	}
 	
 	/**
@@ -153,7 +175,7 @@ public class EventManager {
 	 * @return True if the client is registered at the EM
 	 */
 	public boolean isRegistered( Client client ) {
-		return eventmap.containsKey( client );
+		return eventmap.containsKey( client.getID( ) );
 	}
 	
 	/**
@@ -165,13 +187,16 @@ public class EventManager {
 	 * @return True if the event is added
 	 */
 	protected boolean addEvent( Client client, Event event ) {
-		if( getEventList( client ) == null ) return false;
+		final EventQueue queue = getEventQueue( client );
+		if( queue == null ) return false;
 		
-		return getEventList( client ).add( event );
+		return queue.add( event );
 	}
 	
 	/**
-	 * Polls the event queue for the given client
+	 * Polls the event queue for the given client. If there are no pending
+	 * events, the request is held until an event is fired for the client or the
+	 * poll timeout of the server configuration has passed.
 	 * 
 	 * @param client The client to poll for
 	 * @return The list of pending events or null if the server is no longer
@@ -180,10 +205,13 @@ public class EventManager {
 	 */
 	public List<Event> listen( Client client ) throws EventException {
 		// check if the client is registered
-		if( !isRegistered( client ) )
+		final EventQueue queue = getEventQueue( client );
+		if( queue == null )
 			throw new EventException( Lang.get( "NotRegisteredForEvents", client.getID( ).toString( ) ) );
 		
-		return getEvents( client );
+		// wait for events if the server is still running
+		if( !serverup ) return null;
+		return queue.await( server.getConfiguration( ).getEventPollTimeout( ) );
 	}
 	
 	/**
@@ -191,16 +219,13 @@ public class EventManager {
 	 * client event queue
 	 * 
 	 * @param client The client to get events for
-	 * @return The events or null if no event
+	 * @return The events or null if the client is not registered
 	 */
 	protected List<Event> getEvents( Client client ) {
-		final List<Event> events = new ArrayList<Event>( );
-		
-		// remove all pending events (one a time to avoid synchronisation issues)
-		while( getEventList( client ).size( ) > 0 )
-			events.add( getEventList( client ).remove( 0 ) );
+		final EventQueue queue = getEventQueue( client );
+		if( queue == null ) return null;
 		
-		return events;
+		return queue.drain( );
 	}
 	
 	/**
@@ -225,19 +250,23 @@ public class EventManager {
 	 * @return The number of notified clients
 	 */
 	public int fireEvent( GameServer gameserver, boolean notifygm, boolean notifysb, Event event ) {
+		final GameServerCommands gs = gameserver.commands( );
 		int fired = 0;
-		for( Client c : gameserver.getClients( ) )
+		for( Client c : gs.getClients( ) )
 			fired += (fireEvent( gameserver.getID( ), c, event ) ? 1 : 0);
 		
 		// send it also to the GM
-		if( notifygm && gameserver.getManager( ) != null )
-			fired += fireEvent( gameserver.getID( ), gameserver.getManager( ), event ) ? 1 : 0;
+		final GMClient manager = (notifygm ? gs.getManager( ) : null);
+		if( manager != null )
+			fired += fireEvent( gameserver.getID( ), manager, event ) ? 1 : 0;
 		
 		// and SB
-		if( notifysb & gameserver.getScoreBoard( ) != null )
-			fired += fireEvent( gameserver.getID( ), gameserver.getScoreBoard( ), event ) ? 1 : 0;
+		final SBClient scoreboard = (notifysb ? gs.getScoreBoard( ) : null);
+		if( scoreboard != null )
+			fired += fireEvent( gameserver.getID( ), scoreboard, event ) ? 1 : 0;
 		
-		server.log( LogType.Event, "Event broadcast notified " + fired + " client(s), sender: " + event.getSenderID( ) );		
+		if( server.isLogged( LogType.Event ) )
+			server.log( LogType.Event, "Event broadcast notified " + fired + " client(s), sender: " + event.getSenderID( ) );		
 		
 		return fired;
 	}
@@ -255,7 +284,8 @@ public class EventManager {
 		// set event sender
 		event.setSender( senderID );
 		
-		server.log( LogType.Event, "Event '" + event.getName( ) + "' fired for client " + client.getID( ) );
+		if( server.isLogged( LogType.Event ) )
+			server.log( LogType.Event, "Event '" + event.getName( ) + "' fired for client " + client.getID( ) );
 		return addEvent( client, event );
 	}
 		
@@ -281,6 +311,28 @@ public class EventManager {
 		return map;
 	} */
 	
+	/**
+	 * Fires the event for the specified client and returns a receipt that is
+	 * completed when the client has retrieved the event. This does not block,
+	 * the caller can wait for the receipt when required.
+	 * 
+	 * @param senderID The ID of the sender
+	 * @param client The client to receive the event
+	 * @param event The event to send
+	 * @return The receipt of the event or null if the client is not registered
+	 */
+	public EventReceipt fireEventAsync( BasicID senderID, Client client, Event event ) {
+		// set event sender
+		event.setSender( senderID );
+		
+		final EventQueue queue = getEventQueue( client );
+		if( queue == null ) return null;
+		
+		if( server.isLogged( LogType.Event ) )
+			server.log( LogType.Event, "Event '" + event.getName( ) + "' fired for client " + client.getID( ) );
+		return queue.addTracked( event );
+	}
+	
 	/**
 	 * Fires the event and waits (blocks) for the given maximum duration for the
 	 * client to process it.
@@ -293,24 +345,10 @@ public class EventManager {
 	 * disconnected during wait
 	 */
 	public void fireEventAndWait( BasicID senderID, Client client, Event event, long maxwaittime ) throws EventTimeOutException {
-		// fire the event as usual
-		fireEvent( senderID, client, event );
+		final EventReceipt receipt = fireEventAsync( senderID, client, event );
 		
-		// but now wait for it to be processed
-		long timerem = maxwaittime;
-		while( getEventList( client ).contains( event ) ) {
-			try {
-				Thread.sleep( EVENT_SLEEP );
-			} catch( InterruptedException e ) { }
-			timerem -= EVENT_SLEEP;
-			
-			// check if wait time has expired
-			if( timerem < 0 ) {
-				// last check if the event has been processed
-				if( !getEventList( client ).contains( event ) ) break;
-				
-				throw new EventTimeOutException( Lang.get( "EventTimeOut", client.getID( ).toString( ) ) );
-			}
-		}
+		// wait for the client to retrieve it
+		if( receipt != null && !receipt.await( maxwaittime ) )
+			throw new EventTimeOutException( Lang.get( "EventTimeOut", client.getID( ).toString( ) ) );
 	}
 }
@@ -0,0 +1,300 @@
+/**
+ * @file EventQueue.java
+ * @brief Short description of file
+ *
+ * This file is created at Almende B.V. It is open-source software and part of the Common
+ * Hybrid Agent Platform (CHAP). A toolbox with a lot of open-source tools, ranging from
+ * thread pools and TCP/IP components to control architectures and learning algorithms.
+ * This software is published under the GNU Lesser General Public license (LGPL).
+ *
+ * Copyright  2026 agent <agent@local>
+ *
+ * @author       agent
+ * @date         17 okt. 2026
+ * @project      NGI
+ * @company      Almende B.V.
+ */
+package plangame.gwt.server.events;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+import plangame.gwt.shared.events.Event;
+import plangame.gwt.shared.events.PlanChangeEvent;
+
+/**
+ * Queue of pending events for a single client. A listening client can wait on
+ * the queue until an event is added, which allows the server to hold a listen
+ * request instead of having the client poll for events.
+ * 
+ * Any number of threads may add events concurrently while the listening
+ * thread drains them, the listener never blocks the threads adding events.
+ * Only one listener is expected per client, a listener that starts waiting
+ * releases the listener that was waiting before it.
+ * 
+ * Plan change events are coalesced into a batch of changes, consecutive
+ * changes are merged into the open batch until it is retrieved by the
+ * listener or another event is added. A waiting listener is woken up when the
+ * flush window of the batch has passed, so that more changes can be merged
+ * before it is delivered. Starting a batch and adding other events take a
+ * short lock, such that events are always queued in the order of the changes.
+ *
+ * @author agent
+ */
+public class EventQueue {
+	/** The pending events */
+	protected final Queue<Event> events;
+	
+	/** The listener thread currently waiting for events, if any */
+	protected final AtomicReference<Thread> waiter;
+	
+	/** True if the queue is closed, no events are added after this */
+	protected volatile boolean closed;
+	
+	/** The batch that plan changes are merged into, null if there is none */
+	protected final AtomicReference<PlanChangeBatch> openbatch;
+	
+	/** Lock that orders queueing an event with starting a new batch */
+	protected final Object batchlock;
+	
+	/** Receipts of events that are tracked until they are retrieved */
+	protected final Map<Event, EventReceipt> receipts;
+	
+	/** Time a plan change batch is kept open for merging (in milliseconds), 0
+	 * to disable coalescing of plan changes */
+	protected final long flushwindow;
+	
+	/**
+	 * Creates a new empty event queue that does not coalesce plan changes
+	 */
+	public EventQueue( ) {
+		this( 0 );
+	}
+	
+	/**
+	 * Creates a new empty event queue
+	 * 
+	 * @param flushwindow The time in milliseconds plan changes are collected in
+	 * a batch, 0 to deliver every plan change as a separate event
+	 */
+	public EventQueue( long flushwindow ) {
+		events = new ConcurrentLinkedQueue<Event>( );
+		waiter = new AtomicReference<Thread>( );
+		openbatch = new AtomicReference<PlanChangeBatch>( );
+		batchlock = new Object( );
+		receipts = new IdentityHashMap<Event, EventReceipt>( );
+		closed = false;
+		this.flushwindow = flushwindow;
+	}
+	
+	/**
+	 * Adds the event to the queue and wakes up the waiting listener. Plan
+	 * change events are merged into the open batch if coalescing is enabled.
+	 * 
+	 * @param event The event to add
+	 * @return True if the event was added, false if the queue is closed
+	 */
+	public boolean add( Event event ) {
+		if( closed ) return false;
+		
+		if( flushwindow > 0 && event instanceof PlanChangeEvent )
+			addChange( (PlanChangeEvent) event );
+		else
+			offer( event );
+		
+		wakeup( );
+		return true;
+	}
+	
+	/**
+	 * Adds the event to the queue and returns a receipt that is completed when
+	 * the event is retrieved by the listener. Tracked events are never merged
+	 * into a plan change batch.
+	 * 
+	 * @param event The event to add
+	 * @return The receipt of the event, cancelled if the queue is closed
+	 */
+	public EventReceipt addTracked( Event event ) {
+		final EventReceipt receipt = new EventReceipt( );
+		
+		// register the receipt before the event can be retrieved
+		synchronized( receipts ) {
+			if( closed ) {
+				receipt.cancel( );
+				return receipt;
+			}
+			receipts.put( event, receipt );
+		}
+		
+		offer( event );
+		wakeup( );
+		return receipt;
+	}
+	
+	/**
+	 * Seals the open plan change batch and appends the event to the queue
+	 * 
+	 * @param event The event
+	 */
+	protected void offer( Event event ) {
+		synchronized( batchlock ) {
+			// seal the open batch so that it is delivered before this event
+			final PlanChangeBatch batch = openbatch.getAndSet( null );
+			if( batch != null ) batch.seal( );
+			
+			events.offer( event );
+		}
+	}
+	
+	/**
+	 * Merges the plan change into the open batch, starts a new batch if there
+	 * is no open batch or it has been sealed
+	 * 
+	 * @param event The plan change event
+	 */
+	protected void addChange( PlanChangeEvent event ) {
+		// merging into the open batch does not change the order of the events
+		final PlanChangeBatch batch = openbatch.get( );
+		if( batch != null && batch.merge( event.getPlanChange( ) ) ) return;
+		
+		// start a new batch, publish it and queue its event at once so that no
+		// other event is queued in between
+		synchronized( batchlock ) {
+			final PlanChangeBatch curr = openbatch.get( );
+			if( curr != null && curr.merge( event.getPlanChange( ) ) ) return;
+			
+			final PlanChangeBatch newbatch = new PlanChangeBatch( event.getPlanChange( ) );
+			newbatch.getEvent( ).setSender( event.getSenderID( ) );
+			openbatch.set( newbatch );
+			events.offer( newbatch.getEvent( ) );
+		}
+	}
+	
+	/**
+	 * Removes and returns all pending events, the open plan change batch is
+	 * sealed if it is retrieved. Receipts of tracked events are completed.
+	 * 
+	 * @return The list of pending events, possibly empty
+	 */
+	public List<Event> drain( ) {
+		final List<Event> pending = new ArrayList<Event>( );
+		Event e;
+		while( (e = events.poll( )) != null )
+			pending.add( e );
+		
+		// changes merged into the batch before it is sealed are still delivered
+		// with it, changes after that will start a new batch
+		final PlanChangeBatch batch = openbatch.get( );
+		if( batch != null && pending.size( ) > 0 && pending.get( pending.size( ) - 1 ) == batch.getEvent( ) ) {
+			batch.seal( );
+			openbatch.compareAndSet( batch, null );
+		}
+		
+		// complete the receipts of the retrieved events
+		synchronized( receipts ) {
+			if( receipts.size( ) > 0 )
+				for( Event p : pending ) {
+					final EventReceipt receipt = receipts.remove( p );
+					if( receipt != null ) receipt.complete( );
+				}
+		}
+		
+		return pending;
+	}
+	
+	/**
+	 * Waits for at most the specified time until at least one event can be
+	 * delivered and returns all pending events. Returns immediately if there
+	 * are such events or the queue is closed. A plan change batch can be
+	 * delivered once its flush window has passed, the listener is woken up at
+	 * that time.
+	 * 
+	 * @param timeout The maximal wait time in milliseconds, 0 to not wait
+	 * @return The list of pending events, possibly empty, or null if the queue
+	 * has been closed while waiting
+	 */
+	public List<Event> await( long timeout ) {
+		if( !isDeliverable( ) && !closed && timeout > 0 ) {
+			// register as the waiting listener, release the previous one
+			final Thread self = Thread.currentThread( );
+			final Thread prev = waiter.getAndSet( self );
+			if( prev != null && prev != self ) LockSupport.unpark( prev );
+			
+			// the waiter is registered before checking the queue, an event added
+			// in between will unpark us so the park returns immediately
+			final long deadline = System.nanoTime( ) + TimeUnit.MILLISECONDS.toNanos( timeout );
+			long remaining = deadline - System.nanoTime( );
+			while( !isDeliverable( ) && !closed && remaining > 0 && waiter.get( ) == self ) {
+				// wake up at the end of the flush window of the open batch
+				long park = remaining;
+				final PlanChangeBatch batch = openbatch.get( );
+				if( batch != null ) {
+					final long delay = batch.getCreated( ) + flushwindow - System.currentTimeMillis( );
+					park = Math.min( park, TimeUnit.MILLISECONDS.toNanos( Math.max( delay, 1 ) ) );
+				}
+				LockSupport.parkNanos( this, park );
+				
+				// stop waiting, return whatever is pending
+				if( self.isInterrupted( ) ) break;
+				remaining = deadline - System.nanoTime( );
+			}
+			waiter.compareAndSet( self, null );
+		}
+		
+		// the client is no longer registered
+		if( closed && events.isEmpty( ) ) return null;
+		
+		return drain( );
+	}
+	
+	/**
+	 * Checks if there is an event that can be delivered. The open plan change
+	 * batch is always the last queued event, if it is the only event it can
+	 * only be delivered once its flush window has passed.
+	 * 
+	 * @return True if there is an event that can be delivered
+	 */
+	protected boolean isDeliverable( ) {
+		final Event first = events.peek( );
+		if( first == null ) return false;
+		
+		final PlanChangeBatch batch = openbatch.get( );
+		return batch == null || first != batch.getEvent( ) || batch.getCreated( ) + flushwindow <= System.currentTimeMillis( );
+	}
+	
+	/**
+	 * Closes the queue, releases the waiting listener and cancels the receipts
+	 * of events that have not been retrieved
+	 */
+	public void close( ) {
+		synchronized( receipts ) {
+			closed = true;
+			for( EventReceipt receipt : receipts.values( ) )
+				receipt.cancel( );
+			receipts.clear( );
+		}
+		wakeup( );
+	}
+	
+	/**
+	 * @return True if the queue is closed
+	 */
+	public boolean isClosed( ) {
+		return closed;
+	}
+	
+	/**
+	 * Wakes up the listener that is waiting for events, if any
+	 */
+	protected void wakeup( ) {
+		final Thread w = waiter.get( );
+		if( w != null ) LockSupport.unpark( w );
+	}
+}
@@ -0,0 +1,83 @@
+/**
+ * @file EventReceipt.java
+ * @brief Short description of file
+ *
+ * This file is created at Almende B.V. It is open-source software and part of the Common
+ * Hybrid Agent Platform (CHAP). A toolbox with a lot of open-source tools, ranging from
+ * thread pools and TCP/IP components to control architectures and learning algorithms.
+ * This software is published under the GNU Lesser General Public license (LGPL).
+ *
+ * Copyright  2026 agent <agent@local>
+ *
+ * @author       agent
+ * @date         17 okt. 2026
+ * @project      NGI
+ * @company      Almende B.V.
+ */
+package plangame.gwt.server.events;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Receipt of an event that has been fired for a client. The receipt is
+ * completed when the client retrieves the event from its queue, or cancelled
+ * when the client is removed before that.
+ *
+ * @author agent
+ */
+public class EventReceipt {
+	/** Latch that is released on completion or cancellation */
+	protected final CountDownLatch done;
+	
+	/** True if the event has been delivered to the client */
+	protected volatile boolean delivered;
+	
+	/**
+	 * Creates a new pending receipt
+	 */
+	public EventReceipt( ) {
+		done = new CountDownLatch( 1 );
+		delivered = false;
+	}
+	
+	/**
+	 * Marks the event as delivered and releases all waiting threads
+	 */
+	public void complete( ) {
+		delivered = true;
+		done.countDown( );
+	}
+	
+	/**
+	 * Cancels the receipt, the event will never be delivered
+	 */
+	public void cancel( ) {
+		done.countDown( );
+	}
+	
+	/**
+	 * @return True if the event has been delivered
+	 */
+	public boolean isDelivered( ) {
+		return delivered;
+	}
+	
+	/**
+	 * Waits for at most the specified time for the event to be delivered
+	 * 
+	 * @param timeout The maximal wait time in milliseconds
+	 * @return True if the event has been delivered, false if the receipt was
+	 * cancelled or the wait timed out
+	 */
+	public boolean await( long timeout ) {
+		try {
+			done.await( Math.max( timeout, 0 ), TimeUnit.MILLISECONDS );
+		} catch( InterruptedException ie ) {
+			// stop waiting, report the current status
+			Thread.currentThread( ).interrupt( );
+		}
+		
+		return delivered;
+	}
+}
@@ -0,0 +1,142 @@
+/**
+ * @file PlanChangeBatch.java
+ * @brief Short description of file
+ *
+ * This file is created at Almende B.V. It is open-source software and part of the Common
+ * Hybrid Agent Platform (CHAP). A toolbox with a lot of open-source tools, ranging from
+ * thread pools and TCP/IP components to control architectures and learning algorithms.
+ * This software is published under the GNU Lesser General Public license (LGPL).
+ *
+ * Copyright  2026 agent <agent@local>
+ *
+ * @author       agent
+ * @date         17 okt. 2026
+ * @project      NGI
+ * @company      Almende B.V.
+ */
+package plangame.gwt.server.events;
+
+import java.util.ArrayList;
+
+import plangame.game.plans.PlanChange;
+import plangame.game.plans.PlanChange.PlanChangeType;
+import plangame.gwt.shared.events.PlanChangeBatchEvent;
+import plangame.model.tasks.Task;
+
+/**
+ * Batch of plan changes that is still pending for a client. New changes are
+ * merged with the last pending change of the same task, e.g. a method that is
+ * added and then moved around results in a single add. The batch is sealed
+ * when it is retrieved by the client, after which no more changes are merged.
+ *
+ * @author agent
+ */
+public class PlanChangeBatch {
+	/** The event that delivers the batch */
+	protected final PlanChangeBatchEvent event;
+	
+	/** The list of changes, shared with the event */
+	protected final ArrayList<PlanChange> changes;
+	
+	/** The creation time of the batch (in milliseconds) */
+	protected final long created;
+	
+	/** True if the batch is sealed */
+	protected boolean sealed;
+	
+	/**
+	 * Creates a new batch containing only the given change
+	 * 
+	 * @param change The first change of the batch
+	 */
+	public PlanChangeBatch( PlanChange change ) {
+		changes = new ArrayList<PlanChange>( );
+		changes.add( change );
+		event = new PlanChangeBatchEvent( changes );
+		created = System.currentTimeMillis( );
+		sealed = false;
+	}
+	
+	/** @return The event that delivers this batch */
+	public PlanChangeBatchEvent getEvent( ) { return event; }
+	
+	/** @return The creation time of the batch in milliseconds */
+	public long getCreated( ) { return created; }
+	
+	/**
+	 * Seals the batch, no more changes are merged into it
+	 */
+	public synchronized void seal( ) {
+		sealed = true;
+	}
+	
+	/**
+	 * Merges the change into the batch
+	 * 
+	 * @param change The change to merge
+	 * @return True if the change is merged, false if the batch is sealed
+	 */
+	public synchronized boolean merge( PlanChange change ) {
+		if( sealed ) return false;
+		
+		// find the last change of the same task
+		final Task task = change.getMethod( ).getTask( );
+		int idx = changes.size( ) - 1;
+		while( idx >= 0 && !changes.get( idx ).getMethod( ).getTask( ).equals( task ) )
+			idx--;
+		
+		// a method that is added and removed again cancels out
+		if( idx >= 0 && changes.get( idx ).getType( ) == PlanChangeType.MethodAdded && change.getType( ) == PlanChangeType.MethodRemoved ) {
+			changes.remove( idx );
+			return true;
+		}
+		
+		// try to combine both changes, append if that is not possible
+		final PlanChange merged = (idx >= 0 ? combine( changes.get( idx ), change ) : null);
+		if( merged != null )
+			changes.set( idx, merged );
+		else
+			changes.add( change );
+		
+		return true;
+	}
+	
+	/**
+	 * Combines two consecutive changes of the same task into one change
+	 * 
+	 * @param first The first change
+	 * @param second The change following it
+	 * @return The combined change or null if the changes cannot be combined
+	 */
+	protected static PlanChange combine( PlanChange first, PlanChange second ) {
+		switch( first.getType( ) ) {
+			case MethodAdded:
+				switch( second.getType( ) ) {
+					case MethodMoved: return PlanChange.add( first.getMethod( ), second.getTime( ) );
+					case MethodChanged: return PlanChange.add( second.getMethod( ), second.getTime( ) );
+					default: return null;
+				}
+			
+			case MethodMoved:
+			case MethodChanged:
+				switch( second.getType( ) ) {
+					case MethodMoved:
+						if( first.getType( ) == PlanChangeType.MethodMoved )
+							return PlanChange.move( first.getPrevious( ), second.getTime( ) );
+						return PlanChange.change( first.getPrevious( ), first.getMethod( ), second.getTime( ) );
+					case MethodChanged: return PlanChange.change( first.getPrevious( ), second.getMethod( ), second.getTime( ) );
+					case MethodRemoved: return PlanChange.remove( first.getPrevious( ) );
+					default: return null;
+				}
+			
+			case MethodRemoved:
+				if( second.getType( ) == PlanChangeType.MethodAdded )
+					return PlanChange.change( first.getPrevious( ), second.getMethod( ), second.getTime( ) );
+				return null;
+			
+			default:
+				// delay changes are never combined
+				return null;
+		}
+	}
+}
@@ -16,21 +16,26 @@
  */
 package plangame.gwt.server.gametrace;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
 
 import plangame.game.Game;
 import plangame.game.plans.DelayStatus;
 import plangame.game.plans.JointPlan;
 import plangame.game.plans.PlanChange;
 import plangame.game.plans.PlanChange.PlanChangeType;
+import plangame.game.plans.PlanTask;
 import plangame.game.player.Player;
 import plangame.gwt.client.gamedata.ClientGameData;
 import plangame.gwt.client.gamedata.GameData;
+import plangame.gwt.server.GameCache;
 import plangame.gwt.server.gametrace.GameTracer.TracerVersion;
 import plangame.gwt.server.gametrace.TraceMsg.KEYS;
 import plangame.gwt.server.gametrace.TraceMsg.TraceType;
@@ -48,6 +53,23 @@ import plangame.util.gameparser.xml.GameXMLParser;
  * Reads game traces from a specified file, does not require connection to an
  * actual game server to reproduce results and therefore this is implemented in
  * a separate class.
+ * 
+ * The trace is streamed: messages are read from the file and applied one at a
+ * time while stepping, only the last message is kept in memory.
+ * 
+ * When a trace is opened the ends of rounds and the joint plan checkpoints
+ * are looked up in the trace index, the trace itself is not read in advance.
+ * Jumps to a round or message restore the nearest checkpoint before it and
+ * only replay the messages after the checkpoint. The input is moved to the
+ * checkpoint using the message offsets of the trace index, so jumping back
+ * does not read the trace from the start. The joint plan of a checkpoint is
+ * only read from the trace when the checkpoint is restored. For traces
+ * without checkpoints, checkpoints are created while replaying so that
+ * jumping back is fast after the first pass.
+ * 
+ * A trace that is still being written by a running game can be followed, the
+ * rounds and checkpoints are then indexed while the messages are read and
+ * stepping continues with the new messages once they have been written.
  *
  * @author Joris Scharpff
  */
@@ -61,12 +83,38 @@ public class GameTraceReader {
 	/** Tomcat7 root for game files */
 	protected String webroot;
 	
-	/** The lines read from the trace file */
-	protected List<TraceMsg> tmsgs;
+	/** The input the trace messages are read from, null if the end of the
+	 * trace has been reached */
+	protected TraceInput input;
 	
-	/** The index of the last read trace line */
+	/** The next message if it has been read ahead, null otherwise */
+	protected TraceMsg pending;
+	
+	/** The last read trace message */
+	protected TraceMsg last;
+	
+	/** The index of the last read trace message */
 	protected int index;
 	
+	/** The number of messages in the trace */
+	protected int msgcount;
+	
+	/** The joint plan checkpoints by the index of their message */
+	protected final TreeMap<Integer, Checkpoint> checkpoints;
+	
+	/** The index of the last message of each round by round number */
+	protected final TreeMap<Integer, Integer> rounds;
+	
+	/** True if the trace contains checkpoints written by the tracer */
+	protected boolean tracedcheckpoints;
+	
+	/** True if the trace is followed while it is being written */
+	protected boolean following;
+	
+	/** The side index of the trace, null if no trace is read or the trace is
+	 * followed */
+	protected TraceIndex traceindex;
+	
 	/** The current game we are tracing */
 	protected Game game;
 	
@@ -78,8 +126,15 @@ public class GameTraceReader {
 	 */
 	public GameTraceReader( ) {
 		tracefile = null;
-		tmsgs = new ArrayList<TraceMsg>( );
+		input = null;
+		pending = null;
+		last = null;
 		index = -1;
+		msgcount = 0;
+		checkpoints = new TreeMap<Integer, Checkpoint>( );
+		rounds = new TreeMap<Integer, Integer>( );
+		tracedcheckpoints = false;
+		following = false;
 		webroot = ".";
 	}
 	
@@ -113,12 +168,20 @@ public class GameTraceReader {
 		return game;
 	}
 	
+	/**
+	 * @return True if the game of the trace has started, i.e. its game data is
+	 * available
+	 */
+	public boolean isStarted( ) {
+		return data != null && data.getData( ) != null;
+	}
+	
 	/**
 	 * @return The data of the current game
 	 * @throws GameTraceException if the game has not started yet
 	 */
 	public GameData getGameData( ) throws GameTraceException {
-		if( data == null || data.getData( ) == null )
+		if( !isStarted( ) )
 			throw new GameTraceException( "Game has not yet started!" );
 		return data.getData( );
 	}
@@ -128,21 +191,25 @@ public class GameTraceReader {
 	 * @throws GameTraceException if the game has not started yet
 	 */
 	public JointPlan getJointPlan( ) throws GameTraceException {
-		if( data == null || data.getData( ) == null )
+		if( !isStarted( ) )
 			throw new GameTraceException( "Game has not yet started!" );
 		return data.getJointPlan( );
 	}
 	
 	/**
-	 * Resets the game tracer
+	 * Resets the game tracer, the trace is read again from the start
 	 * @throws GameTraceException if no game trace is read
 	 */
 	public void reset( ) throws GameTraceException {
-		if( tmsgs.size( ) == 0 )
+		if( tracefile == null )
 			throw new GameTraceException( "No game trace has been read!" );
 		
-		// reset index and forget about the game
-		index = -1;
+		// reopen the trace and forget about the game
+		try {
+			open( );
+		} catch( IOException ioe ) {
+			throw new GameTraceException( "Failed to reopen trace: " + ioe.getMessage( ) );
+		}
 		game = null;
 		data = null;
 	}
@@ -175,7 +242,8 @@ public class GameTraceReader {
 	
 	
 	/**
-	 * Reads the specified trace file entirely and stores the traces
+	 * Opens the specified trace file, the messages are read while stepping
+	 * through the trace. Both text (V1) and binary (V2) traces are supported.
 	 * 
 	 * @param tracefile The file containing the traces
 	 * @throws IOException if the file does not exist or is invalid
@@ -186,20 +254,378 @@ public class GameTraceReader {
 		if( !f.exists( ) ) throw new IOException( "File '" + tracefile + "' does not exist" );
 		if( !f.isFile( ) || !f.canRead( ) ) throw new IOException( "Invalid trace file '" + tracefile + "'" );
 		
-		// clear current trace
-		tmsgs.clear( );
+		this.tracefile = f;
+		traceindex = null;
+		following = false;
+		buildIndex( );
+		open( );
 		
-		// read all the lines
-		BufferedReader br = new BufferedReader( new FileReader( f ) );
-		String l;
-		while( (l = br.readLine( )) != null ) {
-			// read the trace message
-			final TraceMsg t = TraceMsg.read( l );
-			tmsgs.add( t );
-		}
+		// forget about the previous game
+		game = null;
+		data = null;
+	}
+	
+	/**
+	 * Opens the specified trace file that is still being written by a running
+	 * game. The trace is not scanned in advance, the rounds and checkpoints
+	 * become available while the messages are read. At the end of the trace
+	 * stepping returns null until new messages have been written.
+	 * 
+	 * @param tracefile The file containing the traces
+	 * @throws IOException if the file does not exist or is invalid
+	 * @throws GameTraceException if the trace is invalid
+	 */
+	public void followTraceFile( String tracefile ) throws IOException, GameTraceException {
+		final File f = new File( tracefile );
+		if( !f.exists( ) ) throw new IOException( "File '" + tracefile + "' does not exist" );
+		if( !f.isFile( ) || !f.canRead( ) ) throw new IOException( "Invalid trace file '" + tracefile + "'" );
 		
-		br.close( );		
 		this.tracefile = f;
+		traceindex = null;
+		following = true;
+		checkpoints.clear( );
+		rounds.clear( );
+		tracedcheckpoints = false;
+		msgcount = 0;
+		open( );
+		
+		// forget about the previous game
+		game = null;
+		data = null;
+	}
+	
+	/**
+	 * @return True if the trace is followed while it is being written
+	 */
+	public boolean isFollowing( ) {
+		return following;
+	}
+	
+	/**
+	 * Looks up the ends of rounds and the checkpoints in the trace index, does
+	 * not read or execute the messages. The index is only built if the trace
+	 * has not been indexed before.
+	 * 
+	 * @throws GameTraceException if the trace index cannot be built
+	 */
+	protected void buildIndex( ) throws GameTraceException {
+		checkpoints.clear( );
+		rounds.clear( );
+		tracedcheckpoints = false;
+		
+		final TraceIndex ti = getTraceIndex( );
+		msgcount = ti.getMessageCount( );
+		for( int idx : ti.query( TraceType.RoundEnded, null, TraceIndex.ANY ) )
+			rounds.put( getRound( ti, idx ), idx );
+		
+		// the checkpoint directly follows the end of its round, its plan is read
+		// when the checkpoint is restored
+		for( int idx : ti.query( TraceType.Checkpoint, null, TraceIndex.ANY ) ) {
+			final int round = getRound( ti, idx );
+			checkpoints.put( idx, new Checkpoint( round, null ) );
+			rounds.put( round, idx );
+			tracedcheckpoints = true;
+		}
+	}
+	
+	/**
+	 * Determines the round of an indexed message
+	 * 
+	 * @param ti The trace index
+	 * @param idx The message index
+	 * @return The round number
+	 * @throws GameTraceException if the message has no round
+	 */
+	private int getRound( TraceIndex ti, int idx ) throws GameTraceException {
+		final int round = ti.getGameTime( idx );
+		if( round == TraceIndex.ANY )
+			throw new GameTraceException( "Message " + idx + " has no valid game time" );
+		return round;
+	}
+	
+	/**
+	 * Adds the message of a followed trace to the round and checkpoint index
+	 * 
+	 * @param t The trace message
+	 * @param idx The index of the message in the trace
+	 * @throws GameTraceException if the message is invalid
+	 */
+	protected void indexMessage( TraceMsg t, int idx ) throws GameTraceException {
+		if( t.getType( ) == TraceType.RoundEnded ) {
+			rounds.put( getTime( t ).getWeek( ), idx );
+		} else if( t.getType( ) == TraceType.Checkpoint ) {
+			// the checkpoint directly follows the end of its round, its plan is
+			// read again when the checkpoint is restored
+			final int round = getTime( t ).getWeek( );
+			checkpoints.put( idx, new Checkpoint( round, null ) );
+			rounds.put( round, idx );
+			tracedcheckpoints = true;
+		}
+	}
+	
+	/**
+	 * (Re)opens the trace file at the start of the trace
+	 * 
+	 * @throws IOException if the file cannot be read
+	 * @throws GameTraceException if the trace header is invalid
+	 */
+	protected void open( ) throws IOException, GameTraceException {
+		close( );
+		input = (following ? TraceInput.tail( tracefile ) : TraceInput.open( tracefile ));
+		pending = null;
+		last = null;
+		index = -1;
+	}
+	
+	/**
+	 * Closes the trace file, the reader can be reopened by a reset
+	 */
+	public void close( ) {
+		if( input == null ) return;
+		
+		try {
+			input.close( );
+		} catch( IOException ioe ) {
+			// nothing to do, the input is not used anymore
+		}
+		input = null;
+	}
+	
+	/**
+	 * Reads the next message from the trace without executing it
+	 * 
+	 * @return The next message or null if the end of the trace is reached
+	 * @throws GameTraceException if the message cannot be read
+	 */
+	protected TraceMsg peek( ) throws GameTraceException {
+		if( pending != null || input == null ) return pending;
+		
+		try {
+			pending = input.read( );
+		} catch( IOException ioe ) {
+			throw new GameTraceException( "Failed to read trace: " + ioe.getMessage( ) );
+		}
+		
+		// release the file at the end of the trace, unless more is written
+		if( pending == null && !following ) close( );
+		return pending;
+	}
+	
+	/**
+	 * Reads the next message from the trace and makes it the last message
+	 * 
+	 * @return The message or null if the end of the trace is reached
+	 * @throws GameTraceException if the message cannot be read
+	 */
+	protected TraceMsg next( ) throws GameTraceException {
+		final TraceMsg t = peek( );
+		pending = null;
+		if( t == null ) return null;
+		
+		index++;
+		last = t;
+		
+		// index new messages of a followed trace as they are read
+		if( following && index >= msgcount ) {
+			indexMessage( t, index );
+			msgcount = index + 1;
+		}
+		return t;
+	}
+	
+	/**
+	 * @return True if the trace contains more messages
+	 * @throws GameTraceException if the next message cannot be read
+	 */
+	public boolean hasNext( ) throws GameTraceException {
+		return peek( ) != null;
+	}
+	
+	/**
+	 * @return The index of the last executed trace message, -1 if no message
+	 * has been executed
+	 */
+	public int getIndex( ) {
+		return index;
+	}
+	
+	/**
+	 * @return The type of the last executed trace message, null if no message
+	 * has been executed
+	 */
+	public TraceType getLastType( ) {
+		return (last != null ? last.getType( ) : null);
+	}
+	
+	/**
+	 * @return The number of messages in the trace, for a followed trace the
+	 * number of messages that have been read so far
+	 */
+	public int getMessageCount( ) {
+		return msgcount;
+	}
+	
+	/**
+	 * @return The numbers of the rounds that have ended in the trace
+	 */
+	public SortedSet<Integer> getRounds( ) {
+		return Collections.unmodifiableSortedSet( new TreeSet<Integer>( rounds.keySet( ) ) );
+	}
+	
+	/**
+	 * @return The number of the last round that has ended at the current
+	 * position in the trace, -1 if no round has ended yet
+	 */
+	public int getRound( ) {
+		int round = -1;
+		for( Map.Entry<Integer, Integer> r : rounds.entrySet( ) )
+			if( r.getValue( ) <= index ) round = r.getKey( );
+		
+		return round;
+	}
+	
+	/**
+	 * Jumps to the end of the specified round
+	 * 
+	 * @param round The round number
+	 * @return The result of the last executed message
+	 * @throws GameTraceException if the round does not end in the trace or the
+	 * jump failed
+	 */
+	public String jumpToRound( int round ) throws GameTraceException {
+		final Integer idx = rounds.get( round );
+		if( idx == null )
+			throw new GameTraceException( "Round " + round + " does not end in the trace!" );
+		
+		return jumpTo( idx );
+	}
+	
+	/**
+	 * Jumps to the specified message, such that it is the last executed
+	 * message. The nearest checkpoint before the message is restored if it
+	 * saves replaying, otherwise the trace is replayed from the current
+	 * position or the start.
+	 * 
+	 * @param target The index of the message
+	 * @return The result of the last executed message or restored checkpoint
+	 * @throws GameTraceException if the index is invalid or the jump failed
+	 */
+	public String jumpTo( int target ) throws GameTraceException {
+		if( tracefile == null )
+			throw new GameTraceException( "No game trace has been read!" );
+		if( target < 0 || target >= msgcount )
+			throw new GameTraceException( "Invalid message index " + target + ", the trace contains " + msgcount + " messages" );
+		if( target == index )
+			return getLastStep( );
+		
+		// start over if there is no checkpoint to go back to
+		if( target < index && (data == null || checkpoints.floorKey( target ) == null) )
+			reset( );
+		
+		// checkpoints can only be restored in a started game
+		String step = null;
+		while( index < target && data == null )
+			if( (step = step( )) == null )
+				throw new GameTraceException( "Trace ended before message " + target );
+		
+		// restore the nearest checkpoint if it is ahead or we have to go back
+		final Map.Entry<Integer, Checkpoint> cp = checkpoints.floorEntry( target );
+		if( data != null && cp != null && (cp.getKey( ) > index || target < index) ) {
+			seek( cp.getKey( ) );
+			restore( cp.getValue( ) );
+			step = "Restored checkpoint of round " + cp.getValue( ).round;
+		}
+		
+		// and replay the remaining messages
+		while( index < target )
+			if( (step = step( )) == null )
+				throw new GameTraceException( "Trace ended before message " + target );
+		
+		return step;
+	}
+	
+	/**
+	 * Moves the input to the specified message without executing any message,
+	 * the message becomes the last read message
+	 * 
+	 * @param target The index of the message
+	 * @throws GameTraceException if the trace cannot be read
+	 */
+	protected void seek( int target ) throws GameTraceException {
+		// open the trace at the message, a followed trace is still growing and
+		// is not indexed
+		if( !following ) {
+			close( );
+			try {
+				input = getTraceIndex( ).openAt( target );
+			} catch( IOException ioe ) {
+				throw new GameTraceException( "Failed to open trace at message " + target + ": " + ioe.getMessage( ) );
+			}
+			pending = null;
+			index = target - 1;
+			if( next( ) == null )
+				throw new GameTraceException( "Trace ended before message " + target );
+			return;
+		}
+		
+		// reopen if we have to go back
+		if( target < index || (input == null && pending == null) ) {
+			try {
+				open( );
+			} catch( IOException ioe ) {
+				throw new GameTraceException( "Failed to reopen trace: " + ioe.getMessage( ) );
+			}
+		}
+		
+		while( index < target )
+			if( next( ) == null )
+				throw new GameTraceException( "Trace ended before message " + target );
+	}
+	
+	/**
+	 * Replaces the current joint plan by the plan stored in the checkpoint
+	 * 
+	 * @param cp The checkpoint
+	 * @throws GameTraceException if the checkpoint contains an unknown method
+	 */
+	protected void restore( Checkpoint cp ) throws GameTraceException {
+		final String plan = getPlan( cp );
+		
+		// remove all planned methods
+		final JointPlan jp = data.getJointPlan( );
+		for( PlanTask pt : new ArrayList<PlanTask>( jp.getPlanned( ) ) )
+			data.changeJointPlan( PlanChange.remove( pt ), false );
+		
+		// and plan the methods of the checkpoint
+		if( plan.trim( ).length( ) == 0 ) return;
+		for( String p : plan.split( ";" ) ) {
+			final String[] f = p.split( "," );
+			final TaskMethod tm = getMethod( f[0] );
+			if( tm == null )
+				throw new GameTraceException( "Unknown method in checkpoint: " + f[0] );
+			
+			data.changeJointPlan( PlanChange.add( tm, new TimePoint( Integer.parseInt( f[1] ) ) ), false );
+			final DelayStatus status = DelayStatus.valueOf( f[2] );
+			if( status != DelayStatus.Pending )
+				data.changeJointPlan( PlanChange.status( tm, status ), false );
+		}
+	}
+	
+	/**
+	 * Gets the serialised joint plan of the checkpoint, the plan of a traced
+	 * checkpoint is read from the trace
+	 * 
+	 * @param cp The checkpoint
+	 * @return The serialised joint plan
+	 * @throws GameTraceException if the checkpoint message cannot be read
+	 */
+	protected String getPlan( Checkpoint cp ) throws GameTraceException {
+		if( cp.plan != null ) return cp.plan;
+		
+		// the current message is the checkpoint, it has just been restored
+		if( last == null || last.getType( ) != TraceType.Checkpoint )
+			throw new GameTraceException( "No checkpoint message at message " + index );
+		return last.getValue( KEYS.JointPlan );
 	}
 	
 	/**
@@ -219,15 +645,26 @@ public class GameTraceReader {
 	 */
 	public String step( ) throws GameTraceException {
 		// go to next message if any
-		index++;
-		if( index >= tmsgs.size( ) )
+		final TraceMsg t = next( );
+		if( t == null )
 			return null;
 		
-		// get the msg
-		final TraceMsg t = tmsgs.get( index );
 		return execute( t );
 	}
 	
+	/**
+	 * Executes all messages that are currently available in the trace, used
+	 * to keep up with a followed trace
+	 * 
+	 * @return The number of executed messages
+	 * @throws GameTraceException if the execute of a step failed
+	 */
+	public int stepAvailable( ) throws GameTraceException {
+		int steps = 0;
+		while( step( ) != null ) steps++;
+		return steps;
+	}
+	
 	/**
 	 * Steps and executes until the a message of the specified type is
 	 * encountered
@@ -258,15 +695,14 @@ public class GameTraceReader {
 		String step = "";
 		boolean isexecuting = false;
 		do {
-			index++;
-			if( index >= tmsgs.size( ) )
+			t = next( );
+			if( t == null )
 				throw new GameTraceException( "No message of this type in trace!" );
 			
 			// execute the current message
-			t = tmsgs.get( index );
 			isexecuting |= (t.getType( ) == TraceType.StartedExecution);
 			step = execute( t );
-		} while( t.getType( ) != type && (executing || !isexecuting) && index < tmsgs.size( ) - 1 );
+		} while( t.getType( ) != type && (executing || !isexecuting) && hasNext( ) );
 		
 		return step;
 	}
@@ -276,10 +712,10 @@ public class GameTraceReader {
 	 * executed 
 	 */
 	public String getLastStep( ) {
-		if( index < 0 )
+		if( last == null )
 			return "(none)";
 		
-		return tmsgs.get( index ).toString( );
+		return last.toString( );
 	}
 	
 	/**
@@ -317,7 +753,7 @@ public class GameTraceReader {
 					final String gamefile = tmsg.getValue( KEYS.GameFile );
 					//final int players = Integer.parseInt( tmsg.getValue( KEYS.MaxPlayers ) );
 					final GameParser gp = new GameXMLParser( new File( webroot, gamefile ).getAbsolutePath( ) );
-					game = gp.read( BasicID.makeValidID( "TraceGame" ) );
+					game = GameCache.getInstance( ).read( gp, BasicID.makeValidID( "TraceGame" ) );
 					return "Created new game";
 				}
 				
@@ -423,6 +859,10 @@ public class GameTraceReader {
 						}
 					}
 					
+					// remember the plan if the trace has no checkpoints
+					if( !tracedcheckpoints )
+						checkpoints.put( index, new Checkpoint( t.getWeek( ), GameTracer.getPlanString( data.getJointPlan( ) ) ) );
+					
 					return "Ended execution of round " + t;
 				}
 				
@@ -451,6 +891,12 @@ public class GameTraceReader {
 					return "All players submitted their plan";
 				}
 				
+				// checkpoint of the joint plan, already applied by the messages before
+				case Checkpoint: {
+					final TimePoint t = getTime( tmsg );
+					return "Checkpoint of round " + t;
+				}
+				
 				// trace information
 				case TraceInfo: {
 					version = TracerVersion.valueOf( tmsg.getValue( KEYS.VersionNumber ) );
@@ -560,11 +1006,97 @@ public class GameTraceReader {
 
 	
 	/**
-	 * Prints the entire trace to sysout
+	 * Finds the messages in the trace that match all criteria, uses the side
+	 * index of the trace. Does not change the reader position, use jumpTo to go
+	 * to a found message.
+	 * 
+	 * @param type The trace type or null for any type
+	 * @param playerID The player ID or null for any player
+	 * @param round The round (game time) or TraceIndex.ANY for any round
+	 * @return The indices of the matching messages in ascending order
+	 * @throws GameTraceException if no trace is read or the index cannot be
+	 * built
+	 */
+	public int[] query( TraceType type, String playerID, int round ) throws GameTraceException {
+		return getTraceIndex( ).query( type, playerID, round );
+	}
+	
+	/**
+	 * Reads the specified messages without executing them
+	 * 
+	 * @param msgs The message indices in ascending order, e.g. a query result
+	 * @return The messages as trace strings
+	 * @throws GameTraceException if the messages cannot be read
 	 */
-	public void printAll( ) {
-		for( TraceMsg t : tmsgs ) {
-			System.out.println( t );
+	public List<String> getMessages( int[] msgs ) throws GameTraceException {
+		final List<String> res = new ArrayList<String>( msgs.length );
+		try {
+			for( TraceMsg t : getTraceIndex( ).read( msgs ) )
+				res.add( t.toString( ) );
+		} catch( IOException ioe ) {
+			throw new GameTraceException( "Failed to read messages: " + ioe.getMessage( ) );
+		}
+		return res;
+	}
+	
+	/**
+	 * @return The side index of the trace, opened or built on first use
+	 * @throws GameTraceException if no trace is read or the index cannot be
+	 * built
+	 */
+	protected TraceIndex getTraceIndex( ) throws GameTraceException {
+		if( tracefile == null )
+			throw new GameTraceException( "No game trace has been read!" );
+		
+		if( traceindex == null ) {
+			try {
+				traceindex = TraceIndex.open( tracefile );
+			} catch( IOException ioe ) {
+				throw new GameTraceException( "Failed to open trace index: " + ioe.getMessage( ) );
+			}
+		}
+		return traceindex;
+	}
+	
+	/**
+	 * Prints the entire trace to sysout, does not change the reader position
+	 * 
+	 * @throws IOException if the trace cannot be read
+	 * @throws GameTraceException if the trace contains an invalid message
+	 */
+	public void printAll( ) throws IOException, GameTraceException {
+		if( tracefile == null ) return;
+		
+		final TraceInput in = TraceInput.open( tracefile );
+		try {
+			TraceMsg t;
+			while( (t = in.read( )) != null )
+				System.out.println( t );
+		} finally {
+			in.close( );
+		}
+	}
+
+	/**
+	 * Checkpoint of the joint plan at the end of a round
+	 */
+	protected static class Checkpoint {
+		/** The round number */
+		protected final int round;
+		
+		/** The serialised joint plan, null if it is read from the checkpoint
+		 * message in the trace */
+		protected final String plan;
+		
+		/**
+		 * Creates a new checkpoint
+		 * 
+		 * @param round The round number
+		 * @param plan The serialised joint plan or null to read it from the trace
+		 */
+		protected Checkpoint( int round, String plan ) {
+			this.round = round;
+			this.plan = plan;
 		}
 	}
 }
@@ -18,10 +18,10 @@ package plangame.gwt.server.gametrace;
 
 import java.io.File;
 import java.io.IOException;
-import java.io.PrintWriter;
 import java.util.Date;
 import java.util.List;
 
+import plangame.game.plans.JointPlan;
 import plangame.game.plans.PlanChange;
 import plangame.game.plans.PlanStepResult;
 import plangame.game.plans.PlanTask;
@@ -29,6 +29,7 @@ import plangame.game.player.PlanPreference;
 import plangame.game.player.Player;
 import plangame.gwt.server.GameServer;
 import plangame.gwt.server.Server;
+import plangame.gwt.server.config.ServerConfig;
 import plangame.gwt.server.gametrace.TraceMsg.KEYS;
 import plangame.gwt.server.gametrace.TraceMsg.TraceType;
 import plangame.gwt.shared.LogType;
@@ -51,18 +52,42 @@ public class GameTracer {
 	protected GameServer gameserver;
 	
 	/** The trace file writer */
-	protected PrintWriter writer;
+	protected TraceWriter writer;
 	
 	/** Trace file folder */
 	public final static String TRACE_DIR = "traces/";
 	
 	/** Tracer version numbers */
-	protected enum TracerVersion {
-		V1;
+	public enum TracerVersion {
+		/** Text trace, one message per line */
+		V1( ".log" ),
+		/** Compact binary trace, see TraceEncoder */
+		V2( ".trace" );
+		
+		/** The trace file extension */
+		private final String extension;
+		
+		/**
+		 * Creates a new tracer version
+		 * 
+		 * @param extension The trace file extension
+		 */
+		private TracerVersion( String extension ) {
+			this.extension = extension;
+		}
+		
+		/** @return The trace file extension */
+		public String getExtension( ) { return extension; }
 	}
 	
-	/** Current tracer version number */
-	protected final static TracerVersion currversion = TracerVersion.V1;	
+	/** Version of the trace that is written */
+	protected TracerVersion version;
+	
+	/** Number of rounds between two checkpoints, 0 for no checkpoints */
+	protected int checkpointinterval;
+	
+	/** Number of rounds ended since the last checkpoint */
+	protected int checkpointrounds;
 		
 	/**
 	 * Creates a new game tracer
@@ -91,8 +116,12 @@ public class GameTracer {
 		Server.ensureDir( TRACE_DIR );
 		
 		// create a new trace file writer
-		final File tfile = Server.createFile( TRACE_DIR + gameserver.getID( ) + "_" + Server.getTimeStamp( new Date( ) ) + ".log", false );
-		writer = new PrintWriter( tfile );
+		final ServerConfig config = Server.getInstance( ).getConfiguration( );
+		version = config.getTraceVersion( );
+		final File tfile = Server.createFile( TRACE_DIR + gameserver.getID( ) + "_" + Server.getTimeStamp( new Date( ) ) + version.getExtension( ), false );
+		writer = new TraceWriter( tfile, version, config.getTraceDurability( ), config.getTraceCommitInterval( ), config.getTraceQueueSize( ) );
+		checkpointinterval = config.getTraceCheckpointInterval( );
+		checkpointrounds = 0;
 		
 		// add trace 
 		traceInfo( );
@@ -100,12 +129,19 @@ public class GameTracer {
 		Server.getInstance( ).logGameServerMessage( gameserver.getID( ), "Created trace file '" + tfile + "'", LogType.Game );
 	}
 	
+	/**
+	 * Closes the trace, writes all pending trace messages to the file
+	 */
+	public void close( ) {
+		if( writer != null ) writer.close( );
+	}
+	
 	/**
 	 * Adds version number information
 	 */
 	protected void traceInfo( ) {
 		final TraceMsg tmsg = new TraceMsg( TraceType.TraceInfo );
-		tmsg.addKey( KEYS.VersionNumber, currversion.toString( ) );
+		tmsg.addKey( KEYS.VersionNumber, version.toString( ) );
 		
 		trace( tmsg );
 	}
@@ -166,14 +202,14 @@ public class GameTracer {
 		msg.addKey( KEYS.NumPlayers, "" + players );
 		msg.addKey( KEYS.GamePeriod, "" + period );
 		
-		trace( msg );
+		trace( msg, true );
 	}
 	
 	/**
 	 * Logs the game end
 	 */
 	public void gameEnded( ) {
-		trace( new TraceMsg( TraceType.GameEnded ) );
+		trace( new TraceMsg( TraceType.GameEnded ), true );
 	}
 	
 	/**
@@ -255,7 +291,30 @@ public class GameTracer {
 		msg.addKey( KEYS.TasksCompleted, getTaskString( results.getCompleted( ) ) );
 		msg.addKey( KEYS.TasksDelayed, getTaskString( results.getDelayed( ) ) );
 		
-		trace( msg );
+		trace( msg, true );
+	}
+	
+	/**
+	 * Traces a checkpoint of the joint plan at the end of the round if the
+	 * checkpoint interval has passed, trace readers can restore the plan from
+	 * the checkpoint instead of replaying all earlier plan changes
+	 * 
+	 * @param round The round (week) number
+	 * @param jplan The joint plan at the end of the round
+	 */
+	public void checkpoint( TimePoint round, JointPlan jplan ) {
+		if( writer == null || checkpointinterval <= 0 ) return;
+		
+		// only every interval rounds
+		checkpointrounds++;
+		if( checkpointrounds < checkpointinterval ) return;
+		checkpointrounds = 0;
+		
+		final TraceMsg msg = new TraceMsg( TraceType.Checkpoint );
+		addRound( msg, round );
+		msg.addKey( KEYS.JointPlan, getPlanString( jplan ) );
+		
+		trace( msg, true );
 	}
 	
 	/**
@@ -267,7 +326,7 @@ public class GameTracer {
 		final TraceMsg msg = new TraceMsg( TraceType.EndedExecution );
 		addRound( msg, round );
 		
-		trace( msg );
+		trace( msg, true );
 	}
 	
 	/**
@@ -363,7 +422,7 @@ public class GameTracer {
 		addRound( msg, round );
 		msg.addKey( KEYS.AcceptResponse, "" + response );
 		
-		trace( msg );
+		trace( msg, true );
 	}
 	
 	/**
@@ -390,12 +449,22 @@ public class GameTracer {
 	 * @param message The message to write
 	 */
 	private void trace( TraceMsg message ) {
+		trace( message, false );
+	}
+	
+	/**
+	 * Writes the trace message into the trace file, the writer decides when
+	 * the message is flushed depending on its durability policy
+	 * 
+	 * @param message The message to write
+	 * @param boundary True if the message ends a round of the game
+	 */
+	private void trace( TraceMsg message, boolean boundary ) {
 		// check if the tracer is not a dummy
 		if( writer == null ) return;
 		
 		// output the message
-		writer.println( message.write( ) );
-		writer.flush( );
+		writer.write( message, boundary );
 	}
 	
 	/**
@@ -418,6 +487,26 @@ public class GameTracer {
 		msg.addKey( KEYS.PlayerID, player.getID( ).toString( ) );
 	}
 	
+	/**
+	 * Serialises the planned methods of the joint plan into a ';' separated
+	 * string of method ID, start week and delay status triples, each separated
+	 * by ','
+	 * 
+	 * @param jplan The joint plan
+	 * @return The string
+	 */
+	protected static String getPlanString( JointPlan jplan ) {
+		final StringBuilder plan = new StringBuilder( );
+		for( PlanTask pt : jplan.getPlanned( ) ) {
+			if( plan.length( ) > 0 ) plan.append( ';' );
+			plan.append( pt.getMethod( ).getID( ).toString( ) ).append( ',' );
+			plan.append( pt.getStartTime( ).getWeek( ) ).append( ',' );
+			plan.append( pt.getDelayStatus( ).toString( ) );
+		}
+		
+		return plan.toString( );
+	}
+	
 	/**
 	 * Concatenates all methods in the list into a ';' separated string
 	 * 
@@ -0,0 +1,414 @@
+/**
+ * @file ReplayBenchmark.java
+ * @brief Short description of file
+ *
+ * This file is created at Almende B.V. It is open-source software and part of the Common
+ * Hybrid Agent Platform (CHAP). A toolbox with a lot of open-source tools, ranging from
+ * thread pools and TCP/IP components to control architectures and learning algorithms.
+ * This software is published under the GNU Lesser General Public license (LGPL).
+ *
+ * Copyright  2026 agent <agent@local>
+ *
+ * @author       agent
+ * @date         17 okt. 2026
+ * @project      NGI
+ * @company      Almende B.V.
+ */
+package plangame.gwt.server.gametrace;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+import plangame.game.Game;
+import plangame.game.player.Player;
+import plangame.gwt.client.gamedata.GameData;
+import plangame.gwt.server.gametrace.TraceMsg.TraceType;
+
+/**
+ * Regression benchmark that replays the recorded traces. Every trace is
+ * replayed a number of times after warm up, the time and allocated bytes of
+ * every executed message are accumulated per message type. At the end of
+ * every round and at the end of the trace the client scoring functions are
+ * measured on the replayed game, the cost of computing a score on a cleared
+ * cache is reported separately from the cost of a memoized lookup. Traces are
+ * replayed in a fixed order with a fixed number of runs, so results of
+ * different builds can be compared.
+ *
+ * The results can be written as CSV and compared against the CSV of an
+ * earlier run, benchmarks whose throughput dropped more than the tolerance
+ * are reported and make the benchmark exit with status 1.
+ *
+ * Usage: ReplayBenchmark webroot [-w warmup] [-r runs] [-o output.csv]
+ * [-b baseline.csv] [-t tolerance] trace|folder...
+ *
+ * @author agent
+ */
+public class ReplayBenchmark {
+	/** The CSV header */
+	public final static String CSV_HEADER = "trace,benchmark,ops,ops/sec,bytes/op";
+	
+	/** Number of scoring calls per player at the end of the trace */
+	protected final static int SCORE_ITERATIONS = 1000;
+	
+	/** The measured scoring functions */
+	protected final static ScoreFunction[] SCORE_FUNCTIONS = {
+		new ScoreFunction( "profits", true ) {
+			@Override protected void compute( GameData data, Player player ) {
+				data.getProfits( player );
+			}
+		},
+		new ScoreFunction( "ttl", true ) {
+			@Override protected void compute( GameData data, Player player ) {
+				data.getTTL( player, false );
+			}
+		},
+		new ScoreFunction( "ttldistribution", false ) {
+			@Override protected void compute( GameData data, Player player ) {
+				data.getTTLAvgNetworkDistribution( );
+			}
+		}
+	};
+	
+	/** The web root for game files */
+	protected final String webroot;
+	
+	/** The number of warm up replays per trace */
+	protected final int warmup;
+	
+	/** The number of measured replays per trace */
+	protected final int runs;
+	
+	/** The thread bean to measure allocations, null if not supported */
+	protected final com.sun.management.ThreadMXBean allocbean;
+	
+	/**
+	 * Creates a new replay benchmark
+	 * 
+	 * @param webroot The web root for game files
+	 * @param warmup The number of warm up replays per trace
+	 * @param runs The number of measured replays per trace
+	 */
+	public ReplayBenchmark( String webroot, int warmup, int runs ) {
+		this.webroot = webroot;
+		this.warmup = warmup;
+		this.runs = runs;
+		
+		final ThreadMXBean bean = ManagementFactory.getThreadMXBean( );
+		if( bean instanceof com.sun.management.ThreadMXBean && ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported( ) ) {
+			allocbean = (com.sun.management.ThreadMXBean) bean;
+			allocbean.setThreadAllocatedMemoryEnabled( true );
+		} else
+			allocbean = null;
+	}
+	
+	/**
+	 * Benchmarks the trace
+	 * 
+	 * @param trace The trace file
+	 * @return The measurements by benchmark name
+	 * @throws Exception if the trace cannot be replayed
+	 */
+	public Map<String, Measurement> run( File trace ) throws Exception {
+		for( int i = 0; i < warmup; i++ )
+			replay( trace, new TreeMap<String, Measurement>( ) );
+		
+		final Map<String, Measurement> res = new TreeMap<String, Measurement>( );
+		for( int i = 0; i < runs; i++ )
+			replay( trace, res );
+		return res;
+	}
+	
+	/**
+	 * Replays the trace once and adds the measurements
+	 * 
+	 * @param trace The trace file
+	 * @param res The measurements to add to
+	 * @throws Exception if the trace cannot be replayed
+	 */
+	protected void replay( File trace, Map<String, Measurement> res ) throws Exception {
+		final GameTraceReader tr = new GameTraceReader( trace.getPath( ) );
+		tr.setWebRoot( webroot );
+		
+		try {
+			int round = -1;
+			while( tr.hasNext( ) ) {
+				final long bytes = allocated( );
+				final long start = System.nanoTime( );
+				tr.step( );
+				final long time = System.nanoTime( ) - start;
+				
+				final TraceType type = tr.getLastType( );
+				get( res, "replay." + type ).add( 1, time, allocated( ) - bytes );
+				
+				// score the game at the end of every round
+				if( type != TraceType.RoundEnded && type != TraceType.Checkpoint ) continue;
+				if( tr.getRound( ) != round ) {
+					round = tr.getRound( );
+					score( tr, res, "round", 1 );
+				}
+			}
+			
+			if( tr.isStarted( ) )
+				score( tr, res, "final", SCORE_ITERATIONS );
+		} finally {
+			tr.close( );
+		}
+	}
+	
+	/**
+	 * Measures the scoring functions on the current game state. The scores are
+	 * memoized by the game data, every iteration therefore clears the memoized
+	 * scores and measures the first call, that computes the score, and a
+	 * second call, that looks it up, as separate benchmarks
+	 * 
+	 * @param tr The trace reader
+	 * @param res The measurements to add to
+	 * @param label The label of the state
+	 * @param iterations The number of calls per player
+	 * @throws GameTraceException if the game has not started
+	 */
+	protected void score( GameTraceReader tr, Map<String, Measurement> res, String label, int iterations ) throws GameTraceException {
+		final Game game = tr.getGame( );
+		final GameData data = tr.getGameData( );
+		
+		for( ScoreFunction f : SCORE_FUNCTIONS ) {
+			final Measurement first = get( res, "score." + label + "." + f.name );
+			final Measurement hit = get( res, "score." + label + "." + f.name + ".hit" );
+			
+			for( int i = 0; i < iterations; i++ ) {
+				data.clearScores( );
+				score( data, game, f, first );
+				score( data, game, f, hit );
+			}
+		}
+		
+		// leave the cache of the replay in a valid state
+		data.clearScores( );
+	}
+	
+	/**
+	 * Measures one call of the scoring function, per player if the function is
+	 * computed per player
+	 * 
+	 * @param data The game data
+	 * @param game The game
+	 * @param f The scoring function
+	 * @param m The measurement to add to
+	 */
+	protected void score( GameData data, Game game, ScoreFunction f, Measurement m ) {
+		final long bytes = allocated( );
+		final long start = System.nanoTime( );
+		if( f.perplayer ) {
+			for( Player p : game.getPlayers( ) )
+				f.compute( data, p );
+		} else
+			f.compute( data, null );
+		m.add( (f.perplayer ? game.getPlayers( ).size( ) : 1), System.nanoTime( ) - start, allocated( ) - bytes );
+	}
+	
+	/**
+	 * @return The number of bytes allocated by the current thread, 0 if not
+	 * supported
+	 */
+	protected long allocated( ) {
+		if( allocbean == null ) return 0;
+		
+		return allocbean.getThreadAllocatedBytes( Thread.currentThread( ).getId( ) );
+	}
+	
+	/**
+	 * Gets the measurement of the benchmark, creates it if required
+	 * 
+	 * @param res The measurements
+	 * @param name The benchmark name
+	 * @return The measurement
+	 */
+	private static Measurement get( Map<String, Measurement> res, String name ) {
+		Measurement m = res.get( name );
+		if( m == null ) {
+			m = new Measurement( );
+			res.put( name, m );
+		}
+		return m;
+	}
+	
+	/**
+	 * Reads the throughput per trace and benchmark from a CSV written by an
+	 * earlier run
+	 * 
+	 * @param file The CSV file
+	 * @return The operations per second by trace and benchmark key
+	 * @throws IOException if the file cannot be read
+	 */
+	protected static Map<String, Double> readBaseline( File file ) throws IOException {
+		final Map<String, Double> base = new HashMap<String, Double>( );
+		final BufferedReader in = new BufferedReader( new FileReader( file ) );
+		try {
+			String l = in.readLine( );
+			while( (l = in.readLine( )) != null ) {
+				// the trace name may be quoted, so split off the last four fields
+				int pos = l.length( );
+				for( int i = 0; i < 4 && pos > 0; i++ )
+					pos = l.lastIndexOf( ',', pos - 1 );
+				if( pos <= 0 ) continue;
+				final String[] f = l.substring( pos + 1 ).split( "," );
+				final String trace = l.substring( 0, pos );
+				base.put( trace + "," + f[0], Double.parseDouble( f[2] ) );
+			}
+		} finally {
+			in.close( );
+		}
+		return base;
+	}
+	
+	/**
+	 * Runs the benchmark from the command line
+	 * 
+	 * @param args The command line arguments
+	 */
+	public static void main( String[] args ) {
+		if( args.length < 2 )
+			throw new RuntimeException( "Usage: ReplayBenchmark webroot [-w warmup] [-r runs] [-o output.csv] [-b baseline.csv] [-t tolerance] trace|folder..." );
+		
+		// parse the arguments
+		final String webroot = args[ 0 ];
+		int warmup = 3;
+		int runs = 10;
+		String output = null;
+		String baseline = null;
+		double tolerance = 0.1;
+		final List<File> traces = new ArrayList<File>( );
+		for( int i = 1; i < args.length; i++ ) {
+			if( args[ i ].equals( "-w" ) && i + 1 < args.length )
+				warmup = Integer.parseInt( args[ ++i ] );
+			else if( args[ i ].equals( "-r" ) && i + 1 < args.length )
+				runs = Integer.parseInt( args[ ++i ] );
+			else if( args[ i ].equals( "-o" ) && i + 1 < args.length )
+				output = args[ ++i ];
+			else if( args[ i ].equals( "-b" ) && i + 1 < args.length )
+				baseline = args[ ++i ];
+			else if( args[ i ].equals( "-t" ) && i + 1 < args.length )
+				tolerance = Double.parseDouble( args[ ++i ] );
+			else
+				TraceAnalyzer.collect( new File( args[ i ] ), traces );
+		}
+		
+		// replay in a fixed order
+		Collections.sort( traces );
+		final ReplayBenchmark rb = new ReplayBenchmark( webroot, warmup, runs );
+		if( rb.allocbean == null ) System.err.println( "Allocation measurement not supported, reporting 0 bytes/op" );
+		
+		int regressions = 0;
+		try {
+			final Map<String, Double> base = (baseline != null ? readBaseline( new File( baseline ) ) : new HashMap<String, Double>( ));
+			
+			final PrintWriter out = new PrintWriter( output != null ? new FileWriter( output ) : new OutputStreamWriter( System.out ) );
+			out.println( CSV_HEADER );
+			for( File trace : traces ) {
+				final Map<String, Measurement> res;
+				try {
+					res = rb.run( trace );
+				} catch( Exception e ) {
+					System.err.println( "Failed to replay '" + trace + "': " + e.getMessage( ) );
+					continue;
+				}
+				
+				final String tracename = TraceAnalyzer.csv( trace.getName( ) );
+				for( String name : res.keySet( ) ) {
+					final Measurement m = res.get( name );
+					out.println( tracename + "," + name + "," + m.ops + "," + String.format( Locale.US, "%.1f,%.1f", m.getOpsPerSec( ), m.getBytesPerOp( ) ) );
+					
+					final Double b = base.get( tracename + "," + name );
+					if( b != null && m.getOpsPerSec( ) < b * (1 - tolerance) ) {
+						System.err.println( "Regression in " + trace.getName( ) + " " + name + ": " + String.format( Locale.US, "%.1f ops/sec, baseline %.1f ops/sec", m.getOpsPerSec( ), b ) );
+						regressions++;
+					}
+				}
+				out.flush( );
+			}
+			if( output != null ) out.close( );
+		} catch( IOException ioe ) {
+			System.err.println( "Failed to read or write the results: " + ioe.getMessage( ) );
+			System.exit( 2 );
+		}
+		
+		if( regressions > 0 ) System.exit( 1 );
+	}
+	
+	/**
+	 * A measured scoring function of the game data
+	 */
+	protected abstract static class ScoreFunction {
+		/** The benchmark name of the function */
+		protected final String name;
+		
+		/** True if the function is computed per player */
+		protected final boolean perplayer;
+		
+		/**
+		 * Creates a new scoring function
+		 * 
+		 * @param name The benchmark name
+		 * @param perplayer True if the function is computed per player
+		 */
+		protected ScoreFunction( String name, boolean perplayer ) {
+			this.name = name;
+			this.perplayer = perplayer;
+		}
+		
+		/**
+		 * Calls the scoring function
+		 * 
+		 * @param data The game data
+		 * @param player The player, null if not computed per player
+		 */
+		protected abstract void compute( GameData data, Player player );
+	}
+	
+	/**
+	 * Accumulated measurement of a single benchmark
+	 */
+	public static class Measurement {
+		/** The number of operations */
+		protected long ops;
+		
+		/** The total time in nanoseconds */
+		protected long nanos;
+		
+		/** The total number of allocated bytes */
+		protected long bytes;
+		
+		/**
+		 * Adds the measurement of operations
+		 * 
+		 * @param n The number of operations
+		 * @param time The time they took in nanoseconds
+		 * @param alloc The bytes they allocated
+		 */
+		protected void add( long n, long time, long alloc ) {
+			ops += n;
+			nanos += time;
+			bytes += alloc;
+		}
+		
+		/** @return The number of operations per second */
+		public double getOpsPerSec( ) { return ops / Math.max( nanos / 1e9, 1e-9 ); }
+		
+		/** @return The average number of allocated bytes per operation */
+		public double getBytesPerOp( ) { return (ops > 0 ? bytes / (double) ops : 0); }
+	}
+}
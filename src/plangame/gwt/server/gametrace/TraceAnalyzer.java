@@ -0,0 +1,338 @@
+/**
+ * @file TraceAnalyzer.java
+ * @brief Short description of file
+ *
+ * This file is created at Almende B.V. It is open-source software and part of the Common
+ * Hybrid Agent Platform (CHAP). A toolbox with a lot of open-source tools, ranging from
+ * thread pools and TCP/IP components to control architectures and learning algorithms.
+ * This software is published under the GNU Lesser General Public license (LGPL).
+ *
+ * Copyright  2026 agent <agent@local>
+ *
+ * @author       agent
+ * @date         17 okt. 2026
+ * @project      NGI
+ * @company      Almende B.V.
+ */
+package plangame.gwt.server.gametrace;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import plangame.game.Game;
+import plangame.game.player.Player;
+import plangame.gwt.client.gamedata.GameData;
+import plangame.gwt.client.gamedata.TotalScore;
+import plangame.gwt.server.GameCache;
+import plangame.gwt.server.gametrace.GameTracer.TracerVersion;
+import plangame.gwt.server.gametrace.TraceMsg.TraceType;
+
+/**
+ * Headless batch analyser of game traces. All traces in the specified files
+ * and folders are replayed in parallel on a fork-join pool, each trace by its
+ * own trace reader with its own game and game data. The profits, TTL and
+ * profile scores of every player at the end of every round are written as
+ * CSV, the throughput is reported when all traces are analysed.
+ *
+ * Usage: TraceAnalyzer webroot [-o output.csv] [-t threads] trace|folder...
+ *
+ * @author agent
+ */
+public class TraceAnalyzer {
+	/** The CSV header */
+	public final static String CSV_HEADER = "trace,round,player,portfolio,profit,profitrisk,ttl,ttlrisk,profileprofit,profilettl,profilerisk";
+	
+	/** The web root for game files */
+	protected final String webroot;
+	
+	/** The pool to replay the traces on */
+	protected final ForkJoinPool pool;
+	
+	/**
+	 * Creates a new trace analyser
+	 * 
+	 * @param webroot The web root for game files
+	 * @param threads The number of replay threads
+	 */
+	public TraceAnalyzer( String webroot, int threads ) {
+		this.webroot = webroot;
+		this.pool = new ForkJoinPool( threads );
+	}
+	
+	/**
+	 * Collects all trace files in the file or folder (recursively). Files in
+	 * a folder are selected by their content, the server logs that are stored
+	 * with the traces use the same extension.
+	 * 
+	 * @param file The trace file or folder
+	 * @param traces The list to add the trace files to
+	 */
+	public static void collect( File file, List<File> traces ) {
+		if( file.isFile( ) ) {
+			traces.add( file );
+			return;
+		}
+		
+		final File[] files = file.listFiles( );
+		if( files == null ) return;
+		for( File f : files ) {
+			if( f.isDirectory( ) )
+				collect( f, traces );
+			else if( f.getName( ).endsWith( TracerVersion.V1.getExtension( ) ) || f.getName( ).endsWith( TracerVersion.V2.getExtension( ) ) ) {
+				try {
+					if( TraceInput.isTrace( f ) ) traces.add( f );
+				} catch( IOException ioe ) {
+					System.err.println( "Skipping unreadable file '" + f + "': " + ioe.getMessage( ) );
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Analyses all traces in parallel
+	 * 
+	 * @param traces The trace files
+	 * @return The results per trace, in the order of the trace files
+	 */
+	public List<TraceResult> analyse( List<File> traces ) {
+		if( traces.size( ) == 0 ) return new ArrayList<TraceResult>( );
+		
+		return pool.invoke( new AnalyseTask( traces, 0, traces.size( ) ) );
+	}
+	
+	/**
+	 * Replays a single trace and records the scores at the end of each round
+	 * and at the end of the trace
+	 * 
+	 * @param trace The trace file
+	 * @return The trace result
+	 */
+	protected TraceResult analyse( File trace ) {
+		final TraceResult res = new TraceResult( trace );
+		final ProfileScores ps = new ProfileScores( );
+		try {
+			final GameTraceReader tr = new GameTraceReader( trace.getPath( ) );
+			tr.setWebRoot( webroot );
+			
+			try {
+				// a round has ended when the round number changes, this is either
+				// at its round ended message or its checkpoint
+				int round = -1;
+				while( tr.step( ) != null ) {
+					final TraceType type = tr.getLastType( );
+					if( type != TraceType.RoundEnded && type != TraceType.Checkpoint ) continue;
+					
+					final int r = tr.getRound( );
+					if( r != round ) {
+						round = r;
+						addRows( res, tr, ps, "" + round );
+					}
+				}
+				
+				// final scores if the game was started
+				if( tr.data != null && tr.data.getData( ) != null )
+					addRows( res, tr, ps, "final" );
+			} finally {
+				tr.close( );
+			}
+		} catch( Exception e ) {
+			res.error = e.getMessage( );
+		}
+		
+		return res;
+	}
+	
+	/**
+	 * Adds a CSV row for every player with its current scores
+	 * 
+	 * @param res The trace result
+	 * @param tr The trace reader
+	 * @param ps The profile scorer
+	 * @param round The round label
+	 * @throws GameTraceException if the game has not started
+	 */
+	protected void addRows( TraceResult res, GameTraceReader tr, ProfileScores ps, String round ) throws GameTraceException {
+		final Game game = tr.getGame( );
+		final GameData data = tr.getGameData( );
+		final Map<Player, ProfileScoreResult> profile = ps.getScore( tr.getJointPlan( ) );
+		
+		for( Player p : game.getPlayers( ) ) {
+			final TotalScore prof = data.getProfits( p );
+			final TotalScore ttl = data.getTTL( p, false );
+			final ProfileScoreResult psr = profile.get( p );
+			
+			final StringBuilder row = new StringBuilder( );
+			row.append( csv( res.trace.getName( ) ) ).append( ',' );
+			row.append( round ).append( ',' );
+			row.append( csv( p.getID( ).toString( ) ) ).append( ',' );
+			row.append( csv( p.getPortfolio( ) != null ? p.getPortfolio( ).toString( ) : "" ) ).append( ',' );
+			row.append( prof.getBestCase( ) ).append( ',' );
+			row.append( prof.getBestCase( ) - prof.getWorstCase( ) ).append( ',' );
+			row.append( ttl.getBestCase( ) ).append( ',' );
+			row.append( ttl.getBestCase( ) - ttl.getWorstCase( ) ).append( ',' );
+			if( psr != null )
+				row.append( psr.profit ).append( ',' ).append( psr.ttl ).append( ',' ).append( psr.risk );
+			else
+				row.append( ",," );
+			
+			res.rows.add( row.toString( ) );
+		}
+	}
+	
+	/**
+	 * Quotes the CSV field if required
+	 * 
+	 * @param field The field value
+	 * @return The CSV field
+	 */
+	protected static String csv( String field ) {
+		if( field.indexOf( ',' ) == -1 && field.indexOf( '"' ) == -1 ) return field;
+		
+		return "\"" + field.replace( "\"", "\"\"" ) + "\"";
+	}
+	
+	/**
+	 * Runs the batch analysis from the command line
+	 * 
+	 * @param args The command line arguments
+	 */
+	public static void main( String[] args ) {
+		if( args.length < 2 )
+			throw new RuntimeException( "Usage: TraceAnalyzer webroot [-o output.csv] [-t threads] trace|folder..." );
+		
+		// parse the arguments
+		final String webroot = args[ 0 ];
+		String output = null;
+		int threads = Runtime.getRuntime( ).availableProcessors( );
+		final List<File> traces = new ArrayList<File>( );
+		for( int i = 1; i < args.length; i++ ) {
+			if( args[ i ].equals( "-o" ) && i + 1 < args.length )
+				output = args[ ++i ];
+			else if( args[ i ].equals( "-t" ) && i + 1 < args.length )
+				threads = Integer.parseInt( args[ ++i ] );
+			else
+				collect( new File( args[ i ] ), traces );
+		}
+		
+		// analyse all traces
+		final TraceAnalyzer ta = new TraceAnalyzer( webroot, threads );
+		final long start = System.nanoTime( );
+		final List<TraceResult> results = ta.analyse( traces );
+		final double secs = (System.nanoTime( ) - start) / 1e9;
+		
+		// write the CSV
+		int failed = 0;
+		try {
+			final PrintWriter out = new PrintWriter( output != null ? new FileWriter( output ) : new OutputStreamWriter( System.out ) );
+			out.println( CSV_HEADER );
+			for( TraceResult r : results ) {
+				for( String row : r.rows )
+					out.println( row );
+				if( r.error != null ) {
+					System.err.println( "Failed to analyse '" + r.trace + "': " + r.error );
+					failed++;
+				}
+			}
+			out.flush( );
+			if( output != null ) out.close( );
+		} catch( IOException ioe ) {
+			System.err.println( "Failed to write the output: " + ioe.getMessage( ) );
+		}
+		
+		System.err.println( "Analysed " + results.size( ) + " traces (" + failed + " failed) on " + threads + " threads in " + String.format( "%.2f", secs ) + " s: " + String.format( "%.1f", results.size( ) / Math.max( secs, 1e-9 ) ) + " traces/sec" );
+		System.err.println( GameCache.getInstance( ).getStats( ) );
+		ta.pool.shutdown( );
+	}
+	
+	/**
+	 * The analysis result of a single trace
+	 */
+	public static class TraceResult {
+		/** The trace file */
+		protected final File trace;
+		
+		/** The CSV rows of the trace */
+		protected final List<String> rows;
+		
+		/** The error message if the trace could not be analysed, null otherwise */
+		protected String error;
+		
+		/**
+		 * Creates a new empty trace result
+		 * 
+		 * @param trace The trace file
+		 */
+		protected TraceResult( File trace ) {
+			this.trace = trace;
+			rows = new ArrayList<String>( );
+			error = null;
+		}
+		
+		/** @return The trace file */
+		public File getTrace( ) { return trace; }
+		
+		/** @return The CSV rows of the trace */
+		public List<String> getRows( ) { return rows; }
+		
+		/** @return The error message, null if the analysis succeeded */
+		public String getError( ) { return error; }
+	}
+	
+	/**
+	 * Fork-join task that analyses a range of the trace files, ranges are split
+	 * until a single trace remains
+	 */
+	@SuppressWarnings("serial")
+	private class AnalyseTask extends RecursiveTask<List<TraceResult>> {
+		/** The trace files */
+		private final List<File> traces;
+		
+		/** The first trace of the range */
+		private final int from;
+		
+		/** The end of the range (exclusive) */
+		private final int to;
+		
+		/**
+		 * Creates a new analysis task
+		 * 
+		 * @param traces The trace files
+		 * @param from The first trace
+		 * @param to The end of the range (exclusive)
+		 */
+		public AnalyseTask( List<File> traces, int from, int to ) {
+			this.traces = traces;
+			this.from = from;
+			this.to = to;
+		}
+		
+		/**
+		 * @see java.util.concurrent.RecursiveTask#compute()
+		 */
+		@Override
+		protected List<TraceResult> compute( ) {
+			if( to - from == 1 ) {
+				final List<TraceResult> res = new ArrayList<TraceResult>( 1 );
+				res.add( analyse( traces.get( from ) ) );
+				return res;
+			}
+			
+			// split the range and keep the order of the results
+			final int mid = (from + to) / 2;
+			final AnalyseTask left = new AnalyseTask( traces, from, mid );
+			final AnalyseTask right = new AnalyseTask( traces, mid, to );
+			left.fork( );
+			final List<TraceResult> res = new ArrayList<TraceResult>( right.compute( ) );
+			res.addAll( 0, left.join( ) );
+			return res;
+		}
+	}
+}
@@ -0,0 +1,793 @@
+/**
+ * @file TraceColumnStore.java
+ * @brief Short description of file
+ *
+ * This file is created at Almende B.V. It is open-source software and part of the Common
+ * Hybrid Agent Platform (CHAP). A toolbox with a lot of open-source tools, ranging from
+ * thread pools and TCP/IP components to control architectures and learning algorithms.
+ * This software is published under the GNU Lesser General Public license (LGPL).
+ *
+ * Copyright  2026 agent <agent@local>
+ *
+ * @author       agent
+ * @date         17 okt. 2026
+ * @project      NGI
+ * @company      Almende B.V.
+ */
+package plangame.gwt.server.gametrace;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import plangame.gwt.server.gametrace.TraceMsg.KEYS;
+
+/**
+ * Column-oriented store of trace messages for analysis over many traces. Every
+ * message is a row, every message key is a column in its own file so queries
+ * only read the columns they need. Key values, trace names and message types
+ * are dictionary encoded, a row stores a varint code per column (0 if the
+ * message has no value for the key). The time stamps are stored as zigzag
+ * encoded deltas in milliseconds.
+ *
+ * Traces are appended incrementally, a trace that is already exported is
+ * skipped and only the new messages of a trace that has grown are appended.
+ * The store keeps a hash of the exported messages of every trace, a trace that
+ * has been rewritten since it was exported is detected by the hash of its
+ * first messages and is not appended. Only complete messages are appended,
+ * so traces of running games can be exported as well.
+ * The store metadata is written after every appended trace and lists the
+ * committed length of every file, data written after that (by an interrupted
+ * export) is truncated when the store is appended to again. The column files
+ * are synced before the metadata is replaced atomically.
+ *
+ * Usage: TraceColumnStore storedir trace|folder...
+ *
+ * @author agent
+ */
+public class TraceColumnStore {
+	/** Magic bytes of the store metadata */
+	public final static byte[] MAGIC = { 'G', 'T', 'C', 'S' };
+	
+	/** Version of the store format */
+	public final static int VERSION = 2;
+	
+	/** File name of the store metadata */
+	public final static String META_FILE = "store.meta";
+	
+	/** Extension of column files */
+	public final static String EXTENSION = ".col";
+	
+	/** Extension of dictionary files */
+	public final static String DICT_EXTENSION = ".dict";
+	
+	/** Column with the trace file names */
+	public final static String TRACE_COLUMN = "Trace";
+	
+	/** Column with the message types */
+	public final static String TYPE_COLUMN = "Type";
+	
+	/** Column with the message time stamps */
+	public final static String TIME_COLUMN = "Time";
+	
+	/** Multiplier of the message hash */
+	private final static long HASH_PRIME = 1099511628211L;
+	
+	/** The store directory */
+	protected final File dir;
+	
+	/** The number of rows in the store */
+	protected int rows;
+	
+	/** The time stamp of the last row, the base of the next delta */
+	protected long lasttime;
+	
+	/** The columns by name */
+	protected final Map<String, Column> columns;
+	
+	/** The exported traces by canonical path */
+	protected final Map<String, ExportedTrace> traces;
+	
+	/**
+	 * Opens the store in the directory, an empty store is created if there is
+	 * none
+	 * 
+	 * @param dir The store directory
+	 * @throws IOException if the store cannot be read or created
+	 */
+	public TraceColumnStore( File dir ) throws IOException {
+		this.dir = dir;
+		columns = new LinkedHashMap<String, Column>( );
+		traces = new LinkedHashMap<String, ExportedTrace>( );
+		
+		if( !dir.isDirectory( ) && !dir.mkdirs( ) )
+			throw new IOException( "Failed to create store directory '" + dir + "'" );
+		load( );
+	}
+	
+	/**
+	 * Loads the store metadata and dictionaries, adds columns for keys that are
+	 * not in the store yet
+	 * 
+	 * @throws IOException if the store cannot be read
+	 */
+	protected void load( ) throws IOException {
+		closeColumns( );
+		columns.clear( );
+		traces.clear( );
+		rows = 0;
+		lasttime = 0;
+		
+		final File meta = new File( dir, META_FILE );
+		if( meta.exists( ) ) {
+			final DataInputStream in = new DataInputStream( new BufferedInputStream( new FileInputStream( meta ) ) );
+			try {
+				final byte[] magic = new byte[ MAGIC.length ];
+				in.readFully( magic );
+				if( !Arrays.equals( magic, MAGIC ) ) throw new IOException( "Not a trace column store: " + dir );
+				final int version = in.readInt( );
+				if( version != VERSION ) throw new IOException( "Unsupported column store version " + version );
+				
+				rows = in.readInt( );
+				lasttime = in.readLong( );
+				final int ncols = in.readInt( );
+				for( int i = 0; i < ncols; i++ ) {
+					final Column c = new Column( in.readUTF( ), in.readBoolean( ) );
+					c.length = in.readLong( );
+					c.dictlength = in.readLong( );
+					c.readDictionary( in.readInt( ) );
+					columns.put( c.name, c );
+				}
+				final int ntraces = in.readInt( );
+				for( int i = 0; i < ntraces; i++ ) {
+					final ExportedTrace et = new ExportedTrace( in.readUTF( ), in.readUTF( ) );
+					et.length = in.readLong( );
+					et.modified = in.readLong( );
+					et.messages = in.readInt( );
+					et.hash = in.readLong( );
+					traces.put( et.path, et );
+				}
+			} finally {
+				in.close( );
+			}
+		}
+		
+		// make sure every column exists, new columns have no value for the
+		// existing rows
+		addColumn( TRACE_COLUMN, true );
+		addColumn( TYPE_COLUMN, true );
+		addColumn( TIME_COLUMN, false );
+		for( KEYS k : KEYS.values( ) )
+			addColumn( k.toString( ), true );
+	}
+	
+	/**
+	 * Adds the column if it is not in the store
+	 * 
+	 * @param name The column name
+	 * @param dictionary True for a dictionary encoded column
+	 * @throws IOException if the column cannot be created
+	 */
+	private void addColumn( String name, boolean dictionary ) throws IOException {
+		if( columns.containsKey( name ) ) return;
+		
+		final Column c = new Column( name, dictionary );
+		columns.put( name, c );
+		for( int i = 0; i < rows; i++ )
+			c.add( null );
+	}
+	
+	/**
+	 * Appends the messages of the trace that are not in the store yet
+	 * 
+	 * @param trace The trace file
+	 * @return The number of appended rows
+	 * @throws IOException if the trace or store cannot be read or written
+	 * @throws GameTraceException if the trace is invalid or has been rewritten
+	 * since it was exported
+	 */
+	public int append( File trace ) throws IOException, GameTraceException {
+		// the trace may still be written, take its state before it is read so
+		// that messages written during the read are checked again
+		final long length = trace.length( );
+		final long modified = trace.lastModified( );
+		
+		final String path = trace.getCanonicalPath( );
+		ExportedTrace et = traces.get( path );
+		if( et != null && et.length == length && et.modified == modified ) return 0;
+		if( et != null && length < et.length )
+			throw new GameTraceException( "Trace '" + trace + "' has been rewritten since it was exported" );
+		if( et == null ) et = new ExportedTrace( path, trace.getName( ) );
+		
+		// skip the exported messages and append the others
+		final Column tracecol = columns.get( TRACE_COLUMN );
+		final Column typecol = columns.get( TYPE_COLUMN );
+		final Column timecol = columns.get( TIME_COLUMN );
+		final Column[] keycols = new Column[ KEYS.values( ).length ];
+		for( KEYS k : KEYS.values( ) )
+			keycols[ k.ordinal( ) ] = columns.get( k.toString( ) );
+		final String[] values = new String[ keycols.length ];
+		
+		// only complete messages are read, a partially written last message is
+		// appended once the trace has been written further
+		int appended = 0;
+		long hash = 0;
+		final TraceInput in = TraceInput.tail( trace );
+		try {
+			// the exported messages must still be the first messages of the trace
+			int skip = et.messages;
+			TraceMsg t;
+			while( (t = in.read( )) != null ) {
+				hash = hash( hash, t );
+				if( skip > 0 ) {
+					if( --skip == 0 && hash != et.hash )
+						throw new GameTraceException( "Trace '" + trace + "' has been rewritten since it was exported" );
+					continue;
+				}
+				
+				Arrays.fill( values, null );
+				for( int i = 0; i < t.getKeyCount( ); i++ )
+					values[ t.getKey( i ).ordinal( ) ] = t.getValue( i );
+				
+				tracecol.add( et.name );
+				typecol.add( t.getType( ).toString( ) );
+				timecol.add( t.getStamp( ).getTime( ) - lasttime );
+				lasttime = t.getStamp( ).getTime( );
+				for( int i = 0; i < keycols.length; i++ )
+					keycols[ i ].add( values[ i ] );
+				
+				rows++;
+				appended++;
+			}
+			if( skip > 0 )
+				throw new GameTraceException( "Trace '" + trace + "' has fewer messages than were exported" );
+		} catch( IOException ioe ) {
+			load( );
+			throw ioe;
+		} catch( GameTraceException gte ) {
+			load( );
+			throw gte;
+		} finally {
+			in.close( );
+		}
+		
+		// commit the appended rows
+		et.length = length;
+		et.modified = modified;
+		et.messages += appended;
+		et.hash = hash;
+		traces.put( path, et );
+		commit( );
+		return appended;
+	}
+	
+	/**
+	 * Adds the message to the hash of the messages of a trace
+	 * 
+	 * @param hash The hash of the preceding messages
+	 * @param t The message
+	 * @return The hash including the message
+	 */
+	private static long hash( long hash, TraceMsg t ) {
+		hash = (hash ^ t.getType( ).toString( ).hashCode( )) * HASH_PRIME;
+		hash = (hash ^ t.getStamp( ).getTime( )) * HASH_PRIME;
+		for( int i = 0; i < t.getKeyCount( ); i++ ) {
+			final String value = t.getValue( i );
+			hash = (hash ^ t.getKey( i ).toString( ).hashCode( )) * HASH_PRIME;
+			hash = (hash ^ (value != null ? value.hashCode( ) : 0)) * HASH_PRIME;
+		}
+		return hash;
+	}
+	
+	/**
+	 * Flushes all columns to disk and writes the metadata, which marks the
+	 * written data as committed. The metadata file is replaced atomically, so
+	 * the store always has the metadata of the last or the new commit.
+	 * 
+	 * @throws IOException if the store cannot be written
+	 */
+	protected void commit( ) throws IOException {
+		for( Column c : columns.values( ) )
+			c.flush( );
+		
+		final File tmp = new File( dir, META_FILE + ".tmp" );
+		final FileOutputStream file = new FileOutputStream( tmp );
+		final DataOutputStream out = new DataOutputStream( new BufferedOutputStream( file ) );
+		try {
+			out.write( MAGIC );
+			out.writeInt( VERSION );
+			out.writeInt( rows );
+			out.writeLong( lasttime );
+			out.writeInt( columns.size( ) );
+			for( Column c : columns.values( ) ) {
+				out.writeUTF( c.name );
+				out.writeBoolean( c.dictionary );
+				out.writeLong( c.length );
+				out.writeLong( c.dictlength );
+				out.writeInt( c.dict.size( ) );
+			}
+			out.writeInt( traces.size( ) );
+			for( ExportedTrace et : traces.values( ) ) {
+				out.writeUTF( et.path );
+				out.writeUTF( et.name );
+				out.writeLong( et.length );
+				out.writeLong( et.modified );
+				out.writeInt( et.messages );
+				out.writeLong( et.hash );
+			}
+			out.flush( );
+			file.getFD( ).sync( );
+		} finally {
+			out.close( );
+		}
+		
+		// replace the metadata by the new metadata
+		final File meta = new File( dir, META_FILE );
+		try {
+			Files.move( tmp.toPath( ), meta.toPath( ), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE );
+		} catch( AtomicMoveNotSupportedException amnse ) {
+			Files.move( tmp.toPath( ), meta.toPath( ), StandardCopyOption.REPLACE_EXISTING );
+		}
+	}
+	
+	/**
+	 * Closes the store, all appended traces are already committed
+	 * 
+	 * @throws IOException if a column file cannot be closed
+	 */
+	public void close( ) throws IOException {
+		closeColumns( );
+	}
+	
+	/**
+	 * Closes the output of all columns
+	 * 
+	 * @throws IOException if a column file cannot be closed
+	 */
+	private void closeColumns( ) throws IOException {
+		for( Column c : columns.values( ) )
+			c.close( );
+	}
+	
+	/** @return The number of rows in the store */
+	public int getRowCount( ) { return rows; }
+	
+	/** @return The names of all columns */
+	public List<String> getColumnNames( ) {
+		return new ArrayList<String>( columns.keySet( ) );
+	}
+	
+	/** @return The names of the exported traces */
+	public List<String> getTraceNames( ) {
+		final List<String> names = new ArrayList<String>( traces.size( ) );
+		for( ExportedTrace et : traces.values( ) )
+			names.add( et.name );
+		return names;
+	}
+	
+	/**
+	 * @param column The column name
+	 * @return The dictionary of the column, code i + 1 is the i-th value
+	 */
+	public List<String> getDictionary( String column ) {
+		return Collections.unmodifiableList( getColumn( column ).dict );
+	}
+	
+	/**
+	 * Reads the codes of a dictionary encoded column, 0 for rows without value
+	 * 
+	 * @param column The column name
+	 * @return The code per row
+	 * @throws IOException if the column cannot be read
+	 */
+	public int[] readCodes( String column ) throws IOException {
+		final Column c = getColumn( column );
+		final int[] codes = new int[ rows ];
+		final DataInputStream in = c.openInput( );
+		try {
+			for( int i = 0; i < rows; i++ )
+				codes[ i ] = readVarInt( in );
+		} finally {
+			in.close( );
+		}
+		return codes;
+	}
+	
+	/**
+	 * Reads the values of a dictionary encoded column
+	 * 
+	 * @param column The column name
+	 * @return The value per row, null for rows without value
+	 * @throws IOException if the column cannot be read
+	 */
+	public String[] readValues( String column ) throws IOException {
+		final List<String> dict = getColumn( column ).dict;
+		final int[] codes = readCodes( column );
+		final String[] values = new String[ codes.length ];
+		for( int i = 0; i < codes.length; i++ )
+			values[ i ] = (codes[ i ] == 0 ? null : dict.get( codes[ i ] - 1 ));
+		return values;
+	}
+	
+	/**
+	 * Reads the time stamps of all rows
+	 * 
+	 * @return The time stamp per row in milliseconds
+	 * @throws IOException if the column cannot be read
+	 */
+	public long[] readTimes( ) throws IOException {
+		final long[] times = new long[ rows ];
+		final DataInputStream in = getColumn( TIME_COLUMN ).openInput( );
+		try {
+			long time = 0;
+			for( int i = 0; i < rows; i++ ) {
+				time += TraceDecoder.unzigzag( readVarLong( in ) );
+				times[ i ] = time;
+			}
+		} finally {
+			in.close( );
+		}
+		return times;
+	}
+	
+	/**
+	 * @param name The column name
+	 * @return The column
+	 * @throws IllegalArgumentException if the store has no such column
+	 */
+	protected Column getColumn( String name ) {
+		final Column c = columns.get( name );
+		if( c == null ) throw new IllegalArgumentException( "Unknown column " + name );
+		return c;
+	}
+	
+	/**
+	 * Exports the traces and prints the number of messages per type
+	 * 
+	 * @param args The store directory followed by the trace files and folders
+	 */
+	public static void main( String[] args ) {
+		if( args.length < 2 )
+			throw new RuntimeException( "Usage: TraceColumnStore storedir trace|folder..." );
+		
+		final List<File> files = new ArrayList<File>( );
+		for( int i = 1; i < args.length; i++ )
+			TraceAnalyzer.collect( new File( args[ i ] ), files );
+		Collections.sort( files );
+		
+		try {
+			final TraceColumnStore store = new TraceColumnStore( new File( args[ 0 ] ) );
+			try {
+				for( File f : files ) {
+					try {
+						System.out.println( f.getName( ) + ": " + store.append( f ) + " rows appended" );
+					} catch( GameTraceException gte ) {
+						System.err.println( "Failed to export '" + f + "': " + gte.getMessage( ) );
+					}
+				}
+				
+				// example query, only reads the type column
+				final int[] types = store.readCodes( TYPE_COLUMN );
+				final int[] counts = new int[ store.getDictionary( TYPE_COLUMN ).size( ) + 1 ];
+				for( int t : types ) counts[ t ]++;
+				
+				System.out.println( store.getRowCount( ) + " rows from " + store.traces.size( ) + " traces" );
+				for( int i = 1; i < counts.length; i++ )
+					System.out.println( store.getDictionary( TYPE_COLUMN ).get( i - 1 ) + "\t" + counts[ i ] );
+			} finally {
+				store.close( );
+			}
+		} catch( IOException ioe ) {
+			System.err.println( "Failed to export to the column store: " + ioe.getMessage( ) );
+		}
+	}
+	
+	/**
+	 * Writes an unsigned varint
+	 * 
+	 * @param out The output stream
+	 * @param value The value
+	 * @throws IOException if the write failed
+	 */
+	private static void writeVarInt( DataOutputStream out, int value ) throws IOException {
+		while( (value & ~0x7F) != 0 ) {
+			out.writeByte( (value & 0x7F) | 0x80 );
+			value >>>= 7;
+		}
+		out.writeByte( value );
+	}
+	
+	/**
+	 * Writes an unsigned varlong
+	 * 
+	 * @param out The output stream
+	 * @param value The value
+	 * @throws IOException if the write failed
+	 */
+	private static void writeVarLong( DataOutputStream out, long value ) throws IOException {
+		while( (value & ~0x7FL) != 0 ) {
+			out.writeByte( (int)((value & 0x7F) | 0x80) );
+			value >>>= 7;
+		}
+		out.writeByte( (int)value );
+	}
+	
+	/**
+	 * Reads an unsigned varint
+	 * 
+	 * @param in The input stream
+	 * @return The value
+	 * @throws IOException if the read failed
+	 */
+	private static int readVarInt( DataInputStream in ) throws IOException {
+		int value = 0;
+		int shift = 0;
+		int b;
+		do {
+			b = in.readUnsignedByte( );
+			value |= (b & 0x7F) << shift;
+			shift += 7;
+		} while( (b & 0x80) != 0 );
+		return value;
+	}
+	
+	/**
+	 * Reads an unsigned varlong
+	 * 
+	 * @param in The input stream
+	 * @return The value
+	 * @throws IOException if the read failed
+	 */
+	private static long readVarLong( DataInputStream in ) throws IOException {
+		long value = 0;
+		int shift = 0;
+		int b;
+		do {
+			b = in.readUnsignedByte( );
+			value |= (long)(b & 0x7F) << shift;
+			shift += 7;
+		} while( (b & 0x80) != 0 );
+		return value;
+	}
+	
+	/**
+	 * A column file with its dictionary
+	 */
+	protected class Column {
+		/** The column name */
+		protected final String name;
+		
+		/** True if the values are dictionary encoded, false for time deltas */
+		protected final boolean dictionary;
+		
+		/** The committed length of the column file */
+		protected long length;
+		
+		/** The committed length of the dictionary file */
+		protected long dictlength;
+		
+		/** The dictionary values */
+		protected final List<String> dict;
+		
+		/** The codes of the dictionary values */
+		protected final Map<String, Integer> codes;
+		
+		/** The column output, null until the first append */
+		private DataOutputStream out;
+		
+		/** The column file of the output */
+		private FileOutputStream outfile;
+		
+		/** The dictionary output, null until the first new value */
+		private DataOutputStream dictout;
+		
+		/** The dictionary file of the output */
+		private FileOutputStream dictfile;
+		
+		/**
+		 * Creates a new empty column
+		 * 
+		 * @param name The column name
+		 * @param dictionary True for a dictionary encoded column
+		 */
+		protected Column( String name, boolean dictionary ) {
+			this.name = name;
+			this.dictionary = dictionary;
+			length = 0;
+			dictlength = 0;
+			dict = new ArrayList<String>( );
+			codes = new HashMap<String, Integer>( );
+		}
+		
+		/**
+		 * Reads the committed dictionary values
+		 * 
+		 * @param size The number of committed values
+		 * @throws IOException if the dictionary cannot be read
+		 */
+		protected void readDictionary( int size ) throws IOException {
+			if( size == 0 ) return;
+			
+			final DataInputStream in = new DataInputStream( new BufferedInputStream( new FileInputStream( new File( dir, name + DICT_EXTENSION ) ) ) );
+			try {
+				for( int i = 0; i < size; i++ ) {
+					final String v = in.readUTF( );
+					codes.put( v, dict.size( ) );
+					dict.add( v );
+				}
+			} catch( EOFException eof ) {
+				throw new IOException( "Dictionary of column " + name + " is truncated" );
+			} finally {
+				in.close( );
+			}
+		}
+		
+		/**
+		 * Appends a value
+		 * 
+		 * @param value The value, null if the row has no value
+		 * @throws IOException if the value cannot be written
+		 */
+		protected void add( String value ) throws IOException {
+			int code = 0;
+			if( value != null ) {
+				Integer c = codes.get( value );
+				if( c == null ) {
+					c = dict.size( );
+					codes.put( value, c );
+					dict.add( value );
+					if( dictout == null ) {
+						dictfile = openOutput( new File( dir, name + DICT_EXTENSION ), dictlength );
+						dictout = new DataOutputStream( new BufferedOutputStream( dictfile ) );
+					}
+					dictout.writeUTF( value );
+				}
+				code = c + 1;
+			}
+			
+			if( out == null ) openColumn( );
+			writeVarInt( out, code );
+		}
+		
+		/**
+		 * Appends a time delta
+		 * 
+		 * @param delta The time since the previous row
+		 * @throws IOException if the value cannot be written
+		 */
+		protected void add( long delta ) throws IOException {
+			if( out == null ) openColumn( );
+			writeVarLong( out, TraceEncoder.zigzag( delta ) );
+		}
+		
+		/**
+		 * Opens the column output at the committed length
+		 * 
+		 * @throws IOException if the column file cannot be opened
+		 */
+		private void openColumn( ) throws IOException {
+			outfile = openOutput( new File( dir, name + EXTENSION ), length );
+			out = new DataOutputStream( new BufferedOutputStream( outfile ) );
+		}
+		
+		/**
+		 * Flushes the written data to disk and updates the committed lengths
+		 * 
+		 * @throws IOException if the data cannot be written
+		 */
+		protected void flush( ) throws IOException {
+			if( out != null ) {
+				out.flush( );
+				outfile.getFD( ).sync( );
+				length = new File( dir, name + EXTENSION ).length( );
+			}
+			if( dictout != null ) {
+				dictout.flush( );
+				dictfile.getFD( ).sync( );
+				dictlength = new File( dir, name + DICT_EXTENSION ).length( );
+			}
+		}
+		
+		/**
+		 * Closes the outputs, data that is not flushed is discarded on the next
+		 * append
+		 * 
+		 * @throws IOException if a file cannot be closed
+		 */
+		protected void close( ) throws IOException {
+			if( out != null ) out.close( );
+			if( dictout != null ) dictout.close( );
+			out = null;
+			outfile = null;
+			dictout = null;
+			dictfile = null;
+		}
+		
+		/**
+		 * @return The input of the committed column data
+		 * @throws IOException if the column cannot be read
+		 */
+		protected DataInputStream openInput( ) throws IOException {
+			if( out != null ) out.flush( );
+			
+			final File file = new File( dir, name + EXTENSION );
+			if( !file.exists( ) ) return new DataInputStream( new ByteArrayInputStream( new byte[ 0 ] ) );
+			return new DataInputStream( new BufferedInputStream( new FileInputStream( file ) ) );
+		}
+		
+		/**
+		 * Opens the file for appending, data after the committed length is
+		 * removed first
+		 * 
+		 * @param file The file
+		 * @param committed The committed length
+		 * @return The file output stream
+		 * @throws IOException if the file cannot be opened
+		 */
+		private FileOutputStream openOutput( File file, long committed ) throws IOException {
+			final RandomAccessFile raf = new RandomAccessFile( file, "rw" );
+			try {
+				raf.setLength( committed );
+			} finally {
+				raf.close( );
+			}
+			return new FileOutputStream( file, true );
+		}
+	}
+	
+	/**
+	 * The export state of a trace
+	 */
+	protected static class ExportedTrace {
+		/** The canonical path of the trace */
+		protected final String path;
+		
+		/** The file name of the trace */
+		protected final String name;
+		
+		/** The length of the trace when it was exported */
+		protected long length;
+		
+		/** The modification time of the trace when it was exported */
+		protected long modified;
+		
+		/** The number of exported messages */
+		protected int messages;
+		
+		/** The hash of the exported messages */
+		protected long hash;
+		
+		/**
+		 * Creates a new trace export state
+		 * 
+		 * @param path The canonical path of the trace
+		 * @param name The file name of the trace
+		 */
+		protected ExportedTrace( String path, String name ) {
+			this.path = path;
+			this.name = name;
+			length = 0;
+			modified = 0;
+			messages = 0;
+			hash = 0;
+		}
+	}
+}
@@ -0,0 +1,140 @@
+/**
+ * @file TraceConverter.java
+ * @brief Short description of file
+ *
+ * This file is created at Almende B.V. It is open-source software and part of the Common
+ * Hybrid Agent Platform (CHAP). A toolbox with a lot of open-source tools, ranging from
+ * thread pools and TCP/IP components to control architectures and learning algorithms.
+ * This software is published under the GNU Lesser General Public license (LGPL).
+ *
+ * Copyright  2026 agent <agent@local>
+ *
+ * @author       agent
+ * @date         17 okt. 2026
+ * @project      NGI
+ * @company      Almende B.V.
+ */
+package plangame.gwt.server.gametrace;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+
+import plangame.gwt.server.gametrace.GameTracer.TracerVersion;
+import plangame.gwt.server.gametrace.TraceMsg.KEYS;
+import plangame.gwt.server.gametrace.TraceMsg.TraceType;
+
+/**
+ * Converts text game traces (V1) into the compact binary trace format (V2).
+ * The converted trace is written next to the original with the V2 extension,
+ * the version number in the trace info message is updated accordingly.
+ *
+ * @author agent
+ */
+public class TraceConverter {
+	/**
+	 * Converts a text trace file into a binary trace file
+	 * 
+	 * @param in The text trace file
+	 * @param out The binary trace file to write
+	 * @return The number of converted messages
+	 * @throws IOException if either file cannot be read or written
+	 * @throws GameTraceException if the text trace is invalid
+	 */
+	public static int convert( File in, File out ) throws IOException, GameTraceException {
+		if( TraceDecoder.isBinaryTrace( in ) )
+			throw new GameTraceException( "Trace '" + in + "' is already a binary trace" );
+		
+		final BufferedReader br = new BufferedReader( new FileReader( in ) );
+		final TraceEncoder enc = new TraceEncoder( out );
+		int count = 0;
+		try {
+			String l;
+			while( (l = br.readLine( )) != null ) {
+				if( l.trim( ).length( ) == 0 ) continue;
+				
+				TraceMsg t = TraceMsg.read( l );
+				if( t.getType( ) == TraceType.TraceInfo )
+					t = updateVersion( t );
+				
+				enc.write( t );
+				count++;
+			}
+		} finally {
+			br.close( );
+			enc.close( );
+		}
+		
+		if( enc.checkError( ) )
+			throw new IOException( "Failed to write binary trace '" + out + "'" );
+		
+		return count;
+	}
+	
+	/**
+	 * Copies the trace info message with the version number set to V2
+	 * 
+	 * @param info The trace info message
+	 * @return The updated message
+	 */
+	protected static TraceMsg updateVersion( TraceMsg info ) {
+		final TraceMsg t = new TraceMsg( info.getType( ), info.getStamp( ) );
+		for( int i = 0; i < info.getKeyCount( ); i++ ) {
+			if( info.getKey( i ) == KEYS.VersionNumber )
+				t.addKey( KEYS.VersionNumber, TracerVersion.V2.toString( ) );
+			else
+				t.addKey( info.getKey( i ), info.getValue( i ) );
+		}
+		return t;
+	}
+	
+	/**
+	 * @param in The text trace file
+	 * @return The file name for the converted trace
+	 */
+	protected static File getTarget( File in ) {
+		String name = in.getName( );
+		if( name.endsWith( TracerVersion.V1.getExtension( ) ) )
+			name = name.substring( 0, name.length( ) - TracerVersion.V1.getExtension( ).length( ) );
+		return new File( in.getParentFile( ), name + TracerVersion.V2.getExtension( ) );
+	}
+	
+	/**
+	 * Converts all trace files and folders specified on the command line, only
+	 * files with the V1 extension are converted in folders
+	 * 
+	 * @param args The trace files or folders
+	 */
+	public static void main( String[] args ) {
+		if( args.length < 1 )
+			throw new RuntimeException( "Specify the trace files or folders to convert!" );
+		
+		for( String arg : args ) {
+			final File f = new File( arg );
+			if( f.isDirectory( ) ) {
+				final File[] files = f.listFiles( );
+				if( files == null ) continue;
+				for( File tf : files )
+					if( tf.isFile( ) && tf.getName( ).endsWith( TracerVersion.V1.getExtension( ) ) )
+						convertFile( tf );
+			} else
+				convertFile( f );
+		}
+	}
+	
+	/**
+	 * Converts the file and prints the result
+	 * 
+	 * @param in The text trace file
+	 */
+	private static void convertFile( File in ) {
+		final File out = getTarget( in );
+		try {
+			final int count = convert( in, out );
+			System.out.println( in.getName( ) + ": " + count + " messages, " + in.length( ) + " -> " + out.length( ) + " bytes (" + String.format( "%.1f", 100.0 * out.length( ) / Math.max( 1, in.length( ) ) ) + "%)" );
+		} catch( Exception e ) {
+			System.err.println( "Failed to convert '" + in + "': " + e.getMessage( ) );
+		}
+	}
+}
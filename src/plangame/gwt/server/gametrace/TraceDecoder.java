@@ -0,0 +1,463 @@
+/**
+ * @file TraceDecoder.java
+ * @brief Short description of file
+ *
+ * This file is created at Almende B.V. It is open-source software and part of the Common
+ * Hybrid Agent Platform (CHAP). A toolbox with a lot of open-source tools, ranging from
+ * thread pools and TCP/IP components to control architectures and learning algorithms.
+ * This software is published under the GNU Lesser General Public license (LGPL).
+ *
+ * Copyright  2026 agent <agent@local>
+ *
+ * @author       agent
+ * @date         17 okt. 2026
+ * @project      NGI
+ * @company      Almende B.V.
+ */
+package plangame.gwt.server.gametrace;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import plangame.gwt.server.gametrace.TraceMsg.KEYS;
+import plangame.gwt.server.gametrace.TraceMsg.TraceType;
+
+/**
+ * Reads trace messages from the compact binary trace format (version V2), see
+ * TraceEncoder for a description of the format.
+ *
+ * @author agent
+ */
+public class TraceDecoder extends TraceInput {
+	/** The input stream */
+	protected final DataInputStream in;
+	
+	/** The stream that counts the bytes read by the decoder */
+	private final CountingInput counter;
+	
+	/** Trace types by their index in the schema of the trace, null for types
+	 * that are unknown to this version */
+	protected final TraceType[] types;
+	
+	/** Keys by their index in the schema of the trace, null for keys that are
+	 * unknown to this version */
+	protected final KEYS[] keys;
+	
+	/** The token dictionary */
+	protected final List<String> dictionary;
+	
+	/** Time stamp of the previous message in milliseconds since the epoch */
+	protected long laststamp;
+	
+	/** Reusable token buffer */
+	private final StringBuilder value;
+	
+	/** True if the trace is still being written, see setTailing */
+	protected boolean tailing;
+	
+	/**
+	 * Creates a new decoder for the file
+	 * 
+	 * @param file The trace file
+	 * @throws IOException if the file cannot be read
+	 * @throws GameTraceException if the file is not a binary trace
+	 */
+	public TraceDecoder( File file ) throws IOException, GameTraceException {
+		this( new FileInputStream( file ) );
+	}
+	
+	/**
+	 * Creates a new decoder and reads the trace header from the stream
+	 * 
+	 * @param stream The input stream
+	 * @throws IOException if the stream cannot be read
+	 * @throws GameTraceException if the stream is not a binary trace or uses
+	 * an unsupported format version
+	 */
+	public TraceDecoder( InputStream stream ) throws IOException, GameTraceException {
+		counter = new CountingInput( new BufferedInputStream( stream ) );
+		in = new DataInputStream( counter );
+		dictionary = new ArrayList<String>( );
+		laststamp = 0;
+		value = new StringBuilder( );
+		tailing = false;
+		
+		// the stream is closed if the header cannot be read, also if it is only
+		// partially written yet
+		boolean read = false;
+		try {
+			// check the header
+			final byte[] magic = new byte[ TraceEncoder.MAGIC.length ];
+			try {
+				in.readFully( magic );
+			} catch( EOFException eof ) {
+				throw new GameTraceException( "Not a binary trace" );
+			}
+			if( !isMagic( magic ) ) throw new GameTraceException( "Not a binary trace" );
+			final int version = readVarInt( );
+			if( version != TraceEncoder.FORMAT_VERSION )
+				throw new GameTraceException( "Unsupported binary trace version " + version );
+			
+			// read the schema, names of renamed or removed types and keys are
+			// unknown to this version, their messages and values are skipped
+			types = new TraceType[ readVarInt( ) ];
+			for( int i = 0; i < types.length; i++ )
+				types[i] = typeOf( in.readUTF( ) );
+			keys = new KEYS[ readVarInt( ) ];
+			for( int i = 0; i < keys.length; i++ )
+				keys[i] = keyOf( in.readUTF( ) );
+			read = true;
+		} finally {
+			if( !read ) in.close( );
+		}
+	}
+	
+	/**
+	 * @param name The name of the trace type
+	 * @return The trace type or null if the name is unknown
+	 */
+	private static TraceType typeOf( String name ) {
+		try {
+			return TraceType.valueOf( name );
+		} catch( IllegalArgumentException iae ) {
+			return null;
+		}
+	}
+	
+	/**
+	 * @param name The name of the key
+	 * @return The key or null if the name is unknown
+	 */
+	private static KEYS keyOf( String name ) {
+		try {
+			return KEYS.valueOf( name );
+		} catch( IllegalArgumentException iae ) {
+			return null;
+		}
+	}
+	
+	/**
+	 * Checks whether the file starts with the binary trace magic bytes
+	 * 
+	 * @param file The file to check
+	 * @return True if the file is a binary trace
+	 * @throws IOException if the file cannot be read
+	 */
+	public static boolean isBinaryTrace( File file ) throws IOException {
+		final InputStream is = new FileInputStream( file );
+		try {
+			final byte[] magic = new byte[ TraceEncoder.MAGIC.length ];
+			int read = 0;
+			while( read < magic.length ) {
+				final int r = is.read( magic, read, magic.length - read );
+				if( r == -1 ) return false;
+				read += r;
+			}
+			return isMagic( magic );
+		} finally {
+			is.close( );
+		}
+	}
+	
+	/**
+	 * @param bytes The bytes to check
+	 * @return True if the bytes equal the magic bytes
+	 */
+	private static boolean isMagic( byte[] bytes ) {
+		for( int i = 0; i < TraceEncoder.MAGIC.length; i++ )
+			if( bytes[i] != TraceEncoder.MAGIC[i] ) return false;
+		return true;
+	}
+	
+	/**
+	 * Sets whether the trace is still being written. When tailing, a message
+	 * that is only partially written is not an error: the input is moved back
+	 * to the start of the message and read returns null, the message is read
+	 * again by the next read once the trace has grown.
+	 * 
+	 * @param tailing True if the trace is still being written
+	 */
+	public void setTailing( boolean tailing ) {
+		this.tailing = tailing;
+	}
+	
+	/**
+	 * @return The position of the next message in the trace in bytes
+	 */
+	public long getPosition( ) {
+		return counter.position;
+	}
+	
+	/**
+	 * @return The tokens of the dictionary in the order in which they were
+	 * read, the list should not be modified
+	 */
+	public List<String> getDictionary( ) {
+		return dictionary;
+	}
+	
+	/**
+	 * @return The time stamp of the previous message, the time stamp of the
+	 * next message is relative to it
+	 */
+	public long getTimeBase( ) {
+		return laststamp;
+	}
+	
+	/**
+	 * Moves the decoder forward to a message of which the position and decoder
+	 * state have been stored, e.g. by a trace index, without decoding the
+	 * messages before it.
+	 * 
+	 * @param position The position of the message, not before the current
+	 * position
+	 * @param tokens The token dictionary of the trace, containing at least the
+	 * tokens read before the message
+	 * @param dictsize The size of the dictionary before the message
+	 * @param timebase The time stamp of the message before it
+	 * @throws IOException if the trace cannot be read up to the position
+	 */
+	public void skipTo( long position, List<String> tokens, int dictsize, long timebase ) throws IOException {
+		if( position < counter.position || dictsize < dictionary.size( ) )
+			throw new IllegalArgumentException( "Cannot move the decoder back" );
+		
+		while( counter.position < position )
+			if( in.skip( position - counter.position ) <= 0 )
+				throw new EOFException( "Trace ends before position " + position );
+		
+		dictionary.addAll( tokens.subList( dictionary.size( ), dictsize ) );
+		laststamp = timebase;
+	}
+	
+	/**
+	 * Reads the next trace message, messages of types that are unknown to this
+	 * version are skipped
+	 * 
+	 * @return The message or null if the end of the trace is reached
+	 * @throws IOException if the trace cannot be read
+	 * @throws GameTraceException if the trace is truncated or invalid
+	 */
+	@Override
+	public TraceMsg read( ) throws IOException, GameTraceException {
+		while( true ) {
+			// remember the state to roll back a partially written message
+			final int dictsize = dictionary.size( );
+			final long stamp = laststamp;
+			if( tailing ) in.mark( Integer.MAX_VALUE );
+			
+			// end of trace?
+			final int first = in.read( );
+			if( first == -1 ) return null;
+			
+			try {
+				final int type = readVarInt( first );
+				if( type >= types.length ) throw new GameTraceException( "Invalid trace type index " + type );
+				
+				laststamp += unzigzag( readVarLong( ) );
+				final TraceMsg msg = (types[type] != null ? new TraceMsg( types[type], new Date( laststamp ) ) : null);
+				
+				// the values of unknown keys are still read for the dictionary
+				final int count = readVarInt( );
+				for( int i = 0; i < count; i++ ) {
+					final int key = readVarInt( );
+					if( key >= keys.length ) throw new GameTraceException( "Invalid trace key index " + key );
+					final String value = readValue( );
+					if( msg != null && keys[key] != null ) msg.addKey( keys[key], value );
+				}
+				
+				if( msg != null ) return msg;
+			} catch( EOFException eof ) {
+				if( !tailing ) throw new GameTraceException( "Trace is truncated" );
+				
+				in.reset( );
+				dictionary.subList( dictsize, dictionary.size( ) ).clear( );
+				laststamp = stamp;
+				return null;
+			}
+		}
+	}
+	
+	/**
+	 * Reads a value from its tokens
+	 * 
+	 * @return The value
+	 * @throws IOException if the read failed
+	 * @throws GameTraceException if a token index is invalid
+	 */
+	protected String readValue( ) throws IOException, GameTraceException {
+		final int tokens = readVarInt( );
+		if( tokens == 1 ) return readToken( );
+		
+		value.setLength( 0 );
+		for( int t = 0; t < tokens; t++ ) {
+			if( t > 0 ) value.append( TraceEncoder.TOKEN_SEPARATOR );
+			value.append( readToken( ) );
+		}
+		return value.toString( );
+	}
+	
+	/**
+	 * Reads a token, either a new token or a reference into the dictionary
+	 * 
+	 * @return The token
+	 * @throws IOException if the read failed
+	 * @throws GameTraceException if the token index is invalid
+	 */
+	protected String readToken( ) throws IOException, GameTraceException {
+		final int idx = readVarInt( );
+		if( idx == 0 ) {
+			final String token = in.readUTF( );
+			dictionary.add( token );
+			return token;
+		}
+		
+		if( idx > dictionary.size( ) ) throw new GameTraceException( "Invalid token index " + idx );
+		return dictionary.get( idx - 1 );
+	}
+	
+	/**
+	 * Closes the input stream
+	 * 
+	 * @throws IOException if the stream cannot be closed
+	 */
+	@Override
+	public void close( ) throws IOException {
+		in.close( );
+	}
+	
+	/**
+	 * Reads an unsigned varint
+	 * 
+	 * @return The value
+	 * @throws IOException if the read failed
+	 */
+	protected int readVarInt( ) throws IOException {
+		return readVarInt( in.readUnsignedByte( ) );
+	}
+	
+	/**
+	 * Reads an unsigned varint of which the first byte has already been read
+	 * 
+	 * @param first The first byte
+	 * @return The value
+	 * @throws IOException if the read failed
+	 */
+	protected int readVarInt( int first ) throws IOException {
+		int value = first & 0x7F;
+		int shift = 7;
+		int b = first;
+		while( (b & 0x80) != 0 ) {
+			b = in.readUnsignedByte( );
+			value |= (b & 0x7F) << shift;
+			shift += 7;
+		}
+		return value;
+	}
+	
+	/**
+	 * Reads an unsigned varlong
+	 * 
+	 * @return The value
+	 * @throws IOException if the read failed
+	 */
+	protected long readVarLong( ) throws IOException {
+		long value = 0;
+		int shift = 0;
+		int b;
+		do {
+			b = in.readUnsignedByte( );
+			value |= (long)(b & 0x7F) << shift;
+			shift += 7;
+		} while( (b & 0x80) != 0 );
+		return value;
+	}
+	
+	/**
+	 * Decodes a zigzag encoded value
+	 * 
+	 * @param value The zigzag encoded value
+	 * @return The signed value
+	 */
+	protected static long unzigzag( long value ) {
+		return (value >>> 1) ^ -(value & 1);
+	}
+	
+	/**
+	 * Keeps track of the number of bytes read from the stream
+	 */
+	private static class CountingInput extends FilterInputStream {
+		/** The number of bytes read */
+		protected long position;
+		
+		/** The position at the mark */
+		protected long markpos;
+		
+		/**
+		 * Creates a new counting stream
+		 * 
+		 * @param in The stream to read from
+		 */
+		protected CountingInput( InputStream in ) {
+			super( in );
+			position = 0;
+			markpos = 0;
+		}
+		
+		/**
+		 * @see java.io.FilterInputStream#read()
+		 */
+		@Override
+		public int read( ) throws IOException {
+			final int b = super.read( );
+			if( b != -1 ) position++;
+			return b;
+		}
+		
+		/**
+		 * @see java.io.FilterInputStream#read(byte[], int, int)
+		 */
+		@Override
+		public int read( byte[] b, int off, int len ) throws IOException {
+			final int n = super.read( b, off, len );
+			if( n > 0 ) position += n;
+			return n;
+		}
+		
+		/**
+		 * @see java.io.FilterInputStream#skip(long)
+		 */
+		@Override
+		public long skip( long n ) throws IOException {
+			final long skipped = super.skip( n );
+			position += skipped;
+			return skipped;
+		}
+		
+		/**
+		 * @see java.io.FilterInputStream#mark(int)
+		 */
+		@Override
+		public synchronized void mark( int readlimit ) {
+			super.mark( readlimit );
+			markpos = position;
+		}
+		
+		/**
+		 * @see java.io.FilterInputStream#reset()
+		 */
+		@Override
+		public synchronized void reset( ) throws IOException {
+			super.reset( );
+			position = markpos;
+		}
+	}
+}
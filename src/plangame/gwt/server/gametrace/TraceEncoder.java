@@ -0,0 +1,249 @@
+/**
+ * @file TraceEncoder.java
+ * @brief Short description of file
+ *
+ * This file is created at Almende B.V. It is open-source software and part of the Common
+ * Hybrid Agent Platform (CHAP). A toolbox with a lot of open-source tools, ranging from
+ * thread pools and TCP/IP components to control architectures and learning algorithms.
+ * This software is published under the GNU Lesser General Public license (LGPL).
+ *
+ * Copyright  2026 agent <agent@local>
+ *
+ * @author       agent
+ * @date         17 okt. 2026
+ * @project      NGI
+ * @company      Almende B.V.
+ */
+package plangame.gwt.server.gametrace;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+import plangame.gwt.server.gametrace.TraceMsg.KEYS;
+import plangame.gwt.server.gametrace.TraceMsg.TraceType;
+
+/**
+ * Writes trace messages in the compact binary trace format (version V2).
+ *
+ * The file starts with a header that contains the magic bytes, the format
+ * version and the schema: the names of all trace types and keys. Messages
+ * refer to types and keys by their index in the schema, so that the enums
+ * can be extended or reordered without breaking older traces.
+ *
+ * Each message is written as the varint coded type index, the zigzag varint
+ * coded time in milliseconds since the previous message and the key/value
+ * pairs. Values are split on ';' into tokens and every token is interned, a
+ * token that was written before is replaced by its varint coded dictionary
+ * index. This stores task and method IDs, weeks and player IDs only once.
+ *
+ * Like a PrintWriter the encoder never throws on write errors, use
+ * checkError( ) to find out whether an error occurred.
+ *
+ * @author agent
+ */
+public class TraceEncoder {
+	/** Magic bytes at the start of every binary trace */
+	public final static byte[] MAGIC = { 'G', 'T', 'R', 'C' };
+	
+	/** The binary format version written in the header */
+	public final static int FORMAT_VERSION = 2;
+	
+	/** Separator of value tokens */
+	protected final static char TOKEN_SEPARATOR = ';';
+	
+	/** The output stream */
+	protected final DataOutputStream out;
+	
+	/** The token dictionary, maps every token written to its index */
+	protected final Map<String, Integer> dictionary;
+	
+	/** Time stamp of the previous message in milliseconds since the epoch */
+	protected long laststamp;
+	
+	/** True if an I/O error occurred */
+	protected boolean error;
+	
+	/**
+	 * Creates a new encoder that writes to the specified file
+	 * 
+	 * @param file The trace file
+	 * @throws IOException if the file cannot be opened or the header cannot be
+	 * written
+	 */
+	public TraceEncoder( File file ) throws IOException {
+		this( new FileOutputStream( file ) );
+	}
+	
+	/**
+	 * Creates a new encoder and writes the trace header to the stream
+	 * 
+	 * @param stream The output stream
+	 * @throws IOException if the header cannot be written
+	 */
+	public TraceEncoder( OutputStream stream ) throws IOException {
+		out = new DataOutputStream( new BufferedOutputStream( stream ) );
+		dictionary = new HashMap<String, Integer>( );
+		laststamp = 0;
+		error = false;
+		
+		writeHeader( );
+	}
+	
+	/**
+	 * Writes the magic bytes, version and schema
+	 * 
+	 * @throws IOException if the write failed
+	 */
+	protected void writeHeader( ) throws IOException {
+		out.write( MAGIC );
+		writeVarInt( FORMAT_VERSION );
+		
+		writeVarInt( TraceType.values( ).length );
+		for( TraceType t : TraceType.values( ) )
+			out.writeUTF( t.toString( ) );
+		
+		writeVarInt( KEYS.values( ).length );
+		for( KEYS k : KEYS.values( ) )
+			out.writeUTF( k.toString( ) );
+	}
+	
+	/**
+	 * Writes the trace message
+	 * 
+	 * @param msg The message to write
+	 */
+	public void write( TraceMsg msg ) {
+		try {
+			writeVarInt( msg.getType( ).ordinal( ) );
+			
+			// time stamp relative to the previous message
+			final long stamp = msg.getStamp( ).getTime( );
+			writeVarLong( zigzag( stamp - laststamp ) );
+			laststamp = stamp;
+			
+			writeVarInt( msg.getKeyCount( ) );
+			for( int i = 0; i < msg.getKeyCount( ); i++ ) {
+				writeVarInt( msg.getKey( i ).ordinal( ) );
+				writeValue( msg.getValue( i ) );
+			}
+		} catch( IOException ioe ) {
+			error = true;
+		}
+	}
+	
+	/**
+	 * Writes a value as interned tokens
+	 * 
+	 * @param value The value
+	 * @throws IOException if the write failed
+	 */
+	protected void writeValue( String value ) throws IOException {
+		// count the tokens first so the reader knows when the value ends
+		int tokens = 1;
+		for( int i = 0; i < value.length( ); i++ )
+			if( value.charAt( i ) == TOKEN_SEPARATOR ) tokens++;
+		writeVarInt( tokens );
+		
+		int start = 0;
+		for( int t = 0; t < tokens; t++ ) {
+			int end = value.indexOf( TOKEN_SEPARATOR, start );
+			if( end == -1 ) end = value.length( );
+			writeToken( value.substring( start, end ) );
+			start = end + 1;
+		}
+	}
+	
+	/**
+	 * Writes a token, a token that was written before is replaced by its index
+	 * in the dictionary
+	 * 
+	 * @param token The token
+	 * @throws IOException if the write failed
+	 */
+	protected void writeToken( String token ) throws IOException {
+		// 0 denotes a new token, otherwise index + 1
+		final Integer idx = dictionary.get( token );
+		if( idx != null ) {
+			writeVarInt( idx + 1 );
+			return;
+		}
+		
+		writeVarInt( 0 );
+		out.writeUTF( token );
+		dictionary.put( token, dictionary.size( ) );
+	}
+	
+	/**
+	 * Flushes the output stream
+	 */
+	public void flush( ) {
+		try {
+			out.flush( );
+		} catch( IOException ioe ) {
+			error = true;
+		}
+	}
+	
+	/**
+	 * Flushes and closes the output stream
+	 */
+	public void close( ) {
+		try {
+			out.close( );
+		} catch( IOException ioe ) {
+			error = true;
+		}
+	}
+	
+	/**
+	 * @return True if an I/O error occurred while writing, flushing or closing
+	 */
+	public boolean checkError( ) {
+		return error;
+	}
+	
+	/**
+	 * Writes an unsigned varint, 7 bits per byte with the high bit set on all
+	 * but the last byte
+	 * 
+	 * @param value The value
+	 * @throws IOException if the write failed
+	 */
+	protected void writeVarInt( int value ) throws IOException {
+		while( (value & ~0x7F) != 0 ) {
+			out.writeByte( (value & 0x7F) | 0x80 );
+			value >>>= 7;
+		}
+		out.writeByte( value );
+	}
+	
+	/**
+	 * Writes an unsigned varlong
+	 * 
+	 * @param value The value
+	 * @throws IOException if the write failed
+	 */
+	protected void writeVarLong( long value ) throws IOException {
+		while( (value & ~0x7FL) != 0 ) {
+			out.writeByte( (int)((value & 0x7F) | 0x80) );
+			value >>>= 7;
+		}
+		out.writeByte( (int)value );
+	}
+	
+	/**
+	 * Zigzag encodes a signed value so that small negative values remain small
+	 * 
+	 * @param value The signed value
+	 * @return The zigzag encoded value
+	 */
+	protected static long zigzag( long value ) {
+		return (value << 1) ^ (value >> 63);
+	}
+}
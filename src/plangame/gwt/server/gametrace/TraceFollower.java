@@ -0,0 +1,197 @@
+/**
+ * @file TraceFollower.java
+ * @brief Short description of file
+ *
+ * This file is created at Almende B.V. It is open-source software and part of the Common
+ * Hybrid Agent Platform (CHAP). A toolbox with a lot of open-source tools, ranging from
+ * thread pools and TCP/IP components to control architectures and learning algorithms.
+ * This software is published under the GNU Lesser General Public license (LGPL).
+ *
+ * Copyright  2026 agent <agent@local>
+ *
+ * @author       agent
+ * @date         17 okt. 2026
+ * @project      NGI
+ * @company      Almende B.V.
+ */
+package plangame.gwt.server.gametrace;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches a trace file that is being written and notifies a listener when it
+ * has grown. The listener is run in the follower thread and is expected to
+ * read the new messages, e.g. by stepping a following GameTraceReader.
+ *
+ * The directory of the trace is watched for modifications. Because the file
+ * system may not report every modification (or only with a delay), the size of
+ * the file is also checked periodically.
+ *
+ * @author agent
+ */
+public class TraceFollower {
+	/** Default interval of the periodic size check (in milliseconds) */
+	public final static long DEFAULT_INTERVAL = 1000;
+	
+	/** The trace file */
+	protected final File tracefile;
+	
+	/** The listener to notify on changes */
+	protected final Runnable listener;
+	
+	/** Interval of the periodic size check (in milliseconds) */
+	protected final long interval;
+	
+	/** The directory watcher, null if the file system does not support it */
+	protected final WatchService watcher;
+	
+	/** The follower thread */
+	protected final Thread thread;
+	
+	/** True as long as the follower runs */
+	protected volatile boolean running;
+	
+	/**
+	 * Creates a new follower for the trace file with the default check
+	 * interval, the follower is started by start
+	 * 
+	 * @param tracefile The trace file
+	 * @param listener The listener to notify when the trace has grown
+	 */
+	public TraceFollower( File tracefile, Runnable listener ) {
+		this( tracefile, listener, DEFAULT_INTERVAL );
+	}
+	
+	/**
+	 * Creates a new follower for the trace file, the follower is started by
+	 * start
+	 * 
+	 * @param tracefile The trace file
+	 * @param listener The listener to notify when the trace has grown
+	 * @param interval The interval of the periodic size check in milliseconds
+	 */
+	public TraceFollower( File tracefile, Runnable listener, long interval ) {
+		this.tracefile = tracefile.getAbsoluteFile( );
+		this.listener = listener;
+		this.interval = interval;
+		running = false;
+		
+		// watch the directory if possible, otherwise only check periodically
+		WatchService ws = null;
+		try {
+			ws = FileSystems.getDefault( ).newWatchService( );
+			this.tracefile.getParentFile( ).toPath( ).register( ws, StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_CREATE );
+		} catch( IOException ioe ) {
+			close( ws );
+			ws = null;
+		}
+		watcher = ws;
+		
+		thread = new Thread( new Runnable( ) {
+			@Override
+			public void run( ) {
+				follow( );
+			}
+		}, "Game-TraceFollower-" + tracefile.getName( ) );
+		thread.setDaemon( true );
+	}
+	
+	/**
+	 * Starts following the trace, the listener is notified once directly
+	 */
+	public void start( ) {
+		running = true;
+		thread.start( );
+	}
+	
+	/**
+	 * Stops following the trace, waits for a running notification to complete
+	 * unless called from the listener itself
+	 */
+	public void stop( ) {
+		if( !running ) return;
+		running = false;
+		
+		close( watcher );
+		thread.interrupt( );
+		if( Thread.currentThread( ) != thread ) {
+			try {
+				thread.join( );
+			} catch( InterruptedException ie ) {
+				Thread.currentThread( ).interrupt( );
+			}
+		}
+	}
+	
+	/**
+	 * @return True if the follower is running
+	 */
+	public boolean isRunning( ) {
+		return running;
+	}
+	
+	/**
+	 * Closes the watch service
+	 * 
+	 * @param ws The watch service, may be null
+	 */
+	private static void close( WatchService ws ) {
+		if( ws == null ) return;
+		
+		try {
+			ws.close( );
+		} catch( IOException ioe ) {
+			// nothing to do, the watcher is not used anymore
+		}
+	}
+	
+	/**
+	 * Waits for changes of the trace file and notifies the listener, runs in
+	 * the follower thread
+	 */
+	private void follow( ) {
+		long length = -1;
+		long modified = -1;
+		
+		while( running ) {
+			// notify if the trace has changed since the last notification
+			final long l = tracefile.length( );
+			final long m = tracefile.lastModified( );
+			if( l != length || m != modified ) {
+				length = l;
+				modified = m;
+				try {
+					listener.run( );
+				} catch( RuntimeException re ) {
+					System.err.println( "Failed to process trace changes: " + re.getMessage( ) );
+				}
+			}
+			
+			// wait for the next modification or the periodic check
+			try {
+				if( watcher == null ) {
+					Thread.sleep( interval );
+					continue;
+				}
+				
+				final WatchKey key = watcher.poll( interval, TimeUnit.MILLISECONDS );
+				if( key == null ) continue;
+				
+				// the events only wake up the follower, the size is checked above
+				key.pollEvents( );
+				key.reset( );
+			} catch( InterruptedException ie ) {
+				break;
+			} catch( ClosedWatchServiceException cwse ) {
+				break;
+			}
+		}
+	}
+}
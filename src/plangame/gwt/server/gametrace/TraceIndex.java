@@ -0,0 +1,870 @@
+/**
+ * @file TraceIndex.java
+ * @brief Short description of file
+ *
+ * This file is created at Almende B.V. It is open-source software and part of the Common
+ * Hybrid Agent Platform (CHAP). A toolbox with a lot of open-source tools, ranging from
+ * thread pools and TCP/IP components to control architectures and learning algorithms.
+ * This software is published under the GNU Lesser General Public license (LGPL).
+ *
+ * Copyright  2026 agent <agent@local>
+ *
+ * @author       agent
+ * @date         17 okt. 2026
+ * @project      NGI
+ * @company      Almende B.V.
+ */
+package plangame.gwt.server.gametrace;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import plangame.gwt.server.gametrace.TraceMsg.KEYS;
+import plangame.gwt.server.gametrace.TraceMsg.TraceType;
+
+/**
+ * Side index of a trace file, stored in the index cache folder so that the
+ * trace folders stay clean. The index contains a table with the file offset, type,
+ * player and game time of every message and lists of the messages grouped by
+ * type, player and game time. Queries select the smallest matching group and
+ * check the other criteria in the table, no trace message is parsed.
+ *
+ * The index is rebuilt when the trace file has changed. For binary traces the
+ * index also stores the token dictionary of the trace and, per message, the
+ * dictionary size and time stamp base, so that the decoder can resume at any
+ * message without decoding the messages before it.
+ * 
+ * The index file is read into memory when opened and closed immediately, it
+ * is never kept open or mapped so it can be rebuilt or removed at any time.
+ *
+ * @author agent
+ */
+public class TraceIndex {
+	/** Magic bytes at the start of every index file */
+	public final static byte[] MAGIC = { 'G', 'T', 'I', 'X' };
+	
+	/** The index file format version */
+	public final static int VERSION = 2;
+	
+	/** The index file extension, appended to the trace file name */
+	public final static String EXTENSION = ".idx";
+	
+	/** The folder that contains the index files */
+	protected static File cachedir = new File( System.getProperty( "java.io.tmpdir" ), "plangame-traceindex" );
+	
+	/** Value that matches any player or game time in queries */
+	public final static int ANY = -1;
+	
+	/** Size of a single message entry in bytes: offset, type, player, game
+	 * time, dictionary size and time stamp base */
+	protected final static int ENTRY_SIZE = 32;
+	
+	/** The indexed trace file */
+	protected final File tracefile;
+	
+	/** The contents of the index file */
+	protected final ByteBuffer buf;
+	
+	/** The number of indexed messages */
+	protected final int count;
+	
+	/** True if the indexed trace is a binary trace */
+	protected final boolean binary;
+	
+	/** The token dictionary of a binary trace */
+	protected final List<String> tokens;
+	
+	/** The player IDs by their index ID */
+	protected final List<String> players;
+	
+	/** The index IDs of the players */
+	protected final Map<String, Integer> playerids;
+	
+	/** The index IDs of the trace types */
+	protected final Map<TraceType, Integer> typeids;
+	
+	/** Position of the message table in the index */
+	protected final int entriespos;
+	
+	/** Position and length of the message lists per trace type ID */
+	protected final Map<Integer, int[]> bytype;
+	
+	/** Position and length of the message lists per player ID */
+	protected final Map<Integer, int[]> byplayer;
+	
+	/** Position and length of the message lists per game time */
+	protected final Map<Integer, int[]> bytime;
+	
+	/**
+	 * Reads an existing index file
+	 * 
+	 * @param tracefile The trace file
+	 * @param indexfile The index file
+	 * @throws IOException if the index cannot be read
+	 * @throws GameTraceException if the index is invalid
+	 */
+	protected TraceIndex( File tracefile, File indexfile ) throws IOException, GameTraceException {
+		this.tracefile = tracefile;
+		
+		final FileChannel ch = new FileInputStream( indexfile ).getChannel( );
+		try {
+			buf = ByteBuffer.allocate( (int)ch.size( ) );
+			while( buf.hasRemaining( ) )
+				if( ch.read( buf ) == -1 ) throw new GameTraceException( "Index '" + indexfile + "' is truncated" );
+			buf.flip( );
+		} finally {
+			ch.close( );
+		}
+		
+		// header
+		if( !isValid( buf, tracefile ) )
+			throw new GameTraceException( "Index '" + indexfile + "' does not match the trace" );
+		buf.position( MAGIC.length + 4 + 8 + 8 );
+		count = buf.getInt( );
+		binary = (buf.get( ) != 0);
+		
+		// player and type dictionaries
+		players = new ArrayList<String>( );
+		playerids = new HashMap<String, Integer>( );
+		final int nplayers = buf.getInt( );
+		for( int i = 0; i < nplayers; i++ ) {
+			final String p = readString( buf );
+			players.add( p );
+			playerids.put( p, i );
+		}
+		typeids = new HashMap<TraceType, Integer>( );
+		final int ntypes = buf.getInt( );
+		for( int i = 0; i < ntypes; i++ ) {
+			try {
+				typeids.put( TraceType.valueOf( readString( buf ) ), i );
+			} catch( IllegalArgumentException iae ) {
+				// type no longer exists, cannot be queried
+			}
+		}
+		
+		// message table and groups
+		entriespos = buf.position( );
+		buf.position( entriespos + count * ENTRY_SIZE );
+		bytype = readGroups( buf );
+		byplayer = readGroups( buf );
+		bytime = readGroups( buf );
+		
+		// token dictionary of binary traces
+		final int ntokens = buf.getInt( );
+		tokens = new ArrayList<String>( ntokens );
+		for( int i = 0; i < ntokens; i++ )
+			tokens.add( readString( buf ) );
+	}
+	
+	/**
+	 * Opens the index of the trace file, the index is (re)built if it does not
+	 * exist or does not match the trace file
+	 * 
+	 * @param tracefile The trace file
+	 * @return The index
+	 * @throws IOException if the trace or index cannot be read or written
+	 * @throws GameTraceException if the trace is invalid
+	 */
+	public static TraceIndex open( File tracefile ) throws IOException, GameTraceException {
+		File indexfile = getIndexFile( tracefile );
+		if( indexfile.isFile( ) && isValid( indexfile, tracefile ) )
+			return new TraceIndex( tracefile, indexfile );
+		
+		// build the index in the cache folder or in a temporary file if the
+		// cache folder cannot be created
+		final File parent = indexfile.getParentFile( );
+		if( !(parent.isDirectory( ) || parent.mkdirs( )) || !parent.canWrite( ) ) {
+			indexfile = File.createTempFile( "trace", EXTENSION );
+			indexfile.deleteOnExit( );
+		}
+		build( tracefile, indexfile );
+		return new TraceIndex( tracefile, indexfile );
+	}
+	
+	/**
+	 * Determines the index file of the trace file. The name of the index file
+	 * contains the hash of the full trace path, traces with the same name in
+	 * different folders have different index files.
+	 * 
+	 * @param tracefile The trace file
+	 * @return The index file in the cache folder
+	 * @throws IOException if the trace path cannot be resolved
+	 */
+	public static File getIndexFile( File tracefile ) throws IOException {
+		final String path = tracefile.getCanonicalPath( );
+		return new File( cachedir, tracefile.getName( ) + "-" + Integer.toHexString( path.hashCode( ) ) + EXTENSION );
+	}
+	
+	/**
+	 * Sets the folder that contains the index files
+	 * 
+	 * @param dir The cache folder
+	 */
+	public static void setCacheDir( File dir ) {
+		cachedir = dir;
+	}
+	
+	/**
+	 * @return The folder that contains the index files
+	 */
+	public static File getCacheDir( ) {
+		return cachedir;
+	}
+	
+	/**
+	 * @return The number of indexed messages
+	 */
+	public int getMessageCount( ) {
+		return count;
+	}
+	
+	/**
+	 * @return The IDs of the players in the trace
+	 */
+	public List<String> getPlayers( ) {
+		return new ArrayList<String>( players );
+	}
+	
+	/**
+	 * @return The game times that occur in the trace
+	 */
+	public List<Integer> getGameTimes( ) {
+		return new ArrayList<Integer>( new TreeMap<Integer, int[]>( bytime ).keySet( ) );
+	}
+	
+	/**
+	 * @param msg The message index
+	 * @return The game time of the message or ANY if it has no game time
+	 */
+	public int getGameTime( int msg ) {
+		if( msg < 0 || msg >= count )
+			throw new IndexOutOfBoundsException( "Invalid message index " + msg + ", the trace contains " + count + " messages" );
+		
+		return buf.getInt( entriespos + msg * ENTRY_SIZE + 16 );
+	}
+	
+	/**
+	 * Finds all messages that match the criteria
+	 * 
+	 * @param type The trace type or null for any type
+	 * @param player The player ID or null for any player
+	 * @param time The game time or ANY for any time
+	 * @return The indices of the matching messages in ascending order
+	 */
+	public int[] query( TraceType type, String player, int time ) {
+		// find the groups of the criteria, no match if one is empty
+		final int tid = (type != null ? lookup( typeids, type ) : ANY);
+		final int pid = (player != null ? lookup( playerids, player ) : ANY);
+		final int[] tgroup = (type != null ? bytype.get( tid ) : null);
+		final int[] pgroup = (player != null ? byplayer.get( pid ) : null);
+		final int[] ggroup = (time != ANY ? bytime.get( time ) : null);
+		if( (type != null && tgroup == null) || (player != null && pgroup == null) || (time != ANY && ggroup == null) )
+			return new int[ 0 ];
+		
+		// select the smallest group to iterate
+		int[] group = null;
+		for( int[] g : new int[][] { tgroup, pgroup, ggroup } )
+			if( g != null && (group == null || g[1] < group[1]) ) group = g;
+		
+		// no criteria, all messages match
+		if( group == null ) {
+			final int[] all = new int[ count ];
+			for( int i = 0; i < count; i++ ) all[i] = i;
+			return all;
+		}
+		
+		// check the other criteria in the message table
+		final int[] res = new int[ group[1] ];
+		int n = 0;
+		for( int i = 0; i < group[1]; i++ ) {
+			final int msg = buf.getInt( group[0] + i * 4 );
+			final int pos = entriespos + msg * ENTRY_SIZE;
+			if( tid != ANY && buf.getInt( pos + 8 ) != tid ) continue;
+			if( pid != ANY && buf.getInt( pos + 12 ) != pid ) continue;
+			if( time != ANY && buf.getInt( pos + 16 ) != time ) continue;
+			res[n++] = msg;
+		}
+		
+		final int[] matched = new int[ n ];
+		System.arraycopy( res, 0, matched, 0, n );
+		return matched;
+	}
+	
+	/**
+	 * Reads the specified messages from the trace
+	 * 
+	 * @param msgs The message indices in ascending order
+	 * @return The messages
+	 * @throws IOException if the trace cannot be read
+	 * @throws GameTraceException if a message is invalid
+	 */
+	public List<TraceMsg> read( int[] msgs ) throws IOException, GameTraceException {
+		final List<TraceMsg> res = new ArrayList<TraceMsg>( msgs.length );
+		if( msgs.length == 0 ) return res;
+		
+		// text traces are read at the stored offsets
+		if( !binary ) {
+			final RandomAccessFile raf = new RandomAccessFile( tracefile, "r" );
+			try {
+				final ByteArrayOutputStream line = new ByteArrayOutputStream( );
+				for( int m : msgs ) {
+					raf.seek( buf.getLong( entriespos + m * ENTRY_SIZE ) );
+					line.reset( );
+					int b;
+					while( (b = raf.read( )) != -1 && b != '\n' )
+						if( b != '\r' ) line.write( b );
+					res.add( TraceMsg.read( line.toString( ) ) );
+				}
+			} finally {
+				raf.close( );
+			}
+			return res;
+		}
+		
+		// binary traces are decoded from the stored offset and decoder state
+		final TraceDecoder in = new TraceDecoder( tracefile );
+		try {
+			for( int m : msgs ) {
+				final int pos = entriespos + m * ENTRY_SIZE;
+				in.skipTo( buf.getLong( pos ), tokens, buf.getInt( pos + 20 ), buf.getLong( pos + 24 ) );
+				res.add( in.read( ) );
+			}
+		} finally {
+			in.close( );
+		}
+		return res;
+	}
+	
+	/**
+	 * Opens the trace at the specified message without reading the messages
+	 * before it, the first read of the input returns the message
+	 * 
+	 * @param msg The message index
+	 * @return The trace input
+	 * @throws IOException if the trace cannot be read
+	 * @throws GameTraceException if the trace header is invalid
+	 */
+	public TraceInput openAt( int msg ) throws IOException, GameTraceException {
+		if( msg < 0 || msg >= count )
+			throw new IndexOutOfBoundsException( "Invalid message index " + msg + ", the trace contains " + count + " messages" );
+		
+		final int pos = entriespos + msg * ENTRY_SIZE;
+		if( !binary ) return new TraceInput.TextInput( tracefile, buf.getLong( pos ) );
+		
+		final TraceDecoder in = new TraceDecoder( tracefile );
+		try {
+			in.skipTo( buf.getLong( pos ), tokens, buf.getInt( pos + 20 ), buf.getLong( pos + 24 ) );
+		} catch( IOException ioe ) {
+			in.close( );
+			throw ioe;
+		}
+		return in;
+	}
+	
+	/**
+	 * Looks up the index ID of the key
+	 * 
+	 * @param ids The ID map
+	 * @param key The key
+	 * @return The ID or -2 if the key is not in the index
+	 */
+	private static <T> int lookup( Map<T, Integer> ids, T key ) {
+		final Integer id = ids.get( key );
+		return (id != null ? id : -2);
+	}
+	
+	/**
+	 * Builds the index of the trace file. The index is written to a temporary
+	 * file that replaces the index file once complete, an interrupted build
+	 * never leaves an index that appears valid.
+	 * 
+	 * @param tracefile The trace file
+	 * @param indexfile The index file to write
+	 * @throws IOException if the trace cannot be read or the index written
+	 * @throws GameTraceException if the trace contains an invalid message
+	 */
+	protected static void build( File tracefile, File indexfile ) throws IOException, GameTraceException {
+		final long length = tracefile.length( );
+		final long modified = tracefile.lastModified( );
+		
+		// collect the entries and groups
+		final ByteArrayOutputStream entries = new ByteArrayOutputStream( );
+		final DataOutputStream eout = new DataOutputStream( entries );
+		final List<String> players = new ArrayList<String>( );
+		final Map<String, Integer> playerids = new HashMap<String, Integer>( );
+		final Map<Integer, List<Integer>> bytype = new TreeMap<Integer, List<Integer>>( );
+		final Map<Integer, List<Integer>> byplayer = new TreeMap<Integer, List<Integer>>( );
+		final Map<Integer, List<Integer>> bytime = new TreeMap<Integer, List<Integer>>( );
+		int count = 0;
+		
+		final boolean binary = TraceDecoder.isBinaryTrace( tracefile );
+		final List<String> tokens;
+		final Scanner sc = (binary ? new BinaryScanner( tracefile ) : new TextScanner( tracefile ));
+		try {
+			TraceMsg t;
+			while( (t = sc.next( )) != null ) {
+				final String player = find( t, KEYS.PlayerID );
+				int pid = ANY;
+				if( player != null ) {
+					final Integer id = playerids.get( player );
+					if( id == null ) {
+						pid = players.size( );
+						players.add( player );
+						playerids.put( player, pid );
+					} else
+						pid = id;
+				}
+				
+				int time = ANY;
+				final String gt = find( t, KEYS.GameTime );
+				if( gt != null ) {
+					try {
+						time = Integer.parseInt( gt.trim( ) );
+					} catch( NumberFormatException nfe ) {
+						// not a round number, not indexed
+					}
+				}
+				
+				final int tid = t.getType( ).ordinal( );
+				eout.writeLong( sc.offset( ) );
+				eout.writeInt( tid );
+				eout.writeInt( pid );
+				eout.writeInt( time );
+				eout.writeInt( sc.dictionarySize( ) );
+				eout.writeLong( sc.timeBase( ) );
+				
+				group( bytype, tid, count );
+				if( pid != ANY ) group( byplayer, pid, count );
+				if( time != ANY ) group( bytime, time, count );
+				count++;
+			}
+			tokens = sc.tokens( );
+		} finally {
+			sc.close( );
+		}
+		eout.flush( );
+		
+		// and write the index to a temporary file next to the index file
+		final File tmpfile = File.createTempFile( indexfile.getName( ), ".tmp", indexfile.getAbsoluteFile( ).getParentFile( ) );
+		boolean written = false;
+		try {
+			final DataOutputStream out = new DataOutputStream( new BufferedOutputStream( new FileOutputStream( tmpfile ) ) );
+			try {
+				writeIndex( out, length, modified, count, binary, players, entries, bytype, byplayer, bytime, tokens );
+			} finally {
+				out.close( );
+			}
+			
+			// replace the index file by the complete index
+			try {
+				Files.move( tmpfile.toPath( ), indexfile.toPath( ), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE );
+			} catch( AtomicMoveNotSupportedException amnse ) {
+				Files.move( tmpfile.toPath( ), indexfile.toPath( ), StandardCopyOption.REPLACE_EXISTING );
+			}
+			written = true;
+		} finally {
+			if( !written ) tmpfile.delete( );
+		}
+	}
+	
+	/**
+	 * Writes the index
+	 * 
+	 * @param out The output stream
+	 * @param length The length of the trace file
+	 * @param modified The modification time of the trace file
+	 * @param count The number of messages
+	 * @param binary True if the trace is a binary trace
+	 * @param players The player IDs by their index ID
+	 * @param entries The message table
+	 * @param bytype The messages per trace type ID
+	 * @param byplayer The messages per player ID
+	 * @param bytime The messages per game time
+	 * @param tokens The token dictionary of the trace
+	 * @throws IOException if the write failed
+	 */
+	private static void writeIndex( DataOutputStream out, long length, long modified, int count, boolean binary, List<String> players, ByteArrayOutputStream entries, Map<Integer, List<Integer>> bytype, Map<Integer, List<Integer>> byplayer, Map<Integer, List<Integer>> bytime, List<String> tokens ) throws IOException {
+		out.write( MAGIC );
+		out.writeInt( VERSION );
+		out.writeLong( length );
+		out.writeLong( modified );
+		out.writeInt( count );
+		out.writeByte( binary ? 1 : 0 );
+		out.writeInt( players.size( ) );
+		for( String p : players )
+			writeString( out, p );
+		out.writeInt( TraceType.values( ).length );
+		for( TraceType type : TraceType.values( ) )
+			writeString( out, type.toString( ) );
+		entries.writeTo( out );
+		
+		writeGroups( out, bytype );
+		writeGroups( out, byplayer );
+		writeGroups( out, bytime );
+		
+		out.writeInt( tokens.size( ) );
+		for( String t : tokens )
+			writeString( out, t );
+	}
+	
+	/**
+	 * Finds the value of the key in the message
+	 * 
+	 * @param t The message
+	 * @param key The key
+	 * @return The value or null if the message does not contain the key
+	 */
+	private static String find( TraceMsg t, KEYS key ) {
+		for( int i = 0; i < t.getKeyCount( ); i++ )
+			if( t.getKey( i ) == key ) return t.getValue( i );
+		return null;
+	}
+	
+	/**
+	 * Adds the message to the group
+	 * 
+	 * @param groups The groups
+	 * @param key The group key
+	 * @param msg The message index
+	 */
+	private static void group( Map<Integer, List<Integer>> groups, int key, int msg ) {
+		List<Integer> g = groups.get( key );
+		if( g == null ) {
+			g = new ArrayList<Integer>( );
+			groups.put( key, g );
+		}
+		g.add( msg );
+	}
+	
+	/**
+	 * Writes a group section of the index
+	 * 
+	 * @param out The output stream
+	 * @param groups The message indices per group key
+	 * @throws IOException if the write failed
+	 */
+	private static void writeGroups( DataOutputStream out, Map<Integer, List<Integer>> groups ) throws IOException {
+		out.writeInt( groups.size( ) );
+		for( Map.Entry<Integer, List<Integer>> g : groups.entrySet( ) ) {
+			out.writeInt( g.getKey( ) );
+			out.writeInt( g.getValue( ).size( ) );
+			for( Integer m : g.getValue( ) )
+				out.writeInt( m );
+		}
+	}
+	
+	/**
+	 * Reads a group section from the index
+	 * 
+	 * @param buf The index buffer, positioned at the section
+	 * @return The position and length of the message list per group key
+	 */
+	private static Map<Integer, int[]> readGroups( ByteBuffer buf ) {
+		final Map<Integer, int[]> groups = new HashMap<Integer, int[]>( );
+		final int n = buf.getInt( );
+		for( int i = 0; i < n; i++ ) {
+			final int key = buf.getInt( );
+			final int len = buf.getInt( );
+			groups.put( key, new int[] { buf.position( ), len } );
+			buf.position( buf.position( ) + 4 * len );
+		}
+		return groups;
+	}
+	
+	/**
+	 * Checks whether the index file belongs to the current trace file
+	 * 
+	 * @param indexfile The index file
+	 * @param tracefile The trace file
+	 * @return True if the index is valid
+	 * @throws IOException if the index cannot be read
+	 */
+	private static boolean isValid( File indexfile, File tracefile ) throws IOException {
+		final RandomAccessFile raf = new RandomAccessFile( indexfile, "r" );
+		try {
+			if( raf.length( ) < MAGIC.length + 4 + 8 + 8 ) return false;
+			final byte[] magic = new byte[ MAGIC.length ];
+			raf.readFully( magic );
+			for( int i = 0; i < MAGIC.length; i++ )
+				if( magic[i] != MAGIC[i] ) return false;
+			return raf.readInt( ) == VERSION && raf.readLong( ) == tracefile.length( ) && raf.readLong( ) == tracefile.lastModified( );
+		} finally {
+			raf.close( );
+		}
+	}
+	
+	/**
+	 * Checks whether the read index belongs to the current trace file
+	 * 
+	 * @param buf The index buffer
+	 * @param tracefile The trace file
+	 * @return True if the index is valid
+	 */
+	private static boolean isValid( ByteBuffer buf, File tracefile ) {
+		if( buf.capacity( ) < MAGIC.length + 4 + 8 + 8 ) return false;
+		for( int i = 0; i < MAGIC.length; i++ )
+			if( buf.get( i ) != MAGIC[i] ) return false;
+		return buf.getInt( MAGIC.length ) == VERSION && buf.getLong( MAGIC.length + 4 ) == tracefile.length( ) && buf.getLong( MAGIC.length + 12 ) == tracefile.lastModified( );
+	}
+	
+	/**
+	 * Writes a length prefixed UTF-8 string
+	 * 
+	 * @param out The output stream
+	 * @param s The string
+	 * @throws IOException if the write failed
+	 */
+	private static void writeString( DataOutputStream out, String s ) throws IOException {
+		final byte[] b = s.getBytes( "UTF-8" );
+		out.writeInt( b.length );
+		out.write( b );
+	}
+	
+	/**
+	 * Reads a length prefixed UTF-8 string
+	 * 
+	 * @param buf The buffer
+	 * @return The string
+	 */
+	private static String readString( ByteBuffer buf ) {
+		final byte[] b = new byte[ buf.getInt( ) ];
+		buf.get( b );
+		try {
+			return new String( b, "UTF-8" );
+		} catch( java.io.UnsupportedEncodingException uee ) {
+			throw new RuntimeException( uee );
+		}
+	}
+	
+	/**
+	 * Reads the messages of a trace with their file offsets
+	 */
+	private static abstract class Scanner {
+		/**
+		 * @return The next message or null at the end of the trace
+		 * @throws IOException if the trace cannot be read
+		 * @throws GameTraceException if the message is invalid
+		 */
+		protected abstract TraceMsg next( ) throws IOException, GameTraceException;
+		
+		/**
+		 * @return The file offset of the last message
+		 */
+		protected abstract long offset( );
+		
+		/**
+		 * @return The size of the token dictionary before the last message
+		 */
+		protected abstract int dictionarySize( );
+		
+		/**
+		 * @return The time stamp base of the last message
+		 */
+		protected abstract long timeBase( );
+		
+		/**
+		 * @return The token dictionary of the trace
+		 */
+		protected abstract List<String> tokens( );
+		
+		/**
+		 * Closes the trace
+		 * 
+		 * @throws IOException if the trace cannot be closed
+		 */
+		protected abstract void close( ) throws IOException;
+	}
+	
+	/**
+	 * Scans text traces and keeps track of the line offsets
+	 */
+	private static class TextScanner extends Scanner {
+		/** The input stream */
+		private final InputStream in;
+		
+		/** The current position in the file */
+		private long pos;
+		
+		/** The offset of the last read line */
+		private long offset;
+		
+		/** The line buffer */
+		private final ByteArrayOutputStream line;
+		
+		/**
+		 * Opens the trace
+		 * 
+		 * @param file The trace file
+		 * @throws IOException if the file cannot be opened
+		 */
+		protected TextScanner( File file ) throws IOException {
+			in = new BufferedInputStream( new FileInputStream( file ) );
+			pos = 0;
+			offset = -1;
+			line = new ByteArrayOutputStream( );
+		}
+		
+		/**
+		 * @see plangame.gwt.server.gametrace.TraceIndex.Scanner#next()
+		 */
+		@Override
+		protected TraceMsg next( ) throws IOException, GameTraceException {
+			while( true ) {
+				// read the next line
+				line.reset( );
+				final long start = pos;
+				int b;
+				while( (b = in.read( )) != -1 ) {
+					pos++;
+					if( b == '\n' ) break;
+					if( b != '\r' ) line.write( b );
+				}
+				if( b == -1 && line.size( ) == 0 ) return null;
+				
+				final String l = line.toString( );
+				if( l.trim( ).length( ) == 0 ) continue;
+				
+				offset = start;
+				return TraceMsg.read( l );
+			}
+		}
+		
+		/**
+		 * @see plangame.gwt.server.gametrace.TraceIndex.Scanner#offset()
+		 */
+		@Override
+		protected long offset( ) {
+			return offset;
+		}
+		
+		/**
+		 * @see plangame.gwt.server.gametrace.TraceIndex.Scanner#dictionarySize()
+		 */
+		@Override
+		protected int dictionarySize( ) {
+			return 0;
+		}
+		
+		/**
+		 * @see plangame.gwt.server.gametrace.TraceIndex.Scanner#timeBase()
+		 */
+		@Override
+		protected long timeBase( ) {
+			return 0;
+		}
+		
+		/**
+		 * @see plangame.gwt.server.gametrace.TraceIndex.Scanner#tokens()
+		 */
+		@Override
+		protected List<String> tokens( ) {
+			return new ArrayList<String>( );
+		}
+		
+		/**
+		 * @see plangame.gwt.server.gametrace.TraceIndex.Scanner#close()
+		 */
+		@Override
+		protected void close( ) throws IOException {
+			in.close( );
+		}
+	}
+	
+	/**
+	 * Scans binary traces and keeps track of the message offsets and the
+	 * decoder state before every message
+	 */
+	private static class BinaryScanner extends Scanner {
+		/** The decoder */
+		private final TraceDecoder in;
+		
+		/** The offset of the last message */
+		private long offset;
+		
+		/** The dictionary size before the last message */
+		private int dictsize;
+		
+		/** The time stamp base of the last message */
+		private long timebase;
+		
+		/**
+		 * Opens the trace
+		 * 
+		 * @param file The trace file
+		 * @throws IOException if the file cannot be opened
+		 * @throws GameTraceException if the trace header is invalid
+		 */
+		protected BinaryScanner( File file ) throws IOException, GameTraceException {
+			in = new TraceDecoder( file );
+		}
+		
+		/**
+		 * @see plangame.gwt.server.gametrace.TraceIndex.Scanner#next()
+		 */
+		@Override
+		protected TraceMsg next( ) throws IOException, GameTraceException {
+			offset = in.getPosition( );
+			dictsize = in.getDictionary( ).size( );
+			timebase = in.getTimeBase( );
+			return in.read( );
+		}
+		
+		/**
+		 * @see plangame.gwt.server.gametrace.TraceIndex.Scanner#offset()
+		 */
+		@Override
+		protected long offset( ) {
+			return offset;
+		}
+		
+		/**
+		 * @see plangame.gwt.server.gametrace.TraceIndex.Scanner#dictionarySize()
+		 */
+		@Override
+		protected int dictionarySize( ) {
+			return dictsize;
+		}
+		
+		/**
+		 * @see plangame.gwt.server.gametrace.TraceIndex.Scanner#timeBase()
+		 */
+		@Override
+		protected long timeBase( ) {
+			return timebase;
+		}
+		
+		/**
+		 * @see plangame.gwt.server.gametrace.TraceIndex.Scanner#tokens()
+		 */
+		@Override
+		protected List<String> tokens( ) {
+			return new ArrayList<String>( in.getDictionary( ) );
+		}
+		
+		/**
+		 * @see plangame.gwt.server.gametrace.TraceIndex.Scanner#close()
+		 */
+		@Override
+		protected void close( ) throws IOException {
+			in.close( );
+		}
+	}
+}
@@ -0,0 +1,173 @@
+/**
+ * @file TraceIndexBenchmark.java
+ * @brief Short description of file
+ *
+ * This file is created at Almende B.V. It is open-source software and part of the Common
+ * Hybrid Agent Platform (CHAP). A toolbox with a lot of open-source tools, ranging from
+ * thread pools and TCP/IP components to control architectures and learning algorithms.
+ * This software is published under the GNU Lesser General Public license (LGPL).
+ *
+ * Copyright  2026 agent <agent@local>
+ *
+ * @author       agent
+ * @date         17 okt. 2026
+ * @project      NGI
+ * @company      Almende B.V.
+ */
+package plangame.gwt.server.gametrace;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import plangame.gwt.server.gametrace.TraceMsg.KEYS;
+import plangame.gwt.server.gametrace.TraceMsg.TraceType;
+
+/**
+ * Compares queries on the trace index with linear scans of the trace. For
+ * every trace a fixed random set of queries by type, player and round is run
+ * against both and the results are checked to be equal.
+ *
+ * Usage: TraceIndexBenchmark [trace|folder...], defaults to data/traces
+ *
+ * @author agent
+ */
+public class TraceIndexBenchmark {
+	/** Number of queries per trace */
+	protected final static int QUERIES = 200;
+	
+	/** Number of measured repetitions of the query set */
+	protected final static int RUNS = 5;
+	
+	/**
+	 * Runs the benchmark
+	 * 
+	 * @param args The trace files or folders
+	 */
+	public static void main( String[] args ) {
+		final List<File> traces = new ArrayList<File>( );
+		if( args.length == 0 ) args = new String[] { "data/traces" };
+		for( String a : args ) {
+			final File f = new File( a );
+			if( f.isDirectory( ) ) {
+				final File[] files = f.listFiles( );
+				if( files == null ) continue;
+				Arrays.sort( files );
+				for( File tf : files )
+					if( tf.isFile( ) && !tf.getName( ).endsWith( TraceIndex.EXTENSION ) ) traces.add( tf );
+			} else
+				traces.add( f );
+		}
+		
+		System.out.println( "trace, messages, build ms, open ms, index us/query, scan us/query, speedup" );
+		for( File trace : traces ) {
+			try {
+				run( trace );
+			} catch( Exception e ) {
+				System.err.println( "Failed to benchmark '" + trace + "': " + e.getMessage( ) );
+			}
+		}
+	}
+	
+	/**
+	 * Benchmarks a single trace
+	 * 
+	 * @param trace The trace file
+	 * @throws Exception if the trace cannot be read
+	 */
+	protected static void run( File trace ) throws Exception {
+		// build the index from scratch
+		final File idx = TraceIndex.getIndexFile( trace );
+		if( idx.exists( ) ) idx.delete( );
+		long start = System.nanoTime( );
+		TraceIndex.open( trace );
+		final double build = (System.nanoTime( ) - start) / 1e6;
+		
+		// and open the existing index
+		start = System.nanoTime( );
+		final TraceIndex index = TraceIndex.open( trace );
+		final double open = (System.nanoTime( ) - start) / 1e6;
+		
+		// create the query set from the players and rounds in the trace
+		final Random rand = new Random( 42 );
+		final List<String> players = index.getPlayers( );
+		final List<Integer> times = index.getGameTimes( );
+		final TraceType[] types = new TraceType[ QUERIES ];
+		final String[] qplayers = new String[ QUERIES ];
+		final int[] qtimes = new int[ QUERIES ];
+		for( int i = 0; i < QUERIES; i++ ) {
+			types[i] = (rand.nextInt( 4 ) > 0 ? TraceType.values( )[ rand.nextInt( TraceType.values( ).length ) ] : null);
+			qplayers[i] = (players.size( ) > 0 && rand.nextBoolean( ) ? players.get( rand.nextInt( players.size( ) ) ) : null);
+			qtimes[i] = (times.size( ) > 0 && rand.nextBoolean( ) ? times.get( rand.nextInt( times.size( ) ) ) : TraceIndex.ANY);
+		}
+		
+		// check the results first, this also warms up both
+		for( int i = 0; i < QUERIES; i++ ) {
+			final int[] ir = index.query( types[i], qplayers[i], qtimes[i] );
+			final int[] sr = scan( trace, types[i], qplayers[i], qtimes[i] );
+			if( !Arrays.equals( ir, sr ) )
+				throw new RuntimeException( "Index and scan differ for query " + types[i] + "/" + qplayers[i] + "/" + qtimes[i] );
+		}
+		
+		// and measure
+		start = System.nanoTime( );
+		int hits = 0;
+		for( int r = 0; r < RUNS; r++ )
+			for( int i = 0; i < QUERIES; i++ )
+				hits += index.query( types[i], qplayers[i], qtimes[i] ).length;
+		final double iq = (System.nanoTime( ) - start) / 1e3 / (RUNS * QUERIES);
+		
+		start = System.nanoTime( );
+		for( int r = 0; r < RUNS; r++ )
+			for( int i = 0; i < QUERIES; i++ )
+				hits -= scan( trace, types[i], qplayers[i], qtimes[i] ).length;
+		final double sq = (System.nanoTime( ) - start) / 1e3 / (RUNS * QUERIES);
+		if( hits != 0 ) throw new RuntimeException( "Index and scan found a different number of messages" );
+		
+		System.out.println( trace.getName( ) + ", " + index.getMessageCount( ) + ", " + String.format( Locale.US, "%.2f, %.2f, %.2f, %.1f, %.0fx", build, open, iq, sq, sq / Math.max( iq, 1e-3 ) ) );
+	}
+	
+	/**
+	 * Finds the matching messages by scanning the whole trace
+	 * 
+	 * @param trace The trace file
+	 * @param type The trace type or null for any
+	 * @param player The player ID or null for any
+	 * @param time The game time or ANY
+	 * @return The matching message indices
+	 * @throws Exception if the trace cannot be read
+	 */
+	protected static int[] scan( File trace, TraceType type, String player, int time ) throws Exception {
+		final List<Integer> res = new ArrayList<Integer>( );
+		final TraceInput in = TraceInput.open( trace );
+		try {
+			TraceMsg t;
+			int idx = 0;
+			while( (t = in.read( )) != null ) {
+				if( (type == null || t.getType( ) == type) && (player == null || player.equals( value( t, KEYS.PlayerID ) )) && (time == TraceIndex.ANY || ("" + time).equals( value( t, KEYS.GameTime ) )) )
+					res.add( idx );
+				idx++;
+			}
+		} finally {
+			in.close( );
+		}
+		
+		final int[] r = new int[ res.size( ) ];
+		for( int i = 0; i < r.length; i++ ) r[i] = res.get( i );
+		return r;
+	}
+	
+	/**
+	 * @param t The message
+	 * @param key The key
+	 * @return The value of the key or null if not in the message
+	 */
+	private static String value( TraceMsg t, KEYS key ) {
+		for( int i = 0; i < t.getKeyCount( ); i++ )
+			if( t.getKey( i ) == key ) return t.getValue( i );
+		return null;
+	}
+}
@@ -0,0 +1,311 @@
+/**
+ * @file TraceInput.java
+ * @brief Short description of file
+ *
+ * This file is created at Almende B.V. It is open-source software and part of the Common
+ * Hybrid Agent Platform (CHAP). A toolbox with a lot of open-source tools, ranging from
+ * thread pools and TCP/IP components to control architectures and learning algorithms.
+ * This software is published under the GNU Lesser General Public license (LGPL).
+ *
+ * Copyright  2026 agent <agent@local>
+ *
+ * @author       agent
+ * @date         17 okt. 2026
+ * @project      NGI
+ * @company      Almende B.V.
+ */
+package plangame.gwt.server.gametrace;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+
+import plangame.gwt.server.gametrace.TraceMsg.TraceType;
+
+/**
+ * Pull-based source of trace messages. Messages are parsed one at a time when
+ * they are read, so only the current message is kept in memory regardless of
+ * the length of the trace.
+ *
+ * @author agent
+ */
+public abstract class TraceInput {
+	/**
+	 * Opens the trace file, the trace format is detected from the file
+	 * 
+	 * @param file The trace file
+	 * @return The trace input
+	 * @throws IOException if the file cannot be read
+	 * @throws GameTraceException if the trace header is invalid
+	 */
+	public static TraceInput open( File file ) throws IOException, GameTraceException {
+		if( TraceDecoder.isBinaryTrace( file ) )
+			return new TraceDecoder( file );
+		
+		return new TextInput( file );
+	}
+	
+	/**
+	 * Checks whether the file is a trace by its content, e.g. the server logs
+	 * that are stored with the traces have the same extension. A file is a
+	 * trace if it starts with the binary trace header or its first line is a
+	 * time stamp followed by a trace message type. The time stamp itself is
+	 * not parsed, its format depends on the locale the trace was written in.
+	 * 
+	 * @param file The file
+	 * @return True if the file is a trace
+	 * @throws IOException if the file cannot be read
+	 */
+	public static boolean isTrace( File file ) throws IOException {
+		if( TraceDecoder.isBinaryTrace( file ) ) return true;
+		
+		final BufferedReader reader = new BufferedReader( new FileReader( file ) );
+		try {
+			String l = reader.readLine( );
+			while( l != null && l.trim( ).length( ) == 0 )
+				l = reader.readLine( );
+			if( l == null || !l.startsWith( "[" ) ) return false;
+			
+			final int idx = l.indexOf( "] " );
+			if( idx < 0 ) return false;
+			final int end = l.indexOf( '|', idx + 2 );
+			final String type = l.substring( idx + 2, end >= 0 ? end : l.length( ) );
+			for( TraceType t : TraceType.values( ) )
+				if( t.toString( ).equals( type ) ) return true;
+			return false;
+		} finally {
+			reader.close( );
+		}
+	}
+	
+	/**
+	 * Opens a trace file that may still be written, e.g. by a running game.
+	 * Read returns null when no complete message is available yet and
+	 * continues with the new messages once the trace has grown. The format is
+	 * detected as soon as the trace header has been written.
+	 * 
+	 * @param file The trace file
+	 * @return The trace input
+	 */
+	public static TraceInput tail( File file ) {
+		return new TailInput( file );
+	}
+	
+	/**
+	 * Reads the next trace message
+	 * 
+	 * @return The message or null if the end of the trace is reached
+	 * @throws IOException if the trace cannot be read
+	 * @throws GameTraceException if the message is invalid
+	 */
+	public abstract TraceMsg read( ) throws IOException, GameTraceException;
+	
+	/**
+	 * Closes the input
+	 * 
+	 * @throws IOException if the input cannot be closed
+	 */
+	public abstract void close( ) throws IOException;
+	
+	/**
+	 * Reads text traces (V1), one message per line
+	 */
+	protected static class TextInput extends TraceInput {
+		/** The line reader */
+		protected final BufferedReader reader;
+		
+		/**
+		 * Opens the text trace
+		 * 
+		 * @param file The trace file
+		 * @throws IOException if the file cannot be opened
+		 */
+		protected TextInput( File file ) throws IOException {
+			reader = new BufferedReader( new FileReader( file ) );
+		}
+		
+		/**
+		 * Opens the text trace at the specified position
+		 * 
+		 * @param file The trace file
+		 * @param offset The position of the first line to read in bytes
+		 * @throws IOException if the file cannot be opened
+		 */
+		protected TextInput( File file, long offset ) throws IOException {
+			final FileInputStream in = new FileInputStream( file );
+			try {
+				long skipped = 0;
+				while( skipped < offset ) {
+					final long s = in.skip( offset - skipped );
+					if( s <= 0 ) throw new EOFException( "Trace ends before position " + offset );
+					skipped += s;
+				}
+			} catch( IOException ioe ) {
+				in.close( );
+				throw ioe;
+			}
+			reader = new BufferedReader( new InputStreamReader( in ) );
+		}
+		
+		/**
+		 * @see plangame.gwt.server.gametrace.TraceInput#read()
+		 */
+		@Override
+		public TraceMsg read( ) throws IOException, GameTraceException {
+			String l;
+			while( (l = reader.readLine( )) != null ) {
+				if( l.trim( ).length( ) > 0 )
+					return TraceMsg.read( l );
+			}
+			
+			return null;
+		}
+		
+		/**
+		 * @see plangame.gwt.server.gametrace.TraceInput#close()
+		 */
+		@Override
+		public void close( ) throws IOException {
+			reader.close( );
+		}
+	}
+	
+	/**
+	 * Reads a trace that is still being written. The actual input is created
+	 * once the file contains enough bytes to detect the format.
+	 */
+	protected static class TailInput extends TraceInput {
+		/** The trace file */
+		protected final File file;
+		
+		/** The actual input, null until the format is known */
+		protected TraceInput input;
+		
+		/** True if the input is closed */
+		protected boolean closed;
+		
+		/**
+		 * Creates a new tail input for the file
+		 * 
+		 * @param file The trace file
+		 */
+		protected TailInput( File file ) {
+			this.file = file;
+			input = null;
+			closed = false;
+		}
+		
+		/**
+		 * @see plangame.gwt.server.gametrace.TraceInput#read()
+		 */
+		@Override
+		public TraceMsg read( ) throws IOException, GameTraceException {
+			if( closed ) return null;
+			
+			// detect the format once the header can be read
+			if( input == null ) {
+				if( file.length( ) < TraceEncoder.MAGIC.length ) return null;
+				
+				if( TraceDecoder.isBinaryTrace( file ) ) {
+					try {
+						final TraceDecoder decoder = new TraceDecoder( file );
+						decoder.setTailing( true );
+						input = decoder;
+					} catch( EOFException eof ) {
+						// the header is not completely written yet
+						return null;
+					}
+				} else
+					input = new TailTextInput( file );
+			}
+			
+			return input.read( );
+		}
+		
+		/**
+		 * @see plangame.gwt.server.gametrace.TraceInput#close()
+		 */
+		@Override
+		public void close( ) throws IOException {
+			closed = true;
+			if( input != null ) input.close( );
+		}
+	}
+	
+	/**
+	 * Reads a text trace (V1) that is still being written, only lines that
+	 * are terminated are parsed. The remainder of a partially written line is
+	 * kept until the rest of the line is written.
+	 */
+	protected static class TailTextInput extends TraceInput {
+		/** The file stream */
+		protected final InputStream in;
+		
+		/** The bytes of the current line */
+		protected final ByteArrayOutputStream line;
+		
+		/** The read buffer */
+		protected final byte[] buffer;
+		
+		/** The number of bytes in the buffer and the current position */
+		protected int length, pos;
+		
+		/**
+		 * Opens the text trace
+		 * 
+		 * @param file The trace file
+		 * @throws IOException if the file cannot be opened
+		 */
+		protected TailTextInput( File file ) throws IOException {
+			in = new FileInputStream( file );
+			line = new ByteArrayOutputStream( );
+			buffer = new byte[ 8192 ];
+			length = 0;
+			pos = 0;
+		}
+		
+		/**
+		 * @see plangame.gwt.server.gametrace.TraceInput#read()
+		 */
+		@Override
+		public TraceMsg read( ) throws IOException, GameTraceException {
+			while( true ) {
+				// refill the buffer with the bytes written so far
+				if( pos == length ) {
+					length = in.read( buffer );
+					pos = 0;
+					if( length <= 0 ) {
+						length = 0;
+						return null;
+					}
+				}
+				
+				// scan for the end of the line
+				final int start = pos;
+				while( pos < length && buffer[pos] != '\n' ) pos++;
+				line.write( buffer, start, pos - start );
+				if( pos == length ) continue;
+				pos++;
+				
+				final String l = line.toString( );
+				line.reset( );
+				if( l.trim( ).length( ) > 0 )
+					return TraceMsg.read( l.endsWith( "\r" ) ? l.substring( 0, l.length( ) - 1 ) : l );
+			}
+		}
+		
+		/**
+		 * @see plangame.gwt.server.gametrace.TraceInput#close()
+		 */
+		@Override
+		public void close( ) throws IOException {
+			in.close( );
+		}
+	}
+}
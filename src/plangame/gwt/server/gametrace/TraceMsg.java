@@ -42,10 +42,18 @@ public class TraceMsg {
 	 * @param type The trace message type 
 	 */
 	protected TraceMsg( TraceType type ) {
+		this( type, new Date( ) );
+	}
+	
+	/**
+	 * Creates a new trace message with the specified time stamp
+	 * 
+	 * @param type The trace message type
+	 * @param stamp The time stamp of the message
+	 */
+	protected TraceMsg( TraceType type, Date stamp ) {
 		this.type = type;
-		
-		// set time of creation
-		stamp = new Date( );
+		this.stamp = stamp;
 		
 		// creates the keys list
 		keys = new ArrayList<TraceKey>( );
@@ -83,6 +91,21 @@ public class TraceMsg {
 		return null;
 	}
 	
+	/** @return The number of keys in the message */
+	protected int getKeyCount( ) { return keys.size( ); }
+	
+	/**
+	 * @param index The index of the key
+	 * @return The key at the index
+	 */
+	protected KEYS getKey( int index ) { return keys.get( index ).key; }
+	
+	/**
+	 * @param index The index of the key
+	 * @return The value of the key at the index
+	 */
+	protected String getValue( int index ) { return keys.get( index ).value; }
+	
 	/**
 	 * Converts the message to a writable string
 	 * 
@@ -190,6 +213,8 @@ public class TraceMsg {
 		RespondedAll,
 		
 		RequestedSuggestion,
+		
+		Checkpoint,
 	}
 	
 	/** Message keys to prevent typo errors in read/write */
@@ -200,6 +225,7 @@ public class TraceMsg {
 		GameFile,
 		GamePeriod,
 		GameTime,
+		JointPlan,
 		MaxPlayers,
 		NumPlayers,
 		PlanChange,
@@ -0,0 +1,356 @@
+/**
+ * @file TraceWriter.java
+ * @brief Short description of file
+ *
+ * This file is created at Almende B.V. It is open-source software and part of the Common
+ * Hybrid Agent Platform (CHAP). A toolbox with a lot of open-source tools, ranging from
+ * thread pools and TCP/IP components to control architectures and learning algorithms.
+ * This software is published under the GNU Lesser General Public license (LGPL).
+ *
+ * Copyright  2026 agent <agent@local>
+ *
+ * @author       agent
+ * @date         17 okt. 2026
+ * @project      NGI
+ * @company      Almende B.V.
+ */
+package plangame.gwt.server.gametrace;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import plangame.gwt.server.Server;
+import plangame.gwt.server.gametrace.GameTracer.TracerVersion;
+import plangame.gwt.shared.LogType;
+
+/**
+ * Writes trace messages to the trace file. Depending on the durability policy
+ * the messages are written and flushed by the caller, or queued and written by
+ * a separate thread that flushes the file periodically or on round boundaries.
+ * The queue is bounded, a caller waits for space when the writer thread falls
+ * behind. If there is no space within the offer timeout or the writer thread
+ * fails, the writer thread is stopped and the callers write the messages
+ * themselves from then on. Messages are written as text lines (V1) or in the
+ * binary format (V2).
+ *
+ * @author agent
+ */
+public class TraceWriter {
+	/** Durability policies of the trace file */
+	public enum Durability {
+		/** Every message is written and flushed before the call returns */
+		PerEvent,
+		/** Messages are written by the writer thread and flushed as a group at
+		 * least once every commit interval */
+		GroupCommit,
+		/** Messages are written by the writer thread and flushed at the end of
+		 * each round and when the trace is closed */
+		RoundBoundary;
+	}
+	
+	/** Maximal time a caller waits for space in the queue before the messages
+	 * are written synchronously (in milliseconds) */
+	public final static long OFFER_TIMEOUT = 1000;
+	
+	/** The trace file */
+	protected final File file;
+	
+	/** The text trace file writer, null for binary traces */
+	protected final PrintWriter out;
+	
+	/** The binary trace encoder, null for text traces */
+	protected final TraceEncoder encoder;
+	
+	/** Lock that guards the file output */
+	protected final Object lock;
+	
+	/** The durability policy */
+	protected final Durability durability;
+	
+	/** Maximal time between flushes in group commit mode (in milliseconds) */
+	protected final long commitinterval;
+	
+	/** Queue of messages that are not written yet, null for per event mode */
+	protected final BlockingQueue<QueuedMsg> queue;
+	
+	/** The writer thread, null for per event mode */
+	protected final Thread writerthread;
+	
+	/** Lock that makes closing the writer exclusive with writing a message */
+	protected final ReadWriteLock closelock;
+	
+	/** True as long as the writer is open, changed under the close lock */
+	protected volatile boolean open;
+	
+	/** True once the callers write the messages, because the writer thread
+	 * fell behind or failed */
+	protected volatile boolean synchronous;
+	
+	/**
+	 * Creates a new trace writer
+	 * 
+	 * @param file The trace file
+	 * @param version The trace format version
+	 * @param durability The durability policy
+	 * @param commitinterval The commit interval in milliseconds for group commit
+	 * @param queuesize The maximal number of queued messages
+	 * @throws IOException if the file cannot be opened
+	 */
+	public TraceWriter( File file, TracerVersion version, Durability durability, long commitinterval, int queuesize ) throws IOException {
+		this.file = file;
+		if( version == TracerVersion.V1 ) {
+			out = new PrintWriter( new BufferedWriter( new FileWriter( file ) ) );
+			encoder = null;
+		} else {
+			out = null;
+			encoder = new TraceEncoder( file );
+		}
+		lock = new Object( );
+		this.durability = durability;
+		this.commitinterval = commitinterval;
+		closelock = new ReentrantReadWriteLock( );
+		open = true;
+		synchronous = false;
+		
+		// per event writes directly, no thread required
+		if( durability == Durability.PerEvent ) {
+			queue = null;
+			writerthread = null;
+			return;
+		}
+		
+		queue = new ArrayBlockingQueue<QueuedMsg>( queuesize );
+		writerthread = new Thread( new Runnable( ) {
+			@Override
+			public void run( ) {
+				write( );
+			}
+		}, "Game-Tracer-" + file.getName( ) );
+		writerthread.setDaemon( true );
+		writerthread.start( );
+	}
+	
+	/**
+	 * @return The durability policy of the writer
+	 */
+	public Durability getDurability( ) {
+		return durability;
+	}
+	
+	/**
+	 * Writes the trace message. Waits at most the offer timeout for space in
+	 * the queue, otherwise the writer thread is stopped and the message is
+	 * written synchronously. Messages written after the writer is closed are
+	 * not written.
+	 * 
+	 * @param msg The message
+	 * @param boundary True if the message ends a round
+	 */
+	public void write( TraceMsg msg, boolean boundary ) {
+		closelock.readLock( ).lock( );
+		try {
+			// the trace file is closed, the message cannot be written anymore
+			if( !open ) return;
+			
+			if( queue != null && !synchronous ) {
+				try {
+					if( queue.offer( new QueuedMsg( msg, boundary ), OFFER_TIMEOUT, TimeUnit.MILLISECONDS ) ) return;
+				} catch( InterruptedException ie ) {
+					Thread.currentThread( ).interrupt( );
+				}
+				
+				// the writer thread fell behind, write the messages synchronously
+				stopWriter( );
+			}
+			
+			// write the messages that are still queued first to keep the order
+			synchronized( lock ) {
+				drain( );
+				append( msg );
+				flushFile( );
+			}
+		} finally {
+			closelock.readLock( ).unlock( );
+		}
+	}
+	
+	/**
+	 * Closes the writer, writes all pending messages and closes the file.
+	 * Waits for messages that are being written, messages written after this
+	 * are not written.
+	 */
+	public void close( ) {
+		closelock.writeLock( ).lock( );
+		try {
+			if( !open ) return;
+			open = false;
+		} finally {
+			closelock.writeLock( ).unlock( );
+		}
+		
+		if( writerthread != null ) stopWriter( );
+		
+		// the queue no longer changes, write the remaining messages
+		synchronized( lock ) {
+			drain( );
+			if( out != null )
+				out.close( );
+			else
+				encoder.close( );
+		}
+	}
+	
+	/**
+	 * Switches to synchronous writes, stops the writer thread and waits until
+	 * it has written its last batch
+	 */
+	private void stopWriter( ) {
+		synchronous = true;
+		writerthread.interrupt( );
+		
+		boolean interrupted = false;
+		while( writerthread.isAlive( ) ) {
+			try {
+				writerthread.join( );
+			} catch( InterruptedException ie ) {
+				interrupted = true;
+			}
+		}
+		if( interrupted ) Thread.currentThread( ).interrupt( );
+	}
+	
+	/**
+	 * Appends all queued messages to the trace file, the caller must hold the
+	 * lock
+	 */
+	private void drain( ) {
+		if( queue == null ) return;
+		
+		final List<QueuedMsg> batch = new ArrayList<QueuedMsg>( );
+		queue.drainTo( batch );
+		for( QueuedMsg q : batch )
+			append( q.msg );
+	}
+	
+	/**
+	 * Writes the queued messages until the writer is closed or the messages
+	 * are written synchronously, runs in the writer thread. If writing fails
+	 * the rest of the batch is lost, the loss is logged as an error in the
+	 * server log and the callers write the messages from then on.
+	 */
+	private void write( ) {
+		final List<QueuedMsg> batch = new ArrayList<QueuedMsg>( );
+		long lastflush = System.currentTimeMillis( );
+		boolean dirty = false;
+		
+		while( open && !synchronous ) {
+			// wait for the next message, at most until the next commit
+			final long wait = (durability == Durability.GroupCommit ? Math.max( 1, lastflush + commitinterval - System.currentTimeMillis( ) ) : Long.MAX_VALUE);
+			try {
+				final QueuedMsg first = queue.poll( wait, TimeUnit.MILLISECONDS );
+				if( first != null ) batch.add( first );
+			} catch( InterruptedException ie ) {
+				break;
+			}
+			queue.drainTo( batch );
+			
+			synchronized( lock ) {
+				try {
+					// write the batch and check whether it ends a round
+					boolean boundary = false;
+					for( QueuedMsg q : batch ) {
+						append( q.msg );
+						boundary |= q.boundary;
+					}
+					dirty |= (batch.size( ) > 0);
+					batch.clear( );
+					
+					// commit the group if required
+					final long now = System.currentTimeMillis( );
+					final boolean commit;
+					if( durability == Durability.GroupCommit )
+						commit = (now - lastflush >= commitinterval);
+					else
+						commit = boundary;
+					
+					if( commit ) {
+						if( dirty ) flushFile( );
+						dirty = false;
+						lastflush = now;
+					}
+				} catch( RuntimeException re ) {
+					logError( "Trace writer of '" + file + "' failed, writing the trace synchronously, up to " + batch.size( ) + " messages are lost: " + re.getMessage( ) );
+					synchronous = true;
+					return;
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Logs an error of the writer in the server log, or to the error output if
+	 * there is no server log
+	 * 
+	 * @param message The error message
+	 */
+	private void logError( String message ) {
+		final Server server = Server.getInstance( );
+		if( server == null || !server.log( LogType.Error, message ) )
+			System.err.println( message );
+	}
+	
+	/**
+	 * Appends the message to the trace file in the trace format, the caller
+	 * must hold the lock
+	 * 
+	 * @param msg The message
+	 */
+	private void append( TraceMsg msg ) {
+		if( out != null )
+			out.println( msg.write( ) );
+		else
+			encoder.write( msg );
+	}
+	
+	/**
+	 * Flushes the trace file, the caller must hold the lock
+	 */
+	private void flushFile( ) {
+		if( out != null )
+			out.flush( );
+		else
+			encoder.flush( );
+	}
+	
+	/**
+	 * Trace message waiting in the queue
+	 */
+	private static class QueuedMsg {
+		/** The trace message */
+		protected final TraceMsg msg;
+		
+		/** True if the message ends a round */
+		protected final boolean boundary;
+		
+		/**
+		 * Creates a new queued message
+		 * 
+		 * @param msg The message
+		 * @param boundary True if it ends a round
+		 */
+		public QueuedMsg( TraceMsg msg, boolean boundary ) {
+			this.msg = msg;
+			this.boundary = boundary;
+		}
+	}
+}
@@ -25,11 +25,13 @@ import java.awt.event.InputEvent;
 import java.awt.event.KeyEvent;
 import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
+import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.SortedSet;
 
 import javax.swing.JButton;
 import javax.swing.JFileChooser;
@@ -44,6 +46,7 @@ import javax.swing.JSplitPane;
 import javax.swing.JTextArea;
 import javax.swing.KeyStroke;
 import javax.swing.SwingConstants;
+import javax.swing.SwingUtilities;
 
 import plangame.game.Game;
 import plangame.game.player.Player;
@@ -53,6 +56,7 @@ import plangame.gwt.server.gametrace.GameTraceException;
 import plangame.gwt.server.gametrace.GameTraceReader;
 import plangame.gwt.server.gametrace.ProfileScoreResult;
 import plangame.gwt.server.gametrace.ProfileScores;
+import plangame.gwt.server.gametrace.TraceFollower;
 import plangame.gwt.server.gametrace.TraceMsg.TraceType;
 
 /**
@@ -65,9 +69,15 @@ public class GameTraceUI extends JFrame {
 	/** The game trace reader used in this UI */
 	protected GameTraceReader tracer;
 	
+	/** The follower of the trace if it is still being written, null otherwise */
+	protected TraceFollower follower;
+	
 	/** The WebRoot directory for game files */
 	protected String webroot; // TODO setter
 	
+	/** The directory of the last selected trace file, null if none */
+	protected File lastdir;
+	
 	/** The window title */
 	private static final String WINDOW_TITLE = "Game Tracer";
 
@@ -98,7 +108,9 @@ public class GameTraceUI extends JFrame {
 		
 		// set defaults
 		tracer = null;
+		follower = null;
 		webroot = ".";
+		lastdir = null;
 		
 		// build UI
 		init( );
@@ -172,6 +184,12 @@ public class GameTraceUI extends JFrame {
 			@Override	public void actionPerformed( ActionEvent arg0 ) { menuFileOpen( ); }
 		} );
 		file.add( fileOpen );
+		final JMenuItem fileFollow = new JMenuItem( "Follow running game..." );
+		fileFollow.setAccelerator( KeyStroke.getKeyStroke( KeyEvent.VK_F, InputEvent.CTRL_MASK ) );
+		fileFollow.addActionListener( new ActionListener( ) {
+			@Override	public void actionPerformed( ActionEvent arg0 ) { menuFileFollow( ); }
+		} );
+		file.add( fileFollow );
 		final JMenuItem fileExit = new JMenuItem( "Exit" );
 		fileExit.addActionListener( new ActionListener( ) {			
 			@Override	public void actionPerformed( ActionEvent arg0 ) { menuFileExit( ); }
@@ -203,6 +221,31 @@ public class GameTraceUI extends JFrame {
 			@Override public void actionPerformed( ActionEvent e ) { gameStepAll( ); }
 		} );
 		game.add( gameStepAll );
+		game.addSeparator( );
+		final JMenuItem gamePrevRound = new JMenuItem( "Previous round" );
+		gamePrevRound.setAccelerator( KeyStroke.getKeyStroke( KeyEvent.VK_LEFT, InputEvent.CTRL_MASK ) );
+		gamePrevRound.addActionListener( new ActionListener( ) {
+			@Override public void actionPerformed( ActionEvent e ) { gameJumpRound( -1 ); }
+		} );
+		game.add( gamePrevRound );
+		final JMenuItem gameNextRound = new JMenuItem( "Next round" );
+		gameNextRound.setAccelerator( KeyStroke.getKeyStroke( KeyEvent.VK_RIGHT, InputEvent.CTRL_MASK ) );
+		gameNextRound.addActionListener( new ActionListener( ) {
+			@Override public void actionPerformed( ActionEvent e ) { gameJumpRound( 1 ); }
+		} );
+		game.add( gameNextRound );
+		final JMenuItem gameJumpRound = new JMenuItem( "Jump to round..." );
+		gameJumpRound.setAccelerator( KeyStroke.getKeyStroke( KeyEvent.VK_J, InputEvent.CTRL_MASK ) );
+		gameJumpRound.addActionListener( new ActionListener( ) {
+			@Override public void actionPerformed( ActionEvent e ) { gameJumpRound( ); }
+		} );
+		game.add( gameJumpRound );
+		final JMenuItem gameJumpMsg = new JMenuItem( "Jump to message..." );
+		gameJumpMsg.addActionListener( new ActionListener( ) {
+			@Override public void actionPerformed( ActionEvent e ) { gameJumpMessage( ); }
+		} );
+		game.add( gameJumpMsg );
+		game.addSeparator( );
 		final JMenuItem gameReset = new JMenuItem( "Reset" );
 		gameReset.addActionListener( new ActionListener( ) {
 			@Override public void actionPerformed( ActionEvent e ) { gameReset( ); }
@@ -261,35 +304,130 @@ public class GameTraceUI extends JFrame {
 		final GameTraceReader tr = new GameTraceReader( tracefile );
 		tr.setWebRoot( webroot );
 		
-		// set the tracer in the interface
+		// set the tracer in the interface, release the previous trace file
+		stopFollowing( );
+		if( tracer != null ) tracer.close( );
 		this.tracer = tr;
 		setTitle( WINDOW_TITLE + " - " + tracer.getTraceFile( ).getName( ) );
 		
 		// update the interface elements
-		lblLog.setText( "Successfully parsed trace file: " + tracefile );
+		lblLog.setText( "Successfully opened trace file: " + tracefile );
 		updateScore( );
 	}
 	
+	/**
+	 * Follows the specified trace file while it is being written by a running
+	 * game. All messages written so far are executed and the scores are
+	 * updated whenever new messages are written to the trace.
+	 * 
+	 * @param tracefile The trace file to follow
+	 * @throws IOException if the file cannot be read
+	 * @throws GameTraceException if the trace contains invalid messages
+	 */
+	public void followTraceFile( String tracefile ) throws IOException, GameTraceException {
+		// create a following tracer
+		final GameTraceReader tr = new GameTraceReader( );
+		tr.setWebRoot( webroot );
+		tr.followTraceFile( tracefile );
+		
+		// set the tracer in the interface, release the previous trace file
+		stopFollowing( );
+		if( tracer != null ) tracer.close( );
+		this.tracer = tr;
+		setTitle( WINDOW_TITLE + " - " + tracer.getTraceFile( ).getName( ) + " (following)" );
+		lblLog.setText( "Following trace file: " + tracefile );
+		
+		// step through new messages in the UI thread whenever the trace grows
+		follower = new TraceFollower( new File( tracefile ), new Runnable( ) {
+			@Override public void run( ) {
+				SwingUtilities.invokeLater( new Runnable( ) {
+					@Override public void run( ) { followStep( tr ); }
+				} );
+			}
+		} );
+		follower.start( );
+	}
+	
+	/**
+	 * Executes the new messages of the followed trace and updates the scores,
+	 * runs in the UI thread
+	 * 
+	 * @param tr The tracer that was following when the trace changed
+	 */
+	protected void followStep( GameTraceReader tr ) {
+		// another trace may have been opened in the mean time
+		if( tr != tracer || follower == null ) return;
+		
+		try {
+			if( tracer.stepAvailable( ) == 0 ) return;
+			
+			lblLog.setText( "Following, message " + tracer.getIndex( ) + ": " + tracer.getLastStep( ) );
+			updateScore( );
+		} catch( GameTraceException gte ) {
+			stopFollowing( );
+			lblLog.setText( "Stopped following: " + gte.getMessage( ) );
+		}
+	}
+	
+	/**
+	 * Stops following the current trace, if any
+	 */
+	protected void stopFollowing( ) {
+		if( follower == null ) return;
+		
+		follower.stop( );
+		follower = null;
+	}
+	
+	/**
+	 * Shows the dialog to select a trace file, starts in the directory of the
+	 * last selected trace or the web root
+	 * 
+	 * @return The selected file or null if the dialog is cancelled
+	 */
+	protected File selectTraceFile( ) {
+		final JFileChooser f = new JFileChooser( lastdir != null ? lastdir : new File( webroot ) );
+		if( f.showOpenDialog( this ) != JFileChooser.APPROVE_OPTION ) return null;
+		
+		lastdir = f.getCurrentDirectory( );
+		return f.getSelectedFile( );
+	}
+	
 	/**
 	 * Window to open a trace file
 	 */
 	protected void menuFileOpen( ) {
 		// create open file dialog
-		final JFileChooser f = new JFileChooser( "C:\\Users\\Joris\\Desktop\\Almende\\gamesessions" );
-		if( f.showOpenDialog( this ) != JFileChooser.APPROVE_OPTION ) return;
+		final File file = selectTraceFile( );
+		if( file == null ) return;
 		
 		// read the trace
 		try {
-			readTraceFile( f.getSelectedFile( ).getPath( ) );
+			readTraceFile( file.getPath( ) );
 		} catch( Exception e ) {
 			JOptionPane.showMessageDialog( this, "Error while reading trace file: " + e.getMessage( ) );
 		}
 	}
 	
+	/**
+	 * Window to select the trace file of a running game to follow
+	 */
+	protected void menuFileFollow( ) {
+		final File file = selectTraceFile( );
+		if( file == null ) return;
+		
+		try {
+			followTraceFile( file.getPath( ) );
+		} catch( Exception e ) {
+			JOptionPane.showMessageDialog( this, "Error while following trace file: " + e.getMessage( ) );
+		}
+	}
+	
 	/**
 	 * Exits the UI
 	 */
 	protected void menuFileExit( ) {
+		stopFollowing( );
 		this.setVisible( false );
 		System.exit( 0 );
 	}
@@ -370,6 +508,84 @@ public class GameTraceUI extends JFrame {
 		}		
 	}
 	
+	/**
+	 * Asks for a round and jumps to the end of that round
+	 */
+	protected void gameJumpRound( ) {
+		if( tracer == null ) {
+			lblLog.setText( "No game loaded" );
+			return;
+		}
+		
+		final SortedSet<Integer> rounds = tracer.getRounds( );
+		if( rounds.size( ) == 0 ) {
+			lblLog.setText( "No round has ended in the trace" );
+			return;
+		}
+		
+		final String round = JOptionPane.showInputDialog( this, "Jump to the end of round (" + rounds.first( ) + " - " + rounds.last( ) + ")" );
+		if( round == null ) return;
+		
+		try {
+			lblLog.setText( tracer.jumpToRound( Integer.parseInt( round.trim( ) ) ) );
+			updateScore( );
+		} catch( NumberFormatException nfe ) {
+			lblLog.setText( "Invalid round number: " + round );
+		} catch( GameTraceException gte ) {
+			lblLog.setText( gte.getMessage( ) );
+		}
+	}
+	
+	/**
+	 * Jumps to the end of the next or previous round
+	 * 
+	 * @param dir 1 to jump to the next round, -1 to jump to the previous round
+	 */
+	protected void gameJumpRound( int dir ) {
+		if( tracer == null ) {
+			lblLog.setText( "No game loaded" );
+			return;
+		}
+		
+		// find the round to jump to
+		final SortedSet<Integer> rounds = tracer.getRounds( );
+		final int curr = tracer.getRound( );
+		final SortedSet<Integer> cand = (dir > 0 ? rounds.tailSet( curr + 1 ) : rounds.headSet( curr ));
+		if( cand.size( ) == 0 ) {
+			lblLog.setText( "There is no " + (dir > 0 ? "next" : "previous") + " round" );
+			return;
+		}
+		
+		try {
+			lblLog.setText( tracer.jumpToRound( dir > 0 ? cand.first( ) : cand.last( ) ) );
+			updateScore( );
+		} catch( GameTraceException gte ) {
+			lblLog.setText( gte.getMessage( ) );
+		}
+	}
+	
+	/**
+	 * Asks for a message number and jumps to that message
+	 */
+	protected void gameJumpMessage( ) {
+		if( tracer == null ) {
+			lblLog.setText( "No game loaded" );
+			return;
+		}
+		
+		final String msg = JOptionPane.showInputDialog( this, "Jump to message (0 - " + (tracer.getMessageCount( ) - 1) + ")" );
+		if( msg == null ) return;
+		
+		try {
+			lblLog.setText( tracer.jumpTo( Integer.parseInt( msg.trim( ) ) ) );
+			updateScore( );
+		} catch( NumberFormatException nfe ) {
+			lblLog.setText( "Invalid message number: " + msg );
+		} catch( GameTraceException gte ) {
+			lblLog.setText( gte.getMessage( ) );
+		}
+	}
+	
 	/**
 	 * Outputs the profile scores to the console of the current joint plan
 	 */
@@ -23,28 +23,80 @@ import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import plangame.gwt.shared.DebugGlobals;
 import plangame.gwt.shared.LogType;
 
 /**
- * Logger for the game
+ * Logger for the game. Messages are put in a bounded buffer and written by a
+ * separate logger thread, so that logging does not cost the caller any I/O.
+ * The logger thread writes the messages in batches and flushes the log files
+ * when the buffer is empty or the flush interval has passed. Messages that
+ * are logged after the logger is closed are not written.
  *
  * @author Joris Scharpff
  */
 public class Logger {
+	/** Capacity of the message buffer, callers block when it is full */
+	private final static int BUFFER_SIZE = 8192;
+	
+	/** Maximal number of messages written in one batch */
+	private final static int BATCH_SIZE = 512;
+	
+	/** Maximal time between flushes of the log files (in milliseconds) */
+	private final static long FLUSH_INTERVAL = 1000;
+	
 	/** The log writers */
 	protected List<LogWriter> writers;
-		
+	
+	/** Bit flag of the log types that are written by at least one writer */
+	protected volatile int logtypes;
+	
+	/** The buffer of messages that are not written yet */
+	protected BlockingQueue<LogEntry> buffer;
+	
+	/** The thread that writes the log messages */
+	protected Thread writerthread;
+	
+	/** True as long as the logger thread is running */
+	protected volatile boolean running;
+	
+	/** Lock that makes closing the logger exclusive with adding messages */
+	protected final ReadWriteLock closelock;
+	
+	/** True once the logger is closed, guarded by the close lock */
+	protected boolean closed;
+	
 	/**
 	 * Creates a new logger
 	 */
 	public Logger( ) {
-		writers = new ArrayList<LogWriter>( );
+		writers = new CopyOnWriteArrayList<LogWriter>( );
+		logtypes = 0;
+		buffer = new ArrayBlockingQueue<LogEntry>( BUFFER_SIZE );
+		closelock = new ReentrantReadWriteLock( );
+		closed = false;
 		
 		// DEBUG add sysout log writer
 		if( DebugGlobals.printLog( ) > 0 )
-			writers.add( new LogWriter( System.out, DebugGlobals.printLog( ) ) );
+			addWriter( new LogWriter( System.out, DebugGlobals.printLog( ) ) );
+		
+		// start the writer thread
+		running = true;
+		writerthread = new Thread( new Runnable( ) {
+			@Override
+			public void run( ) {
+				write( );
+			}
+		}, "Game-Logger" );
+		writerthread.setDaemon( true );
+		writerthread.start( );
 	}
 	
 	/**
@@ -67,28 +119,193 @@ public class Logger {
 	public void addLog( String logfile, int logtypes ) {
 		// no log found with this file name, create a new one
 		try {
-			writers.add( new LogWriter( logfile, logtypes ) );
+			addWriter( new LogWriter( logfile, logtypes ) );
 		} catch( RuntimeException re ) {
 			// failed to create logger
 			System.err.println( re.getMessage( ) );
 		}
 	}
 	
+	/**
+	 * Adds the log writer and includes its log types
+	 * 
+	 * @param writer The log writer
+	 */
+	private void addWriter( LogWriter writer ) {
+		writers.add( writer );
+		logtypes |= writer.logtypes;
+	}
+	
+	/**
+	 * Checks if messages of the type are written by any of the log writers. Can
+	 * be used to skip building a log message that is not written anyway.
+	 * 
+	 * @param type The message type
+	 * @return True if the message type is logged
+	 */
+	public boolean isLogged( LogType type ) {
+		return type.isset( logtypes );
+	}
+	
 	/**
 	 * Logs a message with the specified log level, checks if the level is in the
-	 * flag of included log levels
+	 * flag of included log levels. The message is written by the logger thread.
 	 * 
 	 * @param sender The name of the sender
 	 * @param message The message to log
 	 * @param type The message type
 	 */
 	public void log( String sender, String message, LogType type ) {
-		for( LogWriter w : writers ) 
-			w.log( sender, message, type );
+		if( !isLogged( type ) ) return;
+		
+		final LogEntry entry = new LogEntry( System.currentTimeMillis( ), sender, message, type );
+		
+		closelock.readLock( ).lock( );
+		try {
+			// the log files are closed, the message cannot be written anymore
+			if( closed ) return;
+			
+			// wait for space in the buffer so that no message is lost, the logger
+			// thread keeps writing until the logger is closed
+			boolean interrupted = false;
+			while( true ) {
+				try {
+					buffer.put( entry );
+					break;
+				} catch( InterruptedException ie ) {
+					interrupted = true;
+				}
+			}
+			if( interrupted ) Thread.currentThread( ).interrupt( );
+		} finally {
+			closelock.readLock( ).unlock( );
+		}
+	}
+	
+	/**
+	 * Stops the logger thread, writes all pending messages and closes the log
+	 * files. Waits for messages that are being added to the buffer, messages
+	 * logged after this are not written.
+	 */
+	public void close( ) {
+		closelock.writeLock( ).lock( );
+		try {
+			if( closed ) return;
+			closed = true;
+		} finally {
+			closelock.writeLock( ).unlock( );
+		}
+		
+		// stop the logger thread and wait until it has written its last batch
+		running = false;
+		writerthread.interrupt( );
+		boolean interrupted = false;
+		while( writerthread.isAlive( ) ) {
+			try {
+				writerthread.join( );
+			} catch( InterruptedException ie ) {
+				interrupted = true;
+			}
+		}
+		
+		// the buffer no longer changes, write the remaining messages
+		synchronized( writers ) {
+			final List<LogEntry> batch = new ArrayList<LogEntry>( BATCH_SIZE );
+			while( !buffer.isEmpty( ) )
+				writeBatch( batch );
+			for( LogWriter w : writers )
+				w.close( );
+		}
+		if( interrupted ) Thread.currentThread( ).interrupt( );
+	}
+	
+	/**
+	 * Writes messages from the buffer until the logger is stopped, runs in the
+	 * logger thread
+	 */
+	private void write( ) {
+		final List<LogEntry> batch = new ArrayList<LogEntry>( BATCH_SIZE );
+		long lastflush = System.currentTimeMillis( );
+		
+		while( running ) {
+			// wait for the next message
+			try {
+				final LogEntry entry = buffer.poll( FLUSH_INTERVAL, TimeUnit.MILLISECONDS );
+				if( entry != null ) batch.add( entry );
+			} catch( InterruptedException ie ) {
+				break;
+			}
+			
+			synchronized( writers ) {
+				writeBatch( batch );
+				
+				// flush if there is nothing more to write or it has been a while
+				final long now = System.currentTimeMillis( );
+				if( buffer.isEmpty( ) || now - lastflush >= FLUSH_INTERVAL ) {
+					flush( );
+					lastflush = now;
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Writes the messages in the batch and all messages that are in the buffer,
+	 * up to the batch size
+	 * 
+	 * @param batch The batch, is cleared after writing
+	 */
+	private void writeBatch( List<LogEntry> batch ) {
+		buffer.drainTo( batch, BATCH_SIZE - batch.size( ) );
+		for( LogEntry e : batch )
+			for( LogWriter w : writers )
+				w.log( e );
+		batch.clear( );
+	}
+	
+	/**
+	 * Flushes all log writers
+	 */
+	private void flush( ) {
+		for( LogWriter w : writers )
+			w.flush( );
+	}
+	
+	/**
+	 * Log message that is waiting to be written
+	 */
+	private static class LogEntry {
+		/** The time of logging */
+		protected final long time;
+		
+		/** The sender */
+		protected final String sender;
+		
+		/** The message */
+		protected final String message;
+		
+		/** The message type */
+		protected final LogType type;
+		
+		/**
+		 * Creates a new log entry
+		 * 
+		 * @param time The time of logging in milliseconds
+		 * @param sender The sender
+		 * @param message The message
+		 * @param type The message type
+		 */
+		public LogEntry( long time, String sender, String message, LogType type ) {
+			this.time = time;
+			this.sender = sender;
+			this.message = message;
+			this.type = type;
+		}
 	}
 
 	/**
-	 * Private class used to represent one log writer
+	 * Private class used to represent one log writer, it is only used by the
+	 * logger thread
 	 */
 	private class LogWriter {
 		/** The output stream */
@@ -97,6 +314,18 @@ public class Logger {
 		/** The logging types bit flag */
 		protected int logtypes;
 		
+		/** True if the output is a log file that is closed with the logger */
+		protected boolean isfile;
+		
+		/** The time stamp format */
+		protected final SimpleDateFormat format = new SimpleDateFormat( "HH:mm:ss" );
+		
+		/** The second of the last formatted time stamp */
+		protected long stampsecond = -1;
+		
+		/** The last formatted time stamp */
+		protected String stamp;
+		
 		/**
 		 * Creates a new log writer that writes to the specified file name and uses
 		 * the given logging level
@@ -110,6 +339,7 @@ public class Logger {
 			
 			try {
 				out = new PrintWriter( logfile );
+				isfile = true;
 				writeHeader( );
 			} catch( FileNotFoundException e ) {
 				throw new RuntimeException( "Logger failed to initialise: " + e.getMessage( ) );
@@ -148,23 +378,50 @@ public class Logger {
 				if( type.isset( logtypes ) )
 					out.print( " " + type.toString( ) );
 			out.println( );
+			out.flush( );
 		}
 		
 		/**
 		 * Logs a message with the specified type
 		 * 
-		 * @param sender The name of the sender
-		 * @param message The message
-		 * @param type The log type
+		 * @param entry The log entry
 		 */
-		public void log( String sender, String message, LogType type ) {
+		public void log( LogEntry entry ) {
 			// check if this level should be logged
-			if( !type.isset( logtypes ) ) return;		
+			if( !entry.type.isset( logtypes ) ) return;		
 
-			final String tstamp = (new SimpleDateFormat( "HH:mm:ss" )).format( new Date( ) );
+			// the time stamp only changes once per second
+			final long second = entry.time / 1000;
+			if( second != stampsecond ) {
+				stamp = format.format( new Date( entry.time ) );
+				stampsecond = second;
+			}
 			
-			out.println( "[" + tstamp + " " + sender + " (" + type.toString( ) + ")] " + message );
+			out.print( '[' );
+			out.print( stamp );
+			out.print( ' ' );
+			out.print( entry.sender );
+			out.print( " (" );
+			out.print( entry.type.toString( ) );
+			out.print( ")] " );
+			out.println( entry.message );
+		}
+		
+		/**
+		 * Flushes the output
+		 */
+		public void flush( ) {
 			out.flush( );
 		}
+		
+		/**
+		 * Closes the output, a stream output is only flushed
+		 */
+		public void close( ) {
+			if( isfile )
+				out.close( );
+			else
+				out.flush( );
+		}
 	}
 }
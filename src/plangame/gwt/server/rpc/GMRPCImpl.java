@@ -44,7 +44,7 @@ public class GMRPCImpl extends GameClientImpl implements GMRPC {
 	 */
 	@Override
 	public List<Portfolio> getPortfolios( BasicID gmID ) throws NoSuchGameServerException, ClientNotConnectedException, ClientNotInGameException, NoServerException {
-		return getGameServer( getClient( gmID ) ).getPortfolios( );
+		return getGameServer( getClient( gmID ) ).commands( ).getPortfolios( );
 	}
 	
 	/**
@@ -52,7 +52,7 @@ public class GMRPCImpl extends GameClientImpl implements GMRPC {
 	 */
 	@Override
 	public void assignPortfolio( BasicID clientID, BasicID pfID ) throws GameServerException, NoSuchGameServerException, ClientNotConnectedException, ClientNotInGameException, NoServerException {
-		getGameServer( getClient( clientID ) ).assignPortfolio( (SPClient)getClient( clientID ), pfID );
+		getGameServer( getClient( clientID ) ).commands( ).assignPortfolio( (SPClient)getClient( clientID ), pfID );
 	}
 	
 	/**
@@ -60,7 +60,7 @@ public class GMRPCImpl extends GameClientImpl implements GMRPC {
 	 */
 	@Override
 	public GameState setGameState( BasicID clientID, GameState state ) throws NoSuchGameServerException, ClientNotConnectedException, ClientNotInGameException, NoServerException {
-		return getGameServer( getClient( clientID ) ).forceGameState( state );
+		return getGameServer( getClient( clientID ) ).commands( ).forceGameState( state );
 	}
 	
 	/**
@@ -69,7 +69,7 @@ public class GMRPCImpl extends GameClientImpl implements GMRPC {
 	@Override
 	public ClientState setClientState( BasicID clientID, ClientState state ) throws GameServerException, NoSuchGameServerException, ClientNotConnectedException, ClientNotInGameException, NoServerException {
 		final SPClient client = (SPClient) getClient( clientID );
-		return getGameServer( client ).forceClientState( client, state );
+		return getGameServer( client ).commands( ).forceClientState( client, state );
 	}
 	
 	/**
@@ -77,7 +77,7 @@ public class GMRPCImpl extends GameClientImpl implements GMRPC {
 	 */
 	@Override
 	public void startGame( BasicID clientID ) throws NoServerException, NoSuchGameServerException, ClientNotConnectedException, ClientNotInGameException, GameServerException {
-		getGameServer( getClient( clientID ) ).startGame( );
+		getGameServer( getClient( clientID ) ).commands( ).startGame( );
 	}
 	
 	/**
@@ -85,7 +85,7 @@ public class GMRPCImpl extends GameClientImpl implements GMRPC {
 	 */
 	@Override
 	public void startPlanRound( BasicID clientID ) throws NoServerException, InvalidGameStateException, NoSuchGameServerException, ClientNotConnectedException, ClientNotInGameException {
-		getGameServer( getClient( clientID ) ).initPlanRound( );
+		getGameServer( getClient( clientID ) ).commands( ).initPlanRound( );
 	}
 	
 	/**
@@ -93,7 +93,7 @@ public class GMRPCImpl extends GameClientImpl implements GMRPC {
 	 */
 	@Override
 	public void startExecute( BasicID gmID, ExecutionInfo execinfo ) throws InvalidGameStateException, NoSuchGameServerException, ClientNotConnectedException, ClientNotInGameException, NoServerException, InvalidPlanException {
-		getGameServer( getClient( gmID ) ).initExecution( execinfo );
+		getGameServer( getClient( gmID ) ).commands( ).initExecution( execinfo );
 	}
 	
 	/**
@@ -101,7 +101,7 @@ public class GMRPCImpl extends GameClientImpl implements GMRPC {
 	 */
 	@Override
 	public void stopExecute( BasicID gmID ) throws InvalidGameStateException, ClientNotConnectedException, ClientNotInGameException, NoSuchGameServerException, NoServerException {
-		getGameServer( getClient( gmID ) ).stopExecution( );
+		getGameServer( getClient( gmID ) ).commands( ).stopExecution( );
 	}
 	
 	/**
@@ -109,6 +109,6 @@ public class GMRPCImpl extends GameClientImpl implements GMRPC {
 	 */
 	@Override
 	public void submitPending( BasicID clientID, PlanStepResult results, boolean stop ) throws GameServerException, NoServerException, InvalidGameStateException, NoSuchGameServerException, ClientNotConnectedException, ClientNotInGameException, InvalidPlanException {
-		getGameServer( getClient( clientID ) ).handlePending( results, stop );
+		getGameServer( getClient( clientID ) ).commands( ).handlePending( results, stop );
 	}
 }
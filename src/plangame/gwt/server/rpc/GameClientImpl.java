@@ -56,7 +56,7 @@ public class GameClientImpl extends ClientImpl implements GameClientRPC {
 	@Override
 	public RestoreResponse restoreClient( BasicID clientID ) throws NoServerException, ClientNotConnectedException, ClientNotInGameException, NoSuchGameServerException {
 		final GameClient client = getClient( clientID );
-		return getGameServer( client ).restoreClient( client );
+		return getGameServer( client ).commands( ).restoreClient( client );
 	}
 
 	/**
@@ -58,7 +58,7 @@ public class SPRPCImpl extends GameClientImpl implements SPRPC {
 	@Override
 	public void submitPlan( BasicID clientID, Plan plan ) throws NoServerException, ClientNotConnectedException, ClientNotInGameException, NoSuchGameServerException {
 		final SPClient client = getClient( clientID );
-		getGameServer( client ).submitPlan( client, plan );
+		getGameServer( client ).commands( ).submitPlan( client, plan );
 	}
 
 	/**
@@ -67,7 +67,7 @@ public class SPRPCImpl extends GameClientImpl implements SPRPC {
 	@Override
 	public void acceptPlan( BasicID clientID, boolean accept ) throws NoServerException, ClientNotConnectedException, ClientNotInGameException, NoSuchGameServerException {
 		final SPClient client = getClient( clientID );
-		getGameServer( client ).acceptPlan( client, accept );
+		getGameServer( client ).commands( ).acceptPlan( client, accept );
 	}
 	
 	/**
@@ -76,7 +76,7 @@ public class SPRPCImpl extends GameClientImpl implements SPRPC {
 	@Override
 	public void planChange( BasicID clientID, PlanChange change ) throws InvalidGameStateException, InvalidClientStateException, NoServerException, ClientNotConnectedException, ClientNotInGameException, NoSuchGameServerException {
 		final SPClient client = getClient( clientID );
-		getGameServer( client ).planChanged( client, change );
+		getGameServer( client ).commands( ).planChanged( client, change );
 	}
 	
 	/**
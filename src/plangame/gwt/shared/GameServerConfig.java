@@ -104,6 +104,15 @@ public class GameServerConfig implements Serializable {
 		return singleDecline;
 	}
 	
+	/**
+	 * Enables or disables tracing of the gameplay
+	 * 
+	 * @param trace True to trace the gameplay
+	 */
+	public void setTrace( boolean trace ) {
+		this.trace = trace;
+	}
+	
 	/**
 	 * @return True if the gameplay should be traced
 	 */
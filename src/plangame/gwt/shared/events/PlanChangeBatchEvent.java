@@ -0,0 +1,57 @@
+/**
+ * @file PlanChangeBatchEvent.java
+ * @brief Short description of file
+ *
+ * This file is created at Almende B.V. It is open-source software and part of the Common
+ * Hybrid Agent Platform (CHAP). A toolbox with a lot of open-source tools, ranging from
+ * thread pools and TCP/IP components to control architectures and learning algorithms.
+ * This software is published under the GNU Lesser General Public license (LGPL).
+ *
+ * Copyright  2026 agent <agent@local>
+ *
+ * @author       agent
+ * @date         17 okt. 2026
+ * @project      NGI
+ * @company      Almende B.V.
+ */
+package plangame.gwt.shared.events;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import plangame.game.plans.PlanChange;
+
+/**
+ * Notifies the score board of a batch of plan changes. Consecutive plan
+ * changes of the players are merged at the server into one batch, the score
+ * board applies the changes in the order of the list.
+ *
+ * @author agent
+ */
+@SuppressWarnings("serial")
+public class PlanChangeBatchEvent extends Event {
+	/** The plan changes */
+	protected ArrayList<PlanChange> changes;
+	
+	/** Empty constructor for GWT RPC */
+	@Deprecated protected PlanChangeBatchEvent( ) { }
+	
+	/**
+	 * Creates a new PlanChangeBatchEvent
+	 * 
+	 * @param changes The list of plan changes
+	 */
+	public PlanChangeBatchEvent( ArrayList<PlanChange> changes ) {
+		super( );
+		
+		this.changes = changes;
+	}
+	
+	/** @return The plan changes */
+	public List<PlanChange> getChanges( ) { return changes; }
+	
+	/**
+	 * @see plangame.gwt.shared.events.Event#getName()
+	 */
+	@Override public String getName( ) { return "Plan change batch event"; }
+}